@@ -0,0 +1,135 @@
+package com.CamundaEnver;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.stream.IntStream;
+
+/**
+ * Precomputed all-pairs shortest path table for a compiled process graph.
+ * For every pair of nodes the table stores the first hop of a shortest path as a {@code short},
+ * so a path query becomes a walk through the table instead of a search. The table is built
+ * by running one breadth-first search per node, in parallel across the common fork-join pool.
+ * <p>
+ * The table needs {@code 2 * size()^2} bytes and is only meant for graphs whose node count is small
+ * compared with the query volume. Graphs with more than {@link #MAX_NODES} nodes are rejected, which caps
+ * the table at 32 MiB regardless of how high {@code BPMN_ALL_PAIRS_MAX_NODES} is configured.
+ */
+public final class AllPairsIndex {
+    public static final int MAX_NODES = 4096; // Hard ceiling on the node count, bounding the table to 32 MiB
+
+    private static final short NONE = -1; // Table entry for unreachable targets
+
+    private final ProcessGraph graph; // Graph the table was built for
+    private final int n; // Node count, also the row length of the table
+    private final short[] nextHop; // nextHop[s * n + t] = first node after s on a shortest path to t, or NONE
+
+    private AllPairsIndex(ProcessGraph graph, short[] nextHop) {
+        this.graph = graph;
+        this.n = graph.size();
+        this.nextHop = nextHop;
+    }
+
+    /**
+     * Builds the table for the given graph.
+     *
+     * @param graph the compiled process graph
+     * @return the all-pairs index
+     * @throws IllegalArgumentException if the graph has more than {@link #MAX_NODES} nodes
+     */
+    public static AllPairsIndex build(ProcessGraph graph) {
+        int n = graph.size();
+        if (n > MAX_NODES) throw new IllegalArgumentException("Graph too large for all-pairs index: " + n + " nodes");
+        short[] table = new short[n * n];
+        Arrays.fill(table, NONE);
+        IntStream.range(0, n).parallel().forEach(s -> fillRow(graph, s, table));
+        return new AllPairsIndex(graph, table);
+    }
+
+    /**
+     * Runs a breadth-first search from one source and records the first hop towards every reached node.
+     *
+     * @param graph the compiled process graph
+     * @param s     the source node index
+     * @param table the table whose row s is filled
+     */
+    private static void fillRow(ProcessGraph graph, int s, short[] table) {
+        int n = graph.size(), row = s * n;
+        int[] offsets = graph.offsets(), targets = graph.targets();
+        SearchWorkspace.Frontier fw = SearchWorkspace.acquire(n).forward;
+        table[row + s] = (short) s;
+        fw.visit(s);
+        fw.enqueue(s);
+        while (!fw.isQueueEmpty()) {
+            int node = fw.dequeue();
+            // Nodes inherit the first hop of the node they were reached from
+            short hop = table[row + node];
+            for (int e = offsets[node]; e < offsets[node + 1]; e++) {
+                int next = targets[e];
+                if (!fw.visit(next)) continue;
+                table[row + next] = node == s ? (short) next : hop;
+                fw.enqueue(next);
+            }
+        }
+    }
+
+    /**
+     * Returns the graph this index was built for.
+     *
+     * @return the compiled process graph
+     */
+    public ProcessGraph graph() {
+        return graph;
+    }
+
+    /**
+     * Checks whether the end node is reachable from the start node.
+     *
+     * @param start the index of the starting node
+     * @param end   the index of the ending node
+     * @return true if a path exists
+     */
+    public boolean isReachable(int start, int end) {
+        return nextHop[start * n + end] != NONE;
+    }
+
+    /**
+     * Returns the length of a shortest path in edges.
+     *
+     * @param start the index of the starting node
+     * @param end   the index of the ending node
+     * @return the number of sequence flows on a shortest path, or -1 if the end node is unreachable
+     */
+    public int distance(int start, int end) {
+        if (!isReachable(start, end)) return -1;
+        int d = 0;
+        for (int cur = start; cur != end; cur = nextHop[cur * n + end]) d++;
+        return d;
+    }
+
+    /**
+     * Returns a shortest path by walking the first-hop table.
+     *
+     * @param start the index of the starting node
+     * @param end   the index of the ending node
+     * @return the flow node IDs of a shortest path from start to end, or an empty list if no path exists
+     */
+    public List<String> path(int start, int end) {
+        int d = distance(start, end);
+        if (d < 0) return Collections.emptyList();
+        String[] path = new String[d + 1];
+        int cur = start;
+        for (int i = 0; i < d; i++, cur = nextHop[cur * n + end]) path[i] = graph.idOf(cur);
+        path[d] = graph.idOf(end);
+        return Collections.unmodifiableList(Arrays.asList(path));
+    }
+
+    /**
+     * Returns the approximate heap size of the table.
+     *
+     * @return the size of the table in bytes
+     */
+    public long memoryBytes() {
+        return 2L * nextHop.length;
+    }
+}
@@ -1,28 +1,94 @@
 package com.CamundaEnver;
 
+import org.apache.http.Header;
 import org.apache.http.HttpEntity;
-import org.apache.http.HttpResponse;
-import org.apache.http.client.HttpRequestRetryHandler;
+import org.apache.http.HttpHeaders;
+import org.apache.http.HttpStatus;
 import org.apache.http.client.config.RequestConfig;
+import org.apache.http.client.methods.CloseableHttpResponse;
 import org.apache.http.client.methods.HttpGet;
 import org.apache.http.impl.client.CloseableHttpClient;
 import org.apache.http.impl.client.HttpClients;
-import java.io.Closeable;
+import org.apache.http.util.EntityUtils;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
 import java.io.IOException;
 import java.io.InputStream;
+import java.io.InterruptedIOException;
+import java.io.SequenceInputStream;
+import java.net.URI;
+import java.net.URLEncoder;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.SynchronousQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
 import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.function.Consumer;
+import java.util.function.Supplier;
 
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
 import com.fasterxml.jackson.databind.JsonNode;
 
 /**
  * Fetches BPMN XML from a remote HTTP endpoint.
- * This class implements Runnable and Closeable interfaces to allow
+ * This class implements Runnable and {@link BpmnSource} interfaces to allow
  * for execution in a separate thread and proper resource management.
+ * <p>
+ * The fetcher remembers the ETag and Last-Modified validators of the last successful response
+ * and sends them as If-None-Match and If-Modified-Since on the next request, so that an unchanged
+ * definition is answered with 304 Not Modified instead of the full payload.
+ * <p>
+ * Failed requests are retried according to a {@link RetryPolicy}: I/O errors as well as 429 and 503 responses
+ * are retried with exponential backoff and full jitter, honouring {@code Retry-After}, within an optional
+ * total deadline across all attempts. Every attempt also passes through a {@link CircuitBreaker}: while it is open,
+ * requests are not sent at all and fail at once with {@link CircuitBreaker.OpenException}.
+ * <p>
+ * With a {@link HedgePolicy}, an attempt that is still unanswered after a percentile of the observed latencies
+ * is hedged with a second, identical request; the first answer is taken and the other request is cancelled.
+ * Blocking fetches send the original request on the calling thread and their hedges on a bounded pool of
+ * {@code HTTP_HEDGE_MAX_THREADS} daemon threads (default 16). No hedge is sent while that pool is saturated or
+ * the circuit breaker is not closed, so that hedging does not multiply the load on a struggling endpoint.
+ * <p>
+ * A fetcher created through {@link #forDefinitionId} loads a definition by its process definition ID.
+ * Camunda never changes a deployed definition, so once such a fetcher has fetched the definition,
+ * conditional fetches report it as unchanged without sending any request.
+ * <p>
+ * The {@code *Async} methods send the request through the non-blocking JDK {@link HttpClient} instead,
+ * so that no caller thread waits for the network round trip; the response is parsed on the
+ * client's executor once it has arrived.
  */
-public class ApacheBpmnFetcher implements Runnable, Closeable {
+public class ApacheBpmnFetcher implements Runnable, BpmnSource {
+    // Threads sending the hedges of blocking fetches; idle threads exit after a minute, and no hedge is sent when all are busy
+    private static final ExecutorService HEDGE_EXECUTOR = new ThreadPoolExecutor(0,
+            Math.max(1, ConfigUtil.parseEnvOrProp("HTTP_HEDGE_MAX_THREADS", "http.hedge.max.threads", 16)),
+            60, TimeUnit.SECONDS, new SynchronousQueue<>(), r -> {
+                Thread t = new Thread(r, "bpmn-hedged-fetch");
+                t.setDaemon(true);
+                return t;
+            });
+
     private final CloseableHttpClient client; // HTTP client for making requests
+    private final boolean ownsClient; // Whether close() closes the client, false for shared clients
+    private final RequestConfig requestConfig; // Timeouts applied to every request of this fetcher
     private final String url; // URL of the remote endpoint to fetch BPMN XML from
+    private final int timeoutMs; // Timeout in milliseconds for asynchronous requests
+    private final RetryPolicy retryPolicy; // Decides whether and when failed requests are retried
+    private final CircuitBreaker circuitBreaker; // Skips requests while the endpoint is failing, null if disabled
+    private final HedgePolicy hedgePolicy; // Decides when slow requests are hedged, null if disabled
+    private final boolean immutable; // Whether the definition never changes, so that a fetched copy is never revalidated
     private final AtomicBoolean closed = new AtomicBoolean(false); // Flag to track if the client is closed
+    private volatile Validators validators; // Validators and content of the last successful response, null until then
+    private volatile HttpClient asyncClient; // Non-blocking client for the asynchronous methods, created on first use
 
     /**
      * Constructs an ApacheBpmnFetcher with the specified URL, timeout, and maximum retries.
@@ -32,41 +98,698 @@ public class ApacheBpmnFetcher implements Runnable, Closeable {
      * @param maxRetries the maximum number of retries for failed requests
      */
     public ApacheBpmnFetcher(String url, int timeoutMs, int maxRetries) {
-        RequestConfig config = RequestConfig.custom()
-                .setConnectTimeout(timeoutMs)
-                .setSocketTimeout(timeoutMs)
-                .setConnectionRequestTimeout(timeoutMs)
-                .build();
-        HttpRequestRetryHandler retryHandler = (ex, count, ctx) -> count <= maxRetries && ex instanceof IOException;
+        this(url, timeoutMs, RetryPolicy.fromDefaults(maxRetries));
+    }
+
+    /**
+     * Constructs an ApacheBpmnFetcher with the specified URL, timeout, and retry policy.
+     *
+     * @param url         the URL to fetch the BPMN XML from
+     * @param timeoutMs   the timeout in milliseconds for the HTTP requests
+     * @param retryPolicy decides whether and when failed requests are retried
+     */
+    public ApacheBpmnFetcher(String url, int timeoutMs, RetryPolicy retryPolicy) {
+        this(url, timeoutMs, retryPolicy, CircuitBreaker.fromDefaults());
+    }
+
+    /**
+     * Constructs an ApacheBpmnFetcher with the specified URL, timeout, retry policy and circuit breaker.
+     *
+     * @param url            the URL to fetch the BPMN XML from
+     * @param timeoutMs      the timeout in milliseconds for the HTTP requests
+     * @param retryPolicy    decides whether and when failed requests are retried
+     * @param circuitBreaker the circuit breaker guarding the endpoint, possibly shared with other fetchers, or null for none
+     */
+    public ApacheBpmnFetcher(String url, int timeoutMs, RetryPolicy retryPolicy, CircuitBreaker circuitBreaker) {
+        this(url, timeoutMs, retryPolicy, circuitBreaker, HedgePolicy.fromDefaults());
+    }
+
+    /**
+     * Constructs an ApacheBpmnFetcher with the specified URL, timeout, retry policy, circuit breaker and hedge policy.
+     *
+     * @param url            the URL to fetch the BPMN XML from
+     * @param timeoutMs      the timeout in milliseconds for the HTTP requests
+     * @param retryPolicy    decides whether and when failed requests are retried
+     * @param circuitBreaker the circuit breaker guarding the endpoint, possibly shared with other fetchers, or null for none
+     * @param hedgePolicy    decides when slow requests are hedged, possibly shared with other fetchers, or null for no hedging
+     */
+    public ApacheBpmnFetcher(String url, int timeoutMs, RetryPolicy retryPolicy, CircuitBreaker circuitBreaker, HedgePolicy hedgePolicy) {
+        this(url, timeoutMs, retryPolicy, circuitBreaker, hedgePolicy, false);
+    }
+
+    private ApacheBpmnFetcher(String url, int timeoutMs, RetryPolicy retryPolicy, CircuitBreaker circuitBreaker,
+                              HedgePolicy hedgePolicy, boolean immutable) {
+        RequestConfig config = requestConfig(timeoutMs);
+        // Retries are made by this fetcher according to the retry policy, not by the client
         this.client = HttpClients.custom()
                 .setDefaultRequestConfig(config)
-                .setRetryHandler(retryHandler)
+                .disableAutomaticRetries()
                 .build();
+        this.ownsClient = true;
+        this.requestConfig = config;
+        this.url = url;
+        this.timeoutMs = timeoutMs;
+        this.retryPolicy = retryPolicy;
+        this.circuitBreaker = circuitBreaker;
+        this.hedgePolicy = hedgePolicy;
+        this.immutable = immutable;
+    }
+
+    /**
+     * Constructs an ApacheBpmnFetcher that sends its requests through a shared, pooled client.
+     * Retries, circuit breaking and hedging follow the configuration of the shared client; closing this fetcher leaves the shared client open.
+     *
+     * @param url       the URL to fetch the BPMN XML from
+     * @param timeoutMs the timeout in milliseconds for the HTTP requests
+     * @param shared    the shared client to send requests through
+     */
+    public ApacheBpmnFetcher(String url, int timeoutMs, SharedHttpClient shared) {
+        this(url, timeoutMs, shared, false);
+    }
+
+    private ApacheBpmnFetcher(String url, int timeoutMs, SharedHttpClient shared, boolean immutable) {
+        this.client = shared.client();
+        this.ownsClient = false;
+        this.requestConfig = requestConfig(timeoutMs);
         this.url = url;
+        this.timeoutMs = timeoutMs;
+        this.retryPolicy = shared.retryPolicy();
+        this.circuitBreaker = shared.circuitBreaker();
+        this.hedgePolicy = shared.hedgePolicy();
+        this.immutable = immutable;
+    }
+
+    /**
+     * Creates a fetcher for the definition with the given process definition ID,
+     * fetched from {@code /process-definition/{id}/xml} of the engine REST API.
+     * The definition is treated as immutable: it is never revalidated once fetched.
+     *
+     * @param restUrl      the base URL of the engine REST API, for example {@code https://host/engine-rest}
+     * @param definitionId the process definition ID, for example {@code invoice:2:c3a63aaa-2046-11e7-8f94-34f39ab71d4e}
+     * @param timeoutMs    the timeout in milliseconds for the HTTP requests
+     * @param maxRetries   the maximum number of retries for failed requests
+     * @return a new fetcher
+     */
+    public static ApacheBpmnFetcher forDefinitionId(String restUrl, String definitionId, int timeoutMs, int maxRetries) {
+        return new ApacheBpmnFetcher(definitionIdUrl(restUrl, definitionId), timeoutMs, RetryPolicy.fromDefaults(maxRetries),
+                CircuitBreaker.fromDefaults(), HedgePolicy.fromDefaults(), true);
+    }
+
+    /**
+     * Creates a fetcher for the definition with the given process definition ID that sends its requests
+     * through a shared, pooled client. The definition is treated as immutable: it is never revalidated once fetched.
+     *
+     * @param restUrl      the base URL of the engine REST API, for example {@code https://host/engine-rest}
+     * @param definitionId the process definition ID
+     * @param timeoutMs    the timeout in milliseconds for the HTTP requests
+     * @param shared       the shared client to send requests through
+     * @return a new fetcher
+     */
+    public static ApacheBpmnFetcher forDefinitionId(String restUrl, String definitionId, int timeoutMs, SharedHttpClient shared) {
+        return new ApacheBpmnFetcher(definitionIdUrl(restUrl, definitionId), timeoutMs, shared, true);
+    }
+
+    private static String definitionIdUrl(String restUrl, String definitionId) {
+        String base = restUrl.endsWith("/") ? restUrl.substring(0, restUrl.length() - 1) : restUrl;
+        return base + "/process-definition/" + URLEncoder.encode(definitionId, StandardCharsets.UTF_8).replace("+", "%20") + "/xml";
+    }
+
+    private static RequestConfig requestConfig(int timeoutMs) {
+        return RequestConfig.custom()
+                .setConnectTimeout(timeoutMs)
+                .setSocketTimeout(timeoutMs)
+                .setConnectionRequestTimeout(timeoutMs)
+                .build();
+    }
+
+    /**
+     * Returns the URL this fetcher retrieves the BPMN XML from.
+     *
+     * @return the definition URL
+     */
+    public String url() {
+        return url;
+    }
+
+    /**
+     * Returns the identifier of this source.
+     *
+     * @return the definition URL
+     */
+    @Override
+    public String id() {
+        return url;
+    }
+
+    /**
+     * Checks whether this fetcher loads a definition by its process definition ID, which never changes.
+     *
+     * @return true if the fetcher was created through {@link #forDefinitionId}
+     */
+    @Override
+    public boolean isImmutable() {
+        return immutable;
+    }
+
+    /**
+     * Returns the ETag of the last successful response.
+     *
+     * @return the ETag, or null if nothing has been fetched yet or the response had none
+     */
+    String etag() {
+        Validators v = validators;
+        return v != null ? v.etag() : null;
+    }
+
+    /**
+     * Returns the Last-Modified header of the last successful response.
+     *
+     * @return the Last-Modified value, or null if nothing has been fetched yet or the response had none
+     */
+    String lastModified() {
+        Validators v = validators;
+        return v != null ? v.lastModified() : null;
+    }
+
+    /**
+     * Seeds the validators of a fetcher that has not fetched anything yet, for example from a persisted copy
+     * of the definition, so that the next conditional fetch can be answered with 304 Not Modified.
+     *
+     * @param etag         the ETag of the persisted response, or null if absent
+     * @param lastModified the Last-Modified header of the persisted response, or null if absent
+     */
+    synchronized void seedValidators(String etag, String lastModified) {
+        if (validators == null) validators = new Validators(etag, lastModified, null);
     }
 
     /**
      * Fetches the BPMN XML from the specified URL.
+     * If the server reports that the definition has not changed since the last fetch,
+     * the previously fetched XML is returned without downloading it again.
      *
      * @return the BPMN XML as a String
      * @throws IOException if an error occurs during the HTTP request or if the response is invalid
      */
     public String fetchXml() throws IOException {
+        Validators v = validators;
+        if (v != null && v.xml() == null) v = null; // The last content was streamed and not retained
+        String xml = fetchString(v);
+        return xml != null ? xml : v.xml();
+    }
+
+    /**
+     * Fetches the BPMN XML from the specified URL unless it is unchanged since the last successful fetch.
+     *
+     * @return the BPMN XML as a String, or null if the server answered 304 Not Modified
+     * @throws IOException if an error occurs during the HTTP request or if the response is invalid
+     */
+    public String fetchXmlIfModified() throws IOException {
+        return fetchString(validators);
+    }
+
+    /**
+     * Fetches the BPMN XML from the specified URL and streams it into the given parser.
+     * The XML is decoded directly from the response body, without building a JSON tree
+     * or a String holding the whole definition.
+     *
+     * @param parser the parser that consumes the BPMN XML
+     * @param <T>    the type of the parsed result
+     * @return the result of the parser
+     * @throws IOException if an error occurs during the HTTP request, if the response is invalid or if parsing fails
+     */
+    @Override
+    public <T> T fetch(BpmnStreamParser<T> parser) throws IOException {
+        return fetchStreamed(null, parser);
+    }
+
+    /**
+     * Streams the BPMN XML into the given parser unless it is unchanged since the last successful fetch.
+     *
+     * @param parser the parser that consumes the BPMN XML
+     * @param <T>    the type of the parsed result
+     * @return the result of the parser, or null if the server answered 304 Not Modified
+     * @throws IOException if an error occurs during the HTTP request, if the response is invalid or if parsing fails
+     */
+    @Override
+    public <T> T fetchIfModified(BpmnStreamParser<T> parser) throws IOException {
+        return fetchStreamed(validators, parser);
+    }
+
+    /**
+     * Fetches the BPMN XML asynchronously.
+     * If the server reports that the definition has not changed since the last fetch,
+     * the future completes with the previously fetched XML.
+     *
+     * @return a future completing with the BPMN XML, or exceptionally with an IOException
+     * if the HTTP request fails or the response is invalid
+     */
+    public CompletableFuture<String> fetchXmlAsync() {
+        Validators v = validators;
+        Validators conditional = v != null && v.xml() != null ? v : null; // Streamed content was not retained
+        return fetchStringAsync(conditional).thenApply(xml -> xml != null ? xml : conditional.xml());
+    }
+
+    /**
+     * Fetches the BPMN XML asynchronously and parses it with the given parser.
+     *
+     * @param parser the parser that consumes the BPMN XML
+     * @param <T>    the type of the parsed result
+     * @return a future completing with the result of the parser, or exceptionally with an IOException
+     * if the HTTP request fails, the response is invalid or parsing fails
+     */
+    @Override
+    public <T> CompletableFuture<T> fetchAsync(BpmnStreamParser<T> parser) {
+        return fetchStreamedAsync(null, parser);
+    }
+
+    /**
+     * Fetches the BPMN XML asynchronously and parses it with the given parser unless it is unchanged
+     * since the last successful fetch.
+     *
+     * @param parser the parser that consumes the BPMN XML
+     * @param <T>    the type of the parsed result
+     * @return a future completing with the result of the parser, or with null if the server answered 304 Not Modified
+     */
+    @Override
+    public <T> CompletableFuture<T> fetchIfModifiedAsync(BpmnStreamParser<T> parser) {
+        return fetchStreamedAsync(validators, parser);
+    }
+
+    private String fetchString(Validators v) throws IOException {
+        Fetched<String> f = execute(v, xml -> new String(xml.readAllBytes(), StandardCharsets.UTF_8));
+        if (f == null) return null;
+        validators = new Validators(f.etag(), f.lastModified(), f.value());
+        return f.value();
+    }
+
+    private <T> T fetchStreamed(Validators v, BpmnStreamParser<T> parser) throws IOException {
+        Fetched<T> f = execute(v, parser);
+        if (f == null) return null;
+        // Validators are only recorded once the parser has succeeded, so a failed parse is retried in full
+        validators = new Validators(f.etag(), f.lastModified(), null);
+        return f.value();
+    }
+
+    private CompletableFuture<String> fetchStringAsync(Validators v) {
+        return executeAsync(v, xml -> new String(xml.readAllBytes(), StandardCharsets.UTF_8)).thenApply(f -> {
+            if (f == null) return null;
+            validators = new Validators(f.etag(), f.lastModified(), f.value());
+            return f.value();
+        });
+    }
+
+    private <T> CompletableFuture<T> fetchStreamedAsync(Validators v, BpmnStreamParser<T> parser) {
+        return executeAsync(v, parser).thenApply(f -> {
+            if (f == null) return null;
+            validators = new Validators(f.etag(), f.lastModified(), null);
+            return f.value();
+        });
+    }
+
+    /**
+     * Performs a conditional GET using the given validators and streams the bpmn20Xml field into the parser.
+     *
+     * @param v      the validators of the last successful response, or null for an unconditional request
+     * @param parser the parser that consumes the BPMN XML
+     * @param <T>    the type of the parsed result
+     * @return the parsed result with the validators of the response, or null if v is not null and the server answered 304 Not Modified
+     * @throws IOException if an error occurs during the HTTP request, if the response is invalid or if parsing fails
+     */
+    private <T> Fetched<T> execute(Validators v, BpmnStreamParser<T> parser) throws IOException {
+        if (v != null && immutable) return null; // A definition fetched by ID cannot have changed
+        return executeWithRetries(v, body -> parser.parse(openXmlField(body)));
+    }
+
+    /**
+     * Sends a GET request for a JSON document of the engine REST API through a shared client and parses the response.
+     * The request is retried, guarded by the circuit breaker and hedged like the definition fetches of that client.
+     *
+     * @param url       the URL of the JSON document
+     * @param timeoutMs the timeout in milliseconds for the HTTP requests
+     * @param shared    the shared client to send the request through
+     * @return the parsed document
+     * @throws IOException if the request fails after all retries, if the circuit breaker rejected it or if the response is invalid
+     */
+    static JsonNode fetchJson(String url, int timeoutMs, SharedHttpClient shared) throws IOException {
+        return new ApacheBpmnFetcher(url, timeoutMs, shared).executeWithRetries(null, JsonUtil.MAPPER::readTree).value();
+    }
+
+    /**
+     * Performs a conditional GET using the given validators, retrying failed attempts according to the retry policy.
+     *
+     * @param v          the validators of the last successful response, or null for an unconditional request
+     * @param bodyParser the parser that consumes the response body
+     * @param <T>        the type of the parsed result
+     * @return the parsed result with the validators of the response, or null if the server answered 304 Not Modified
+     * @throws IOException if the request fails after all retries, if the response is invalid or if parsing fails
+     */
+    private <T> Fetched<T> executeWithRetries(Validators v, BpmnStreamParser<T> bodyParser) throws IOException {
+        long deadline = retryPolicy.deadlineFrom(System.currentTimeMillis());
+        for (int retry = 0; ; retry++) {
+            try {
+                return executeOnce(v, bodyParser, deadline);
+            } catch (RetryableException e) {
+                long delay = retryPolicy.delayMillis(retry, e.retryAfterMs, System.currentTimeMillis(), deadline);
+                if (delay < 0) throw e.failure();
+                try {
+                    Thread.sleep(delay);
+                } catch (InterruptedException ie) {
+                    Thread.currentThread().interrupt();
+                    throw new InterruptedIOException("Interrupted while waiting to retry " + url);
+                }
+            }
+        }
+    }
+
+    /**
+     * Performs a single attempt of {@link #executeWithRetries}.
+     *
+     * @param v          the validators of the last successful response, or null for an unconditional request
+     * @param bodyParser the parser that consumes the response body
+     * @param deadline   the time by which the attempt must end, in milliseconds since the epoch
+     * @param <T>        the type of the parsed result
+     * @return the parsed result with the validators of the response, or null if the server answered 304 Not Modified
+     * @throws RetryableException if the request failed with an I/O error or an overload status
+     * @throws CircuitBreaker.OpenException if the circuit breaker rejected the request
+     * @throws IOException if the response is invalid or if parsing fails
+     */
+    private <T> Fetched<T> executeOnce(Validators v, BpmnStreamParser<T> bodyParser, long deadline) throws IOException {
+        if (circuitBreaker != null && !circuitBreaker.tryAcquire()) throw new CircuitBreaker.OpenException(url);
+        CloseableHttpResponse response = hedgePolicy == null ? send(newGet(v, deadline)) : sendHedged(v, deadline);
+        try (CloseableHttpResponse resp = response) {
+            int code = resp.getStatusLine().getStatusCode();
+            if (code == HttpStatus.SC_NOT_MODIFIED && v != null) return null;
+            if (code != 200) {
+                EntityUtils.consumeQuietly(resp.getEntity());
+                IOException failure = new IOException("HTTP " + code);
+                if (RetryPolicy.isRetryableStatus(code)) {
+                    throw new RetryableException(failure,
+                            RetryPolicy.retryAfterMillis(headerValue(resp, HttpHeaders.RETRY_AFTER), System.currentTimeMillis()));
+                }
+                throw failure;
+            }
+            HttpEntity entity = resp.getEntity();
+            if (entity == null) throw new IOException("Empty response");
+            try (InputStream is = entity.getContent()) {
+                T value = bodyParser.parse(is);
+                return new Fetched<>(value, headerValue(resp, HttpHeaders.ETAG), headerValue(resp, HttpHeaders.LAST_MODIFIED));
+            }
+        }
+    }
+
+    private HttpGet newGet(Validators v, long deadline) {
         HttpGet get = new HttpGet(url);
+        get.setConfig(attemptConfig(deadline));
         get.addHeader("Accept", "application/json");
-        HttpResponse resp = client.execute(get);
-        int code = resp.getStatusLine().getStatusCode();
-        if (code != 200) throw new IOException("HTTP " + code);
-        HttpEntity entity = resp.getEntity();
-        if (entity == null) throw new IOException("Empty response");
-        try (InputStream is = entity.getContent()) {
-            JsonNode root = JsonUtil.MAPPER.readTree(is);
-            JsonNode xmlNode = root.get("bpmn20Xml");
-            if (xmlNode == null) throw new IOException("Missing bpmn20Xml field");
-            return xmlNode.asText();
+        if (v != null) {
+            if (v.etag() != null) get.addHeader(HttpHeaders.IF_NONE_MATCH, v.etag());
+            if (v.lastModified() != null) get.addHeader(HttpHeaders.IF_MODIFIED_SINCE, v.lastModified());
+        }
+        return get;
+    }
+
+    /**
+     * Sends a request that the circuit breaker has permitted and records its outcome.
+     *
+     * @param get the request to send
+     * @return the response, which the caller must close
+     * @throws RetryableException if the request failed with an I/O error
+     * @throws IOException if the request was aborted
+     */
+    private CloseableHttpResponse send(HttpGet get) throws IOException {
+        long start = System.nanoTime();
+        CloseableHttpResponse resp;
+        try {
+            resp = client.execute(get);
+        } catch (IOException e) {
+            if (get.isAborted()) {
+                // Cancelled as the losing request of a hedged pair, which says nothing about the endpoint
+                if (circuitBreaker != null) circuitBreaker.release();
+                throw e;
+            }
+            recordOutcome(true, start);
+            throw new RetryableException(e, -1);
+        }
+        recordOutcome(isFailureStatus(resp.getStatusLine().getStatusCode()), start);
+        return resp;
+    }
+
+    /**
+     * Sends a request that the circuit breaker has permitted, hedging it according to the hedge policy.
+     * The original request is sent on the calling thread and aborted if the hedge answers first;
+     * the hedge is sent on the hedge executor, unless all of its threads are busy.
+     *
+     * @param v        the validators of the last successful response, or null for an unconditional request
+     * @param deadline the time by which the attempt must end, in milliseconds since the epoch
+     * @return the first response, which the caller must close
+     * @throws RetryableException if every request sent failed with an I/O error
+     * @throws InterruptedIOException if the calling thread was interrupted while waiting
+     */
+    private CloseableHttpResponse sendHedged(Validators v, long deadline) throws IOException {
+        HttpGet first = newGet(v, deadline);
+        CompletableFuture<CloseableHttpResponse> original = cancellable(first);
+        CompletableFuture<CloseableHttpResponse> answer = new HedgedCall<CloseableHttpResponse>(() -> {
+            HttpGet get = newGet(v, deadline);
+            CompletableFuture<CloseableHttpResponse> attempt = cancellable(get);
+            try {
+                HEDGE_EXECUTOR.execute(() -> sendInto(get, attempt));
+            } catch (RejectedExecutionException e) {
+                // Every hedge thread is busy, as happens when the endpoint is slow for everyone
+                return null;
+            }
+            return attempt;
+        }, ApacheBpmnFetcher::closeQuietly).start(original);
+        sendInto(first, original);
+        try {
+            return answer.get();
+        } catch (InterruptedException e) {
+            answer.cancel(true);
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException("Interrupted while fetching " + url);
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof IOException io) throw io;
+            throw new IOException(e.getCause());
         }
     }
 
+    /**
+     * Returns a future for the response to a request, whose cancellation aborts the request.
+     */
+    private static CompletableFuture<CloseableHttpResponse> cancellable(HttpGet get) {
+        CompletableFuture<CloseableHttpResponse> attempt = new CompletableFuture<>();
+        attempt.whenComplete((resp, ex) -> {
+            if (attempt.isCancelled()) get.abort();
+        });
+        return attempt;
+    }
+
+    /**
+     * Sends a request and completes its future with the outcome, closing a response that is no longer wanted.
+     */
+    private void sendInto(HttpGet get, CompletableFuture<CloseableHttpResponse> attempt) {
+        try {
+            CloseableHttpResponse resp = send(get);
+            if (!attempt.complete(resp)) closeQuietly(resp);
+        } catch (IOException | RuntimeException e) {
+            attempt.completeExceptionally(e);
+        }
+    }
+
+    private static void closeQuietly(CloseableHttpResponse resp) {
+        try {
+            resp.close();
+        } catch (IOException ignored) {
+        }
+    }
+
+    /**
+     * Records the outcome of an attempt with the circuit breaker, if any, and the latency of an answered attempt
+     * with the hedge policy, if any.
+     *
+     * @param failed     whether the attempt failed
+     * @param startNanos the value of {@link System#nanoTime()} when the attempt was sent
+     */
+    private void recordOutcome(boolean failed, long startNanos) {
+        long elapsedMs = (System.nanoTime() - startNanos) / 1_000_000;
+        if (circuitBreaker != null) circuitBreaker.record(failed, elapsedMs);
+        if (hedgePolicy != null && !failed) hedgePolicy.recordLatency(elapsedMs);
+    }
+
+    /**
+     * Checks whether a response status shows that the server, rather than the request, is at fault.
+     */
+    private static boolean isFailureStatus(int code) {
+        return code == 429 || code >= 500;
+    }
+
+    /**
+     * Returns the request configuration of one attempt, with timeouts shortened so that the attempt ends by the deadline.
+     */
+    private RequestConfig attemptConfig(long deadline) {
+        long remaining = deadline - System.currentTimeMillis();
+        if (remaining >= timeoutMs) return requestConfig;
+        int t = (int) Math.max(1, remaining);
+        return RequestConfig.copy(requestConfig)
+                .setConnectTimeout(t)
+                .setSocketTimeout(t)
+                .setConnectionRequestTimeout(t)
+                .build();
+    }
+
+    /**
+     * Asynchronous counterpart of {@link #execute}. The body is received into memory without blocking
+     * and parsed on the HTTP client's executor.
+     *
+     * @param v      the validators of the last successful response, or null for an unconditional request
+     * @param parser the parser that consumes the BPMN XML
+     * @param <T>    the type of the parsed result
+     * @return a future completing with the parsed result and the validators of the response, or with null
+     * if v is not null and the server answered 304 Not Modified
+     */
+    private <T> CompletableFuture<Fetched<T>> executeAsync(Validators v, BpmnStreamParser<T> parser) {
+        if (v != null && immutable) return CompletableFuture.completedFuture(null); // A definition fetched by ID cannot have changed
+        HttpRequest.Builder request = HttpRequest.newBuilder(URI.create(url))
+                .timeout(Duration.ofMillis(timeoutMs))
+                .header("Accept", "application/json")
+                .GET();
+        if (v != null) {
+            if (v.etag() != null) request.header(HttpHeaders.IF_NONE_MATCH, v.etag());
+            if (v.lastModified() != null) request.header(HttpHeaders.IF_MODIFIED_SINCE, v.lastModified());
+        }
+        return sendAsync(request.build(), 0, retryPolicy.deadlineFrom(System.currentTimeMillis())).thenApply(resp -> {
+            int code = resp.statusCode();
+            if (code == HttpStatus.SC_NOT_MODIFIED && v != null) return null;
+            if (code != 200) throw new CompletionException(new IOException("HTTP " + code));
+            try {
+                T value = parser.parse(openXmlField(new ByteArrayInputStream(resp.body())));
+                return new Fetched<>(value,
+                        resp.headers().firstValue(HttpHeaders.ETAG).orElse(null),
+                        resp.headers().firstValue(HttpHeaders.LAST_MODIFIED).orElse(null));
+            } catch (IOException e) {
+                throw new CompletionException(e);
+            }
+        });
+    }
+
+    /**
+     * Sends a request asynchronously, retrying it according to the retry policy like the blocking methods do.
+     * Waiting for a retry does not block any thread. Once the retries are exhausted, the last overload response
+     * is returned as is, for the caller to report.
+     *
+     * @param request  the request to send
+     * @param retry    the number of retries already made
+     * @param deadline the time by which all attempts must end, in milliseconds since the epoch
+     * @return a future completing with the response
+     */
+    private CompletableFuture<HttpResponse<byte[]>> sendAsync(HttpRequest request, int retry, long deadline) {
+        if (circuitBreaker != null && !circuitBreaker.tryAcquire()) {
+            return CompletableFuture.failedFuture(new CircuitBreaker.OpenException(url));
+        }
+        long now = System.currentTimeMillis();
+        HttpRequest attempt = deadline - now >= timeoutMs
+                ? request
+                : HttpRequest.newBuilder(request, (name, value) -> true).timeout(Duration.ofMillis(Math.max(1, deadline - now))).build();
+        CompletableFuture<HttpResponse<byte[]>> response = hedgePolicy == null
+                ? sendAttemptAsync(attempt)
+                : new HedgedCall<HttpResponse<byte[]>>(() -> sendAttemptAsync(attempt), resp -> {}).start(sendAttemptAsync(attempt));
+        return response
+                .handle((resp, ex) -> {
+                    Throwable cause = ex instanceof CompletionException && ex.getCause() != null ? ex.getCause() : ex;
+                    long retryAfterMs = -1;
+                    if (ex == null) {
+                        if (!RetryPolicy.isRetryableStatus(resp.statusCode())) return CompletableFuture.completedFuture(resp);
+                        retryAfterMs = RetryPolicy.retryAfterMillis(
+                                resp.headers().firstValue(HttpHeaders.RETRY_AFTER).orElse(null), System.currentTimeMillis());
+                    } else if (!(cause instanceof IOException)) {
+                        return CompletableFuture.<HttpResponse<byte[]>>failedFuture(cause);
+                    }
+                    long delay = retryPolicy.delayMillis(retry, retryAfterMs, System.currentTimeMillis(), deadline);
+                    if (delay < 0) {
+                        return ex == null ? CompletableFuture.completedFuture(resp) : CompletableFuture.<HttpResponse<byte[]>>failedFuture(cause);
+                    }
+                    return CompletableFuture.runAsync(() -> {}, CompletableFuture.delayedExecutor(delay, TimeUnit.MILLISECONDS))
+                            .thenCompose(ignored -> sendAsync(request, retry + 1, deadline));
+                })
+                .thenCompose(f -> f);
+    }
+
+    /**
+     * Sends a single request that the circuit breaker has permitted and records its outcome.
+     * Cancelling the returned future cancels the request.
+     *
+     * @param attempt the request to send
+     * @return a future completing with the response
+     */
+    private CompletableFuture<HttpResponse<byte[]>> sendAttemptAsync(HttpRequest attempt) {
+        long start = System.nanoTime();
+        CompletableFuture<HttpResponse<byte[]>> response = asyncClient().sendAsync(attempt, HttpResponse.BodyHandlers.ofByteArray());
+        response.whenComplete((resp, ex) -> {
+            if (response.isCancelled()) {
+                // Cancelled as the losing request of a hedged pair, which says nothing about the endpoint
+                if (circuitBreaker != null) circuitBreaker.release();
+            } else {
+                recordOutcome(ex != null || isFailureStatus(resp.statusCode()), start);
+            }
+        });
+        return response;
+    }
+
+    private HttpClient asyncClient() {
+        HttpClient c = asyncClient;
+        if (c == null) {
+            synchronized (this) {
+                c = asyncClient;
+                if (c == null) {
+                    c = HttpClient.newBuilder()
+                            .connectTimeout(Duration.ofMillis(timeoutMs))
+                            .followRedirects(HttpClient.Redirect.NORMAL)
+                            .build();
+                    asyncClient = c;
+                }
+            }
+        }
+        return c;
+    }
+
+    /**
+     * Positions a JSON response body at the value of its bpmn20Xml field.
+     * Jackson is used to skip any preceding fields; the string value itself is not parsed by Jackson
+     * but decoded incrementally from the parser's read-ahead buffer followed by the rest of the body.
+     *
+     * @param is the JSON response body
+     * @return a stream of the UTF-8 encoded BPMN XML
+     * @throws IOException if the body is not a JSON object with a string bpmn20Xml field
+     */
+    static InputStream openXmlField(InputStream is) throws IOException {
+        try (JsonParser p = JsonUtil.MAPPER.getFactory().createParser(is)) {
+            p.disable(JsonParser.Feature.AUTO_CLOSE_SOURCE);
+            if (p.nextToken() != JsonToken.START_OBJECT) throw new IOException("Expected JSON object");
+            while (p.nextToken() == JsonToken.FIELD_NAME) {
+                String name = p.getCurrentName();
+                JsonToken value = p.nextToken();
+                if (!"bpmn20Xml".equals(name)) {
+                    p.skipChildren();
+                    continue;
+                }
+                if (value != JsonToken.VALUE_STRING) break;
+                // The string body is read lazily, so the parser has only consumed the opening quote so far
+                ByteArrayOutputStream buffered = new ByteArrayOutputStream();
+                if (p.releaseBuffered(buffered) < 0) {
+                    // Parsers that cannot hand back their read-ahead (e.g. non UTF-8 input) fall back to a copy
+                    return new ByteArrayInputStream(p.getText().getBytes(StandardCharsets.UTF_8));
+                }
+                return new JsonStringInputStream(
+                        new SequenceInputStream(new ByteArrayInputStream(buffered.toByteArray()), is));
+            }
+            throw new IOException("Missing bpmn20Xml field");
+        }
+    }
+
+    private static String headerValue(CloseableHttpResponse resp, String name) {
+        Header h = resp.getFirstHeader(name);
+        return h != null ? h.getValue() : null;
+    }
+
     /**
      * Runs the close method to release resources.
      */
@@ -77,15 +800,164 @@ public class ApacheBpmnFetcher implements Runnable, Closeable {
 
     /**
      * Closes the HTTP client and releases resources.
-     * Ensures that the client is only closed once.
+     * Ensures that the client is only closed once. A shared client is left open.
      */
     @Override
     public void close() {
-        if (closed.compareAndSet(false, true)) {
+        if (closed.compareAndSet(false, true) && ownsClient) {
             try {
                 client.close();
             } catch (IOException ignored) {
             }
         }
     }
+
+    /**
+     * A request hedged according to the hedge policy. The original attempt is sent at once; if it is still unanswered
+     * after the hedge delay, the circuit breaker is closed and grants a permit, an identical second attempt is sent.
+     * The call completes with the first answer, upon which the other attempt is cancelled, or exceptionally once every
+     * attempt sent has failed. An original attempt that fails before the hedge delay is reported at once, leaving it
+     * to the retry policy.
+     *
+     * @param <R> the type of the answer
+     */
+    private final class HedgedCall<R> {
+        private final CompletableFuture<R> result = new CompletableFuture<>(); // First answer of the attempts
+        private final Supplier<CompletableFuture<R>> hedgeAttempt; // Sends the hedge, or returns null if it cannot be sent
+        private final Consumer<R> discard; // Releases an answer that arrives after the other attempt's
+        private CompletableFuture<R> original; // The original attempt, guarded by this
+        private CompletableFuture<R> hedge; // The hedged attempt, null unless sent, guarded by this
+        private int pending; // Attempts sent whose outcome is outstanding, guarded by this
+        private boolean hedgeDecided; // Whether the hedged attempt has been sent or ruled out, guarded by this
+        private Throwable failure; // Failure of the attempt that failed last, guarded by this
+
+        /**
+         * Constructs a hedged call.
+         *
+         * @param hedgeAttempt sends a hedge whose permission the circuit breaker has granted and returns its future,
+         *                     whose cancellation cancels the request, or returns null if the hedge cannot be sent
+         * @param discard      releases an answer that lost the race
+         */
+        HedgedCall(Supplier<CompletableFuture<R>> hedgeAttempt, Consumer<R> discard) {
+            this.hedgeAttempt = hedgeAttempt;
+            this.discard = discard;
+        }
+
+        /**
+         * Watches the original attempt and schedules the hedge.
+         *
+         * @param first the future of the original attempt; cancelling it must cancel the request
+         * @return a future completing with the first answer
+         */
+        CompletableFuture<R> start(CompletableFuture<R> first) {
+            synchronized (this) {
+                pending = 1;
+                original = first;
+            }
+            watch(first, false);
+            CompletableFuture.delayedExecutor(hedgePolicy.delayMillis(), TimeUnit.MILLISECONDS).execute(this::sendHedge);
+            result.whenComplete((r, ex) -> cancelAttempts());
+            return result;
+        }
+
+        private void sendHedge() {
+            synchronized (this) {
+                if (hedgeDecided || result.isDone()) return;
+                hedgeDecided = true;
+                // A breaker that is not closed has seen the endpoint fail; a hedge would only add to its load
+                if (circuitBreaker != null
+                        && (circuitBreaker.state() != CircuitBreaker.State.CLOSED || !circuitBreaker.tryAcquire())) {
+                    return;
+                }
+                pending++;
+            }
+            CompletableFuture<R> second = hedgeAttempt.get();
+            if (second == null) {
+                if (circuitBreaker != null) circuitBreaker.release();
+                Throwable last;
+                synchronized (this) {
+                    last = --pending == 0 ? failure : null;
+                }
+                if (last != null) result.completeExceptionally(last);
+                return;
+            }
+            hedgePolicy.recordHedge();
+            synchronized (this) {
+                hedge = second;
+            }
+            if (result.isDone()) second.cancel(true);
+            watch(second, true);
+        }
+
+        private void watch(CompletableFuture<R> f, boolean hedged) {
+            f.whenComplete((r, ex) -> {
+                if (ex == null) {
+                    if (!result.complete(r)) {
+                        discard.accept(r);
+                    } else if (hedged) {
+                        hedgePolicy.recordHedgeWin();
+                    }
+                    return;
+                }
+                Throwable cause = ex instanceof CompletionException && ex.getCause() != null ? ex.getCause() : ex;
+                boolean last;
+                synchronized (this) {
+                    hedgeDecided = true;
+                    failure = cause;
+                    last = --pending == 0;
+                }
+                if (last) result.completeExceptionally(cause);
+            });
+        }
+
+        private void cancelAttempts() {
+            CompletableFuture<R> first, second;
+            synchronized (this) {
+                first = original;
+                second = hedge;
+            }
+            if (first != null) first.cancel(true);
+            if (second != null) second.cancel(true);
+        }
+    }
+
+    /**
+     * Failure of a single attempt that the retry policy may retry.
+     */
+    private static final class RetryableException extends IOException {
+        private static final long serialVersionUID = 1L;
+
+        final long retryAfterMs; // Delay requested by the server through Retry-After, -1 if none
+
+        RetryableException(IOException failure, long retryAfterMs) {
+            super(failure);
+            this.retryAfterMs = retryAfterMs;
+        }
+
+        /**
+         * Returns the failure to report once the attempts are given up.
+         */
+        IOException failure() {
+            return (IOException) getCause();
+        }
+    }
+
+    /**
+     * Cache validators of a successful response together with the content they validate.
+     *
+     * @param etag         the ETag header of the response, or null if absent
+     * @param lastModified the Last-Modified header of the response, or null if absent
+     * @param xml          the BPMN XML extracted from the response, or null if it was streamed and not retained
+     */
+    private record Validators(String etag, String lastModified, String xml) {}
+
+    /**
+     * Result of a successful fetch together with the validators of its response.
+     *
+     * @param value        the parsed result
+     * @param etag         the ETag header of the response, or null if absent
+     * @param lastModified the Last-Modified header of the response, or null if absent
+     * @param <T>          the type of the parsed result
+     */
+    private record Fetched<T>(T value, String etag, String lastModified) {}
 }
\ No newline at end of file
@@ -0,0 +1,259 @@
+package com.CamundaEnver;
+
+import java.io.Closeable;
+import java.io.FileNotFoundException;
+import java.io.IOException;
+import java.nio.file.ClosedWatchServiceException;
+import java.nio.file.FileSystems;
+import java.nio.file.Path;
+import java.nio.file.StandardWatchEventKinds;
+import java.nio.file.WatchEvent;
+import java.nio.file.WatchKey;
+import java.nio.file.WatchService;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeSet;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Keeps the compiled graphs of all definitions in a directory up to date as files are added, replaced or removed.
+ * Every definition key is served by its own session-mode {@link InvoicePathLibrary} over a {@link DirectoryBpmnSource}.
+ * A background thread listens to the directory through a {@link WatchService} and reloads only the definitions
+ * whose files changed; each reload publishes a new {@link ModelSnapshot}, so queries that already hold the previous
+ * snapshot finish on it while new queries see the new version.
+ * <p>
+ * Events are collected until the directory has been quiet for {@code BPMN_WATCH_DEBOUNCE_MS} (default 20), but
+ * for at most a second, so that a burst of writes to one file causes a single reload.
+ * <p>
+ * Files should be moved into the directory atomically. A definition that fails to parse, for example because its
+ * file is still being written, keeps its previous snapshot and is reloaded on the next change to the file.
+ * If events were lost and the directory cannot be listed to find out what changed, the known definitions are still
+ * checked, the failure is reported by {@link #lastScanFailure} and the watcher carries on.
+ */
+public final class BpmnDirectoryWatcher implements Closeable {
+    private static final long MAX_BATCH_NANOS = TimeUnit.SECONDS.toNanos(1); // Longest time events are collected before reloading
+
+    private final Path dir; // Directory holding the definitions
+    private final long debounceMs; // Quiet time after the last event before the changed definitions are reloaded
+    private final KeyLister lister; // Lists the definition keys present in the directory
+    private final WatchService watchService; // Delivers create, modify and delete events for the directory
+    private final Map<String, InvoicePathLibrary> libraries = new ConcurrentHashMap<>(); // Session per definition key
+    private final Map<String, Throwable> failures = new ConcurrentHashMap<>(); // Failure of the last reload per definition key
+    private final AtomicLong reloads = new AtomicLong(); // Reloads performed so far
+    private volatile Exception scanFailure; // Failure of the last directory listing after lost events, null if it succeeded
+    private final Thread thread; // Processes watch events until the watcher is closed
+
+    /**
+     * Lists the definition keys present in a directory; {@link DirectoryBpmnSource#keys} outside of tests.
+     */
+    @FunctionalInterface
+    interface KeyLister {
+        List<String> keys(Path dir) throws IOException;
+    }
+
+    private BpmnDirectoryWatcher(Path dir, long debounceMs, KeyLister lister) throws IOException {
+        this.dir = dir;
+        this.debounceMs = debounceMs;
+        this.lister = lister;
+        this.watchService = FileSystems.getDefault().newWatchService();
+        this.thread = new Thread(this::run, "bpmn-directory-watcher");
+        this.thread.setDaemon(true);
+    }
+
+    /**
+     * Loads every definition in a directory and starts watching it for changes.
+     * The directory is registered before it is scanned, so that no file written during startup is missed.
+     *
+     * @param dir the directory holding the definitions
+     * @return the running watcher
+     * @throws IOException if the directory cannot be watched or listed
+     */
+    public static BpmnDirectoryWatcher start(Path dir) throws IOException {
+        return start(dir, Math.max(0, ConfigUtil.parseEnvOrProp("BPMN_WATCH_DEBOUNCE_MS", "bpmn.watch.debounce.ms", 20)),
+                DirectoryBpmnSource::keys);
+    }
+
+    /**
+     * Loads every definition in a directory and starts watching it for changes.
+     *
+     * @param dir        the directory holding the definitions
+     * @param debounceMs the quiet time after the last event before the changed definitions are reloaded
+     * @param lister     lists the definition keys present in the directory
+     * @return the running watcher
+     * @throws IOException if the directory cannot be watched or listed
+     */
+    static BpmnDirectoryWatcher start(Path dir, long debounceMs, KeyLister lister) throws IOException {
+        BpmnDirectoryWatcher w = new BpmnDirectoryWatcher(dir, debounceMs, lister);
+        try {
+            dir.register(w.watchService, StandardWatchEventKinds.ENTRY_CREATE,
+                    StandardWatchEventKinds.ENTRY_MODIFY, StandardWatchEventKinds.ENTRY_DELETE);
+            for (String key : lister.keys(dir)) w.reload(key);
+        } catch (IOException | RuntimeException e) {
+            w.close();
+            throw e;
+        }
+        w.thread.start();
+        return w;
+    }
+
+    /**
+     * Returns the directory this watcher observes.
+     *
+     * @return the definition directory
+     */
+    public Path directory() {
+        return dir;
+    }
+
+    /**
+     * Returns the keys of the definitions currently served.
+     *
+     * @return the definition keys in alphabetical order
+     */
+    public List<String> keys() {
+        return List.copyOf(new TreeSet<>(libraries.keySet()));
+    }
+
+    /**
+     * Returns the session that serves the definition with the given key.
+     *
+     * @param key the process definition key
+     * @return the session, or null if the directory holds no definition with that key
+     */
+    public InvoicePathLibrary library(String key) {
+        return libraries.get(key);
+    }
+
+    /**
+     * Finds the shortest path between two nodes of the definition with the given key.
+     *
+     * @param key     the process definition key
+     * @param startId the ID of the starting node
+     * @param endId   the ID of the ending node
+     * @return a PathResult containing success status, message, and the path as a list of node IDs
+     * @throws FileNotFoundException if the directory holds no definition with that key
+     * @throws Exception if an error occurs during the loading or processing of the BPMN model
+     */
+    public InvoicePathLibrary.PathResult findPath(String key, String startId, String endId) throws Exception {
+        InvoicePathLibrary lib = libraries.get(key);
+        if (lib == null) throw new FileNotFoundException("No definition for key " + key + " in " + dir);
+        return lib.findPath(startId, endId);
+    }
+
+    /**
+     * Returns the failure of the most recent reload of the definition with the given key.
+     *
+     * @param key the process definition key
+     * @return the exception thrown by the last reload, or null if it succeeded
+     */
+    public Throwable lastReloadFailure(String key) {
+        return failures.get(key);
+    }
+
+    /**
+     * Returns the failure of the most recent attempt to list the directory after watch events were lost.
+     *
+     * @return the exception thrown by the last listing, or null if it succeeded or was never needed
+     */
+    public Exception lastScanFailure() {
+        return scanFailure;
+    }
+
+    /**
+     * Returns the number of definition reloads performed since the watcher started, including the initial loads.
+     *
+     * @return the reload count
+     */
+    public long reloadCount() {
+        return reloads.get();
+    }
+
+    /**
+     * Stops watching the directory and closes the sessions of all definitions.
+     */
+    @Override
+    public void close() {
+        thread.interrupt();
+        try {
+            watchService.close();
+        } catch (IOException ignored) {
+            // Nothing left to release
+        }
+        try {
+            // Waits for a reload in progress, so that it cannot add a session after the others are closed
+            if (thread != Thread.currentThread()) thread.join();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        libraries.values().forEach(InvoicePathLibrary::close);
+        libraries.clear();
+    }
+
+    private void run() {
+        try {
+            while (true) {
+                WatchKey wk = watchService.take();
+                long batchEnd = System.nanoTime() + MAX_BATCH_NANOS;
+                // Collects events until the directory is quiet, so that a burst of writes to one file causes a single reload
+                Set<String> changed = new LinkedHashSet<>();
+                boolean overflow = false;
+                do {
+                    for (WatchEvent<?> e : wk.pollEvents()) {
+                        if (e.kind() == StandardWatchEventKinds.OVERFLOW) {
+                            overflow = true;
+                        } else {
+                            String key = DirectoryBpmnSource.keyOf((Path) e.context());
+                            if (key != null) changed.add(key);
+                        }
+                    }
+                    // The directory itself is gone when the key can no longer be reset
+                    if (!wk.reset()) return;
+                } while ((wk = System.nanoTime() - batchEnd < 0
+                        ? watchService.poll(debounceMs, TimeUnit.MILLISECONDS)
+                        : watchService.poll()) != null);
+                if (overflow) {
+                    // Events were lost, so every known and present definition is checked
+                    changed.addAll(libraries.keySet());
+                    try {
+                        changed.addAll(lister.keys(dir));
+                        scanFailure = null;
+                    } catch (IOException | RuntimeException e) {
+                        // New files go unnoticed until their next event; the known definitions are still checked
+                        scanFailure = e;
+                    }
+                }
+                for (String key : changed) reload(key);
+            }
+        } catch (InterruptedException | ClosedWatchServiceException e) {
+            // The watcher has been closed
+        }
+    }
+
+    /**
+     * Brings the session of one definition in line with the directory: creates it for a new file,
+     * reloads it if the file changed and closes it if no file is left for the key.
+     * An unchanged file only revalidates the current snapshot without parsing it again.
+     *
+     * @param key the process definition key
+     */
+    private void reload(String key) {
+        reloads.incrementAndGet();
+        try {
+            if (DirectoryBpmnSource.fileOf(dir, key) == null) {
+                InvoicePathLibrary removed = libraries.remove(key);
+                if (removed != null) removed.close();
+                failures.remove(key);
+                return;
+            }
+            libraries.computeIfAbsent(key, k -> InvoicePathLibrary.session(new DirectoryBpmnSource(dir, k), 0)).refresh();
+            failures.remove(key);
+        } catch (IOException | RuntimeException e) {
+            // The session keeps its previous snapshot, if any, until the file changes again
+            failures.put(key, e);
+        }
+    }
+}
@@ -0,0 +1,78 @@
+package com.CamundaEnver;
+
+import javax.xml.stream.XMLInputFactory;
+import javax.xml.stream.XMLStreamConstants;
+import javax.xml.stream.XMLStreamException;
+import javax.xml.stream.XMLStreamReader;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * Compiles BPMN XML directly into a ProcessGraph using a StAX pull parser.
+ * Only flow node elements and the sourceRef/targetRef attributes of sequence flows are read;
+ * no DOM and no Camunda model instance is built, so parse time and memory depend on the
+ * number of flow nodes rather than on the size of the whole definition.
+ * <p>
+ * Edges are taken from sequence flows in document order. The Camunda model, which resolves
+ * {@code outgoing} child elements instead, remains available through {@link DefaultBpmnModelService}.
+ */
+public class BpmnGraphCompiler implements BpmnStreamParser<ProcessGraph> {
+    public static final String BPMN_NS = "http://www.omg.org/spec/BPMN/20100524/MODEL";
+
+    // Local names of all concrete BPMN element types that derive from flowNode
+    private static final Set<String> FLOW_NODES = Set.of(
+            "task", "userTask", "serviceTask", "sendTask", "receiveTask", "manualTask",
+            "businessRuleTask", "scriptTask", "callActivity", "subProcess", "adHocSubProcess", "transaction",
+            "startEvent", "endEvent", "intermediateCatchEvent", "intermediateThrowEvent", "boundaryEvent",
+            "exclusiveGateway", "inclusiveGateway", "parallelGateway", "complexGateway", "eventBasedGateway");
+
+    private static final XMLInputFactory FACTORY = createFactory(); // Shared, thread-safe once configured
+
+    /**
+     * Compiles the given BPMN XML into a ProcessGraph.
+     *
+     * @param xml the UTF-8 encoded BPMN XML
+     * @return the compiled graph
+     * @throws IOException if the XML cannot be read or is not well-formed
+     */
+    @Override
+    public ProcessGraph parse(InputStream xml) throws IOException {
+        ProcessGraph.Builder builder = ProcessGraph.builder();
+        List<String[]> flows = new ArrayList<>(); // sourceRef/targetRef pairs, resolved once all nodes are known
+        try {
+            XMLStreamReader r = FACTORY.createXMLStreamReader(xml);
+            try {
+                while (r.hasNext()) {
+                    if (r.next() != XMLStreamConstants.START_ELEMENT || !BPMN_NS.equals(r.getNamespaceURI())) continue;
+                    String name = r.getLocalName();
+                    if (FLOW_NODES.contains(name)) {
+                        String id = r.getAttributeValue(null, "id");
+                        if (id != null) builder.addNode(id);
+                    } else if ("sequenceFlow".equals(name)) {
+                        String source = r.getAttributeValue(null, "sourceRef");
+                        String target = r.getAttributeValue(null, "targetRef");
+                        if (source != null && target != null) flows.add(new String[]{source, target});
+                    }
+                }
+            } finally {
+                r.close();
+            }
+        } catch (XMLStreamException e) {
+            throw new IOException("Invalid BPMN XML: " + e.getMessage(), e);
+        }
+        // Flows that do not connect two flow nodes are not traversable and are dropped by the builder
+        for (String[] f : flows) builder.addEdge(f[0], f[1]);
+        return builder.build();
+    }
+
+    private static XMLInputFactory createFactory() {
+        XMLInputFactory f = XMLInputFactory.newFactory();
+        f.setProperty(XMLInputFactory.IS_NAMESPACE_AWARE, true);
+        f.setProperty(XMLInputFactory.SUPPORT_DTD, false);
+        f.setProperty(XMLInputFactory.IS_SUPPORTING_EXTERNAL_ENTITIES, false);
+        return f;
+    }
+}
@@ -0,0 +1,98 @@
+package com.CamundaEnver;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+
+/**
+ * A place BPMN definitions are loaded from, such as the Camunda REST API, a local file or a classpath resource.
+ * A source streams the raw BPMN XML into a {@link BpmnStreamParser} and can tell whether the definition
+ * has changed since its last successful load, so that an unchanged definition is not parsed again.
+ * <p>
+ * The default asynchronous methods run the blocking methods on the common fork-join pool;
+ * sources with a non-blocking transport override them.
+ */
+public interface BpmnSource extends Closeable {
+
+    /**
+     * Returns a stable identifier of the definition this source loads, such as its URL or file URI.
+     * Concurrent loads of the same identifier are coalesced.
+     *
+     * @return the source identifier
+     */
+    String id();
+
+    /**
+     * Loads the definition and streams its XML into the given parser.
+     *
+     * @param parser the parser that consumes the BPMN XML
+     * @param <T>    the type of the parsed result
+     * @return the result of the parser
+     * @throws IOException if the definition cannot be loaded or parsed
+     */
+    <T> T fetch(BpmnStreamParser<T> parser) throws IOException;
+
+    /**
+     * Loads the definition and streams its XML into the given parser unless it is unchanged
+     * since the last successful load.
+     *
+     * @param parser the parser that consumes the BPMN XML
+     * @param <T>    the type of the parsed result
+     * @return the result of the parser, or null if the definition is unchanged
+     * @throws IOException if the definition cannot be loaded or parsed
+     */
+    <T> T fetchIfModified(BpmnStreamParser<T> parser) throws IOException;
+
+    /**
+     * Checks whether the definition of this source can never change, such as a deployed definition
+     * addressed by its process definition ID. Callers may keep a loaded copy of an immutable definition
+     * for as long as they like without revalidating it. The default implementation returns false.
+     *
+     * @return true if the definition is immutable
+     */
+    default boolean isImmutable() {
+        return false;
+    }
+
+    /**
+     * Asynchronous counterpart of {@link #fetch}.
+     *
+     * @param parser the parser that consumes the BPMN XML
+     * @param <T>    the type of the parsed result
+     * @return a future completing with the result of the parser
+     */
+    default <T> CompletableFuture<T> fetchAsync(BpmnStreamParser<T> parser) {
+        return CompletableFuture.supplyAsync(() -> {
+            try {
+                return fetch(parser);
+            } catch (IOException e) {
+                throw new CompletionException(e);
+            }
+        });
+    }
+
+    /**
+     * Asynchronous counterpart of {@link #fetchIfModified}.
+     *
+     * @param parser the parser that consumes the BPMN XML
+     * @param <T>    the type of the parsed result
+     * @return a future completing with the result of the parser, or with null if the definition is unchanged
+     */
+    default <T> CompletableFuture<T> fetchIfModifiedAsync(BpmnStreamParser<T> parser) {
+        return CompletableFuture.supplyAsync(() -> {
+            try {
+                return fetchIfModified(parser);
+            } catch (IOException e) {
+                throw new CompletionException(e);
+            }
+        });
+    }
+
+    /**
+     * Releases the resources held by this source. The default implementation does nothing.
+     */
+    @Override
+    default void close() {
+    }
+}
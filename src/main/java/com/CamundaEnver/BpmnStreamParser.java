@@ -0,0 +1,24 @@
+package com.CamundaEnver;
+
+import java.io.IOException;
+import java.io.InputStream;
+
+/**
+ * Consumes a BPMN XML document as a stream of bytes and produces a result from it.
+ * Implementations are called while the underlying source is still open and must not
+ * keep a reference to the stream after returning.
+ *
+ * @param <T> the type of the parsed result
+ */
+@FunctionalInterface
+public interface BpmnStreamParser<T> {
+
+    /**
+     * Parses the BPMN XML read from the given stream.
+     *
+     * @param xml the UTF-8 encoded BPMN XML
+     * @return the parsed result
+     * @throws IOException if an error occurs while reading or parsing the XML
+     */
+    T parse(InputStream xml) throws IOException;
+}
@@ -0,0 +1,133 @@
+package com.CamundaEnver;
+
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Progress of a bulk load started through {@link ProcessGraphRegistry#preloadAll}.
+ * The counters are updated as definitions finish loading and may be read at any time,
+ * for example to report warm-up progress from a health check.
+ */
+public final class BulkLoadProgress {
+    private final int total; // Number of definitions to load
+    private final long startNanos = System.nanoTime(); // Time at which the bulk load started
+    private final AtomicInteger succeeded = new AtomicInteger(); // Definitions loaded so far
+    private final Map<ProcessGraphRegistry.DefinitionRef, Throwable> failures = new ConcurrentHashMap<>(); // Failed definitions
+    private final CompletableFuture<BulkLoadProgress> done = new CompletableFuture<>(); // Completed once every definition has finished
+    private volatile long elapsedNanos = -1; // Duration of the completed bulk load, -1 while running
+
+    /**
+     * Constructs the progress of a bulk load of the given number of definitions.
+     *
+     * @param total the number of definitions to load
+     */
+    BulkLoadProgress(int total) {
+        this.total = total;
+        if (total == 0) complete();
+    }
+
+    /**
+     * Returns the number of definitions the bulk load covers.
+     *
+     * @return the total number of definitions
+     */
+    public int total() {
+        return total;
+    }
+
+    /**
+     * Returns the number of definitions loaded successfully so far.
+     *
+     * @return the success count
+     */
+    public int succeeded() {
+        return succeeded.get();
+    }
+
+    /**
+     * Returns the number of definitions that failed to load so far.
+     *
+     * @return the failure count
+     */
+    public int failed() {
+        return failures.size();
+    }
+
+    /**
+     * Returns the number of definitions that have finished loading, successfully or not.
+     *
+     * @return the completion count
+     */
+    public int completed() {
+        return succeeded() + failed();
+    }
+
+    /**
+     * Returns the failures recorded so far.
+     *
+     * @return an immutable copy of the failed definitions and their exceptions
+     */
+    public Map<ProcessGraphRegistry.DefinitionRef, Throwable> failures() {
+        return Map.copyOf(failures);
+    }
+
+    /**
+     * Returns the time spent on the bulk load, up to now while it is still running.
+     *
+     * @return the elapsed time in milliseconds
+     */
+    public long elapsedMillis() {
+        long e = elapsedNanos;
+        return (e >= 0 ? e : System.nanoTime() - startNanos) / 1_000_000;
+    }
+
+    /**
+     * Checks whether every definition has finished loading.
+     *
+     * @return true once the bulk load is complete
+     */
+    public boolean isDone() {
+        return done.isDone();
+    }
+
+    /**
+     * Returns a future that completes with this progress once every definition has finished loading.
+     * The future never completes exceptionally; failures are reported through {@link #failures()}.
+     *
+     * @return the completion future
+     */
+    public CompletableFuture<BulkLoadProgress> completion() {
+        return done;
+    }
+
+    /**
+     * Records a successfully loaded definition.
+     */
+    void recordSuccess() {
+        succeeded.incrementAndGet();
+        if (completed() >= total) complete();
+    }
+
+    /**
+     * Records a definition that failed to load.
+     *
+     * @param ref the failed definition
+     * @param e   the cause of the failure
+     */
+    void recordFailure(ProcessGraphRegistry.DefinitionRef ref, Throwable e) {
+        failures.put(ref, e);
+        if (completed() >= total) complete();
+    }
+
+    private synchronized void complete() {
+        if (elapsedNanos < 0) elapsedNanos = System.nanoTime() - startNanos;
+        done.complete(this);
+    }
+
+    @Override
+    public String toString() {
+        return "BulkLoadProgress[" + completed() + "/" + total + " completed, " + failed() + " failed, " + elapsedMillis() + " ms]";
+    }
+}
@@ -0,0 +1,223 @@
+package com.CamundaEnver;
+
+import java.io.IOException;
+
+/**
+ * Circuit breaker for the requests sent to a definition endpoint, so that a degraded engine or gateway is not
+ * hit with requests that are bound to time out.
+ * <p>
+ * While <b>closed</b>, the outcome of every request is recorded in a sliding window of the last {@code windowSize}
+ * calls. A call fails if it ends in an I/O error or a 429 or 5xx response, and is slow if it takes at least
+ * {@code slowCallMs} until the response arrives. Once the window holds at least {@code minimumCalls} calls and the
+ * share of failed calls reaches {@code failureRatePercent}, or the share of slow calls reaches
+ * {@code slowCallRatePercent}, the breaker <b>opens</b>: every request is rejected at once with an
+ * {@link OpenException} for {@code openDurationMs}. Afterwards the breaker is <b>half-open</b> and lets
+ * {@code halfOpenCalls} trial requests through; if they all succeed in time it closes again, otherwise it reopens.
+ * <p>
+ * A breaker is thread-safe and is meant to be shared by all fetchers talking to the same engine.
+ */
+public final class CircuitBreaker {
+    private static final int FAILED = 1; // Outcome bit of a failed call
+    private static final int SLOW = 2; // Outcome bit of a slow call
+
+    private final int windowSize; // Number of most recent calls the rates are computed over
+    private final int minimumCalls; // Calls needed in the window before the breaker can open
+    private final int failureRatePercent; // Failure rate at which the breaker opens
+    private final long slowCallMs; // Duration from which a call counts as slow, <= 0 to ignore latency
+    private final int slowCallRatePercent; // Slow call rate at which the breaker opens
+    private final long openDurationMs; // Time requests are rejected before trial requests are let through
+    private final int halfOpenCalls; // Number of trial requests in the half-open state
+    private final byte[] outcomes; // Ring buffer of the outcome bits of the calls in the window, guarded by this
+    private int next; // Position of the next outcome in the ring buffer, guarded by this
+    private int recorded; // Number of outcomes in the window, guarded by this
+    private int failures; // Failed calls in the window, guarded by this
+    private int slowCalls; // Slow calls in the window, guarded by this
+    private State state = State.CLOSED; // Current state, guarded by this
+    private long openedAtMillis; // Time at which the breaker last opened, guarded by this
+    private int trialsStarted; // Trial requests let through in the half-open state, guarded by this
+    private int trialsSucceeded; // Trial requests that succeeded in the half-open state, guarded by this
+    private long rejected; // Requests rejected so far, guarded by this
+
+    /**
+     * States of a circuit breaker.
+     */
+    public enum State {
+        /** Requests are sent and their outcomes recorded. */
+        CLOSED,
+        /** Requests are rejected without being sent. */
+        OPEN,
+        /** A limited number of trial requests decide whether the breaker closes or reopens. */
+        HALF_OPEN
+    }
+
+    /**
+     * Constructs a closed circuit breaker.
+     *
+     * @param windowSize          the number of most recent calls the rates are computed over
+     * @param minimumCalls        the number of calls needed in the window before the breaker can open
+     * @param failureRatePercent  the failure rate in percent at which the breaker opens
+     * @param slowCallMs          the duration in milliseconds from which a call counts as slow, 0 to ignore latency
+     * @param slowCallRatePercent the slow call rate in percent at which the breaker opens
+     * @param openDurationMs      the time in milliseconds requests are rejected before trial requests are let through
+     * @param halfOpenCalls       the number of trial requests in the half-open state
+     * @throws IllegalArgumentException if windowSize or halfOpenCalls is not positive
+     */
+    public CircuitBreaker(int windowSize, int minimumCalls, int failureRatePercent, long slowCallMs,
+                          int slowCallRatePercent, long openDurationMs, int halfOpenCalls) {
+        if (windowSize <= 0) throw new IllegalArgumentException("windowSize must be positive: " + windowSize);
+        if (halfOpenCalls <= 0) throw new IllegalArgumentException("halfOpenCalls must be positive: " + halfOpenCalls);
+        this.windowSize = windowSize;
+        this.minimumCalls = Math.max(1, Math.min(minimumCalls, windowSize));
+        this.failureRatePercent = failureRatePercent;
+        this.slowCallMs = slowCallMs;
+        this.slowCallRatePercent = slowCallRatePercent;
+        this.openDurationMs = openDurationMs;
+        this.halfOpenCalls = halfOpenCalls;
+        this.outcomes = new byte[windowSize];
+    }
+
+    /**
+     * Creates a circuit breaker from configuration, or none if {@code HTTP_CIRCUIT_BREAKER} or
+     * {@code http.circuit.breaker} is set to 0. The thresholds are read from {@code HTTP_CB_WINDOW_SIZE} (default 20),
+     * {@code HTTP_CB_MINIMUM_CALLS} (10), {@code HTTP_CB_FAILURE_RATE} (50), {@code HTTP_CB_SLOW_CALL_MS}
+     * (0, latency ignored), {@code HTTP_CB_SLOW_CALL_RATE} (80), {@code HTTP_CB_OPEN_MS} (30000) and
+     * {@code HTTP_CB_HALF_OPEN_CALLS} (2), or the corresponding {@code http.cb.*} system properties.
+     *
+     * @return a new circuit breaker, or null if circuit breaking is disabled
+     */
+    public static CircuitBreaker fromDefaults() {
+        if (ConfigUtil.parseEnvOrProp("HTTP_CIRCUIT_BREAKER", "http.circuit.breaker", 1) == 0) return null;
+        return new CircuitBreaker(
+                Math.max(1, ConfigUtil.parseEnvOrProp("HTTP_CB_WINDOW_SIZE", "http.cb.window.size", 20)),
+                ConfigUtil.parseEnvOrProp("HTTP_CB_MINIMUM_CALLS", "http.cb.minimum.calls", 10),
+                ConfigUtil.parseEnvOrProp("HTTP_CB_FAILURE_RATE", "http.cb.failure.rate", 50),
+                ConfigUtil.parseEnvOrProp("HTTP_CB_SLOW_CALL_MS", "http.cb.slow.call.ms", 0),
+                ConfigUtil.parseEnvOrProp("HTTP_CB_SLOW_CALL_RATE", "http.cb.slow.call.rate", 80),
+                ConfigUtil.parseEnvOrProp("HTTP_CB_OPEN_MS", "http.cb.open.ms", 30000),
+                Math.max(1, ConfigUtil.parseEnvOrProp("HTTP_CB_HALF_OPEN_CALLS", "http.cb.half.open.calls", 2)));
+    }
+
+    /**
+     * Asks for permission to send a request. Every permitted request must be followed by a call to {@link #record},
+     * or to {@link #release} if it is cancelled.
+     *
+     * @return true if the request may be sent, false if it must be rejected
+     */
+    public synchronized boolean tryAcquire() {
+        if (state == State.OPEN) {
+            if (System.currentTimeMillis() - openedAtMillis < openDurationMs) {
+                rejected++;
+                return false;
+            }
+            state = State.HALF_OPEN;
+            trialsStarted = 0;
+            trialsSucceeded = 0;
+        }
+        if (state == State.HALF_OPEN) {
+            if (trialsStarted >= halfOpenCalls) {
+                rejected++;
+                return false;
+            }
+            trialsStarted++;
+        }
+        return true;
+    }
+
+    /**
+     * Records the outcome of a permitted request.
+     *
+     * @param failed    whether the request ended in an I/O error or an error response of the server
+     * @param elapsedMs the time from sending the request until the response or the error, in milliseconds
+     */
+    public synchronized void record(boolean failed, long elapsedMs) {
+        boolean slow = slowCallMs > 0 && elapsedMs >= slowCallMs;
+        switch (state) {
+            case HALF_OPEN -> {
+                if (failed || slow) {
+                    open();
+                } else if (++trialsSucceeded >= halfOpenCalls) {
+                    close();
+                }
+            }
+            case CLOSED -> {
+                int outcome = (failed ? FAILED : 0) | (slow ? SLOW : 0);
+                if (recorded == windowSize) {
+                    // The oldest outcome leaves the window
+                    int old = outcomes[next];
+                    if ((old & FAILED) != 0) failures--;
+                    if ((old & SLOW) != 0) slowCalls--;
+                } else {
+                    recorded++;
+                }
+                outcomes[next] = (byte) outcome;
+                next = (next + 1) % windowSize;
+                if (failed) failures++;
+                if (slow) slowCalls++;
+                if (recorded >= minimumCalls
+                        && (failures * 100L >= (long) failureRatePercent * recorded
+                        || slowCallMs > 0 && slowCalls * 100L >= (long) slowCallRatePercent * recorded)) {
+                    open();
+                }
+            }
+            case OPEN -> {
+                // Late outcome of a request sent before the breaker opened
+            }
+        }
+    }
+
+    /**
+     * Gives back the permission of a request that was cancelled before its outcome was known,
+     * such as the losing request of a hedged pair, without recording an outcome.
+     */
+    public synchronized void release() {
+        if (state == State.HALF_OPEN && trialsStarted > trialsSucceeded) trialsStarted--;
+    }
+
+    /**
+     * Returns the current state. An open breaker whose open duration has elapsed reports {@link State#HALF_OPEN}
+     * only once the next request has asked for permission.
+     *
+     * @return the state
+     */
+    public synchronized State state() {
+        return state;
+    }
+
+    /**
+     * Returns the number of requests rejected so far.
+     *
+     * @return the rejection count
+     */
+    public synchronized long rejected() {
+        return rejected;
+    }
+
+    private void open() {
+        state = State.OPEN;
+        openedAtMillis = System.currentTimeMillis();
+    }
+
+    private void close() {
+        state = State.CLOSED;
+        next = 0;
+        recorded = 0;
+        failures = 0;
+        slowCalls = 0;
+    }
+
+    /**
+     * Thrown instead of sending a request while the circuit breaker is open.
+     */
+    public static final class OpenException extends IOException {
+        private static final long serialVersionUID = 1L;
+
+        /**
+         * Constructs the exception for a rejected request.
+         *
+         * @param url the URL of the rejected request
+         */
+        public OpenException(String url) {
+            super("Circuit breaker open, request skipped: " + url);
+        }
+    }
+}
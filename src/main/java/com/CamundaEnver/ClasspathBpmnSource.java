@@ -0,0 +1,87 @@
+package com.CamundaEnver;
+
+import java.io.FileNotFoundException;
+import java.io.IOException;
+import java.io.InputStream;
+
+/**
+ * Loads a BPMN definition from a classpath resource, for example a definition bundled with a service or a benchmark.
+ * Classpath resources do not change while the process runs, so the definition is only parsed once;
+ * later conditional loads report it as unchanged.
+ */
+public class ClasspathBpmnSource implements BpmnSource {
+    private final String resource; // Resource name, relative to the root of the class loader
+    private final ClassLoader loader; // Class loader the resource is looked up in
+    private volatile boolean loaded; // Whether the resource has been parsed successfully
+
+    /**
+     * Constructs a source for a resource of the class loader that loaded this class.
+     *
+     * @param resource the resource name, such as {@code "bpmn/invoice.bpmn"}
+     */
+    public ClasspathBpmnSource(String resource) {
+        this(resource, ClasspathBpmnSource.class.getClassLoader());
+    }
+
+    /**
+     * Constructs a source for a resource of the given class loader.
+     *
+     * @param resource the resource name, such as {@code "bpmn/invoice.bpmn"}
+     * @param loader   the class loader to look the resource up in
+     */
+    public ClasspathBpmnSource(String resource, ClassLoader loader) {
+        this.resource = resource.startsWith("/") ? resource.substring(1) : resource;
+        this.loader = loader;
+    }
+
+    /**
+     * Returns the identifier of this source.
+     *
+     * @return {@code classpath:} followed by the resource name
+     */
+    @Override
+    public String id() {
+        return "classpath:" + resource;
+    }
+
+    /**
+     * Parses the resource.
+     *
+     * @param parser the parser that consumes the BPMN XML
+     * @param <T>    the type of the parsed result
+     * @return the result of the parser
+     * @throws IOException if the resource does not exist or cannot be parsed
+     */
+    @Override
+    public <T> T fetch(BpmnStreamParser<T> parser) throws IOException {
+        try (InputStream in = loader.getResourceAsStream(resource)) {
+            if (in == null) throw new FileNotFoundException("Classpath resource not found: " + resource);
+            T value = parser.parse(in);
+            loaded = true;
+            return value;
+        }
+    }
+
+    /**
+     * Parses the resource unless it has already been parsed successfully.
+     *
+     * @param parser the parser that consumes the BPMN XML
+     * @param <T>    the type of the parsed result
+     * @return the result of the parser, or null if the resource has already been loaded
+     * @throws IOException if the resource does not exist or cannot be parsed
+     */
+    @Override
+    public <T> T fetchIfModified(BpmnStreamParser<T> parser) throws IOException {
+        return loaded ? null : fetch(parser);
+    }
+
+    /**
+     * Checks whether the definition can change. Classpath resources are fixed for the lifetime of the class loader.
+     *
+     * @return always true
+     */
+    @Override
+    public boolean isImmutable() {
+        return true;
+    }
+}
@@ -0,0 +1,213 @@
+package com.CamundaEnver;
+
+import org.apache.commons.codec.DecoderException;
+import org.apache.commons.codec.binary.Hex;
+
+import java.io.IOException;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.zip.CRC32C;
+
+/**
+ * Binary file format for compiled process graphs, so that a process can load a graph
+ * through a memory-mapped file instead of parsing BPMN XML.
+ * <p>
+ * All numbers are big-endian. The layout is:
+ * <pre>
+ * int     magic "BPMG", int format version
+ * byte[32] SHA-256 of the BPMN XML the graph was compiled from, all zero if unknown
+ * int     node count n, int edge count m, int flags (bit 0: reachability index present)
+ * int[n+1] offsets, int[m] targets, int[n+1] inOffsets, int[m] inSources
+ * [int component count c, int words, int[n] component, long[c * words] closure]   if flag bit 0 is set
+ * int[n+1] byte offsets of the node IDs in the string table, byte[] UTF-8 string table
+ * int     CRC-32C of all preceding bytes
+ * </pre>
+ * Files are written to a temporary file and moved into place, so a reader never sees a partial file.
+ * The checksum catches damage that would otherwise still decode to a well-formed, but different, graph.
+ */
+public final class CompiledGraphFile {
+    private static final int MAGIC = 0x42504D47; // "BPMG"
+    private static final int FORMAT_VERSION = 2; // Incremented on every incompatible layout change
+    private static final int HASH_BYTES = 32; // Length of a SHA-256 hash
+    private static final int FLAG_REACHABILITY = 1; // The file contains a reachability index
+
+    private CompiledGraphFile() {}
+
+    /**
+     * Writes a compiled graph and, optionally, its reachability index.
+     *
+     * @param file         the file to write
+     * @param graph        the compiled graph
+     * @param reachability the reachability index of the graph, or null to omit it
+     * @param sourceHash   the SHA-256 of the BPMN XML in lower-case hex, or null if unknown
+     * @throws IOException if the file cannot be written
+     * @throws IllegalArgumentException if sourceHash is not a SHA-256 hash in hex
+     */
+    public static void write(Path file, ProcessGraph graph, ReachabilityIndex reachability, String sourceHash) throws IOException {
+        int n = graph.size(), m = graph.edgeCount();
+        byte[][] ids = new byte[n][];
+        int idBytes = 0;
+        for (int i = 0; i < n; i++) idBytes += (ids[i] = graph.idOf(i).getBytes(StandardCharsets.UTF_8)).length;
+        long size = 8 + HASH_BYTES + 12 + 4L * (2 * (n + 1) + 2 * m) + 4L * (n + 1) + idBytes + 4;
+        if (reachability != null) size += 8 + 4L * n + 8L * reachability.closure().length;
+        if (size > Integer.MAX_VALUE) throw new IOException("Graph too large for a compiled graph file: " + size + " bytes");
+
+        ByteBuffer buf = ByteBuffer.allocate((int) size);
+        buf.putInt(MAGIC).putInt(FORMAT_VERSION);
+        buf.put(sourceHash != null ? decodeHash(sourceHash) : new byte[HASH_BYTES]);
+        buf.putInt(n).putInt(m).putInt(reachability != null ? FLAG_REACHABILITY : 0);
+        putInts(buf, graph.offsets());
+        putInts(buf, graph.targets());
+        putInts(buf, graph.inOffsets());
+        putInts(buf, graph.inSources());
+        if (reachability != null) {
+            buf.putInt(reachability.componentCount()).putInt(reachability.words());
+            putInts(buf, reachability.components());
+            buf.asLongBuffer().put(reachability.closure());
+            buf.position(buf.position() + 8 * reachability.closure().length);
+        }
+        int offset = 0;
+        buf.putInt(0);
+        for (byte[] id : ids) buf.putInt(offset += id.length);
+        for (byte[] id : ids) buf.put(id);
+        CRC32C crc = new CRC32C();
+        crc.update(buf.array(), 0, buf.position());
+        buf.putInt((int) crc.getValue());
+        buf.flip();
+
+        Path tmp = Files.createTempFile(file.toAbsolutePath().getParent(), "graph", ".tmp");
+        try {
+            try (FileChannel ch = FileChannel.open(tmp, StandardOpenOption.WRITE)) {
+                while (buf.hasRemaining()) ch.write(buf);
+            }
+            try {
+                Files.move(tmp, file, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+            } catch (AtomicMoveNotSupportedException e) {
+                Files.move(tmp, file, StandardCopyOption.REPLACE_EXISTING);
+            }
+        } finally {
+            Files.deleteIfExists(tmp);
+        }
+    }
+
+    /**
+     * Reads a compiled graph file through a memory mapping. The arrays are copied out of the mapping
+     * in bulk, so the returned graph does not depend on the file once this method returns.
+     *
+     * @param file the file to read
+     * @return the contents of the file
+     * @throws IOException if the file cannot be read, has an unsupported format or is inconsistent
+     */
+    public static Contents read(Path file) throws IOException {
+        MappedByteBuffer buf;
+        try (FileChannel ch = FileChannel.open(file, StandardOpenOption.READ)) {
+            buf = ch.map(FileChannel.MapMode.READ_ONLY, 0, ch.size());
+        }
+        try {
+            if (buf.getInt() != MAGIC) throw new IOException("Not a compiled graph file: " + file);
+            if (buf.getInt() != FORMAT_VERSION) throw new IOException("Unsupported compiled graph format: " + file);
+            int end = buf.limit() - 4;
+            if (end < buf.position()) throw new BufferUnderflowException();
+            CRC32C crc = new CRC32C();
+            crc.update(buf.duplicate().position(0).limit(end));
+            if ((int) crc.getValue() != buf.getInt(end)) throw new IOException("Compiled graph file checksum mismatch: " + file);
+            buf.limit(end);
+            byte[] hash = new byte[HASH_BYTES];
+            buf.get(hash);
+            int n = buf.getInt(), m = buf.getInt(), flags = buf.getInt();
+            if (n < 0 || m < 0) throw new IOException("Corrupt compiled graph file: " + file);
+            int[] offsets = getInts(buf, n + 1), targets = getInts(buf, m);
+            int[] inOffsets = getInts(buf, n + 1), inSources = getInts(buf, m);
+            checkCsr(offsets, targets, n, file);
+            checkCsr(inOffsets, inSources, n, file);
+            int comps = 0, words = 0;
+            int[] component = null;
+            long[] closure = null;
+            if ((flags & FLAG_REACHABILITY) != 0) {
+                comps = buf.getInt();
+                words = buf.getInt();
+                if (comps < 0 || words != (comps + 63) >>> 6) throw new IOException("Corrupt compiled graph file: " + file);
+                component = getInts(buf, n);
+                int longs = Math.multiplyExact(comps, words);
+                if (longs > buf.remaining() / 8) throw new BufferUnderflowException();
+                closure = new long[longs];
+                buf.asLongBuffer().get(closure);
+                buf.position(buf.position() + 8 * closure.length);
+                for (int c : component) if (c < 0 || c >= comps) throw new IOException("Corrupt compiled graph file: " + file);
+            }
+            int[] idOffsets = getInts(buf, n + 1);
+            if (idOffsets[n] < 0 || idOffsets[n] > buf.remaining()) throw new BufferUnderflowException();
+            byte[] table = new byte[idOffsets[n]];
+            buf.get(table);
+            String[] ids = new String[n];
+            for (int i = 0; i < n; i++) ids[i] = new String(table, idOffsets[i], idOffsets[i + 1] - idOffsets[i], StandardCharsets.UTF_8);
+
+            ProcessGraph graph = ProcessGraph.fromCsr(ids, offsets, targets, inOffsets, inSources);
+            for (int i = 0; i < n; i++) {
+                if (graph.indexOf(ids[i]) != i) throw new IOException("Duplicate node ID in compiled graph file: " + file);
+            }
+            ReachabilityIndex reachability = component != null ? new ReachabilityIndex(graph, component, words, closure) : null;
+            boolean known = false;
+            for (byte b : hash) known |= b != 0;
+            return new Contents(graph, reachability, known ? Hex.encodeHexString(hash) : null);
+        } catch (BufferUnderflowException | IndexOutOfBoundsException | IllegalArgumentException
+                 | ArithmeticException | NegativeArraySizeException e) {
+            throw new IOException("Corrupt compiled graph file: " + file, e);
+        }
+    }
+
+    private static void putInts(ByteBuffer buf, int[] values) {
+        buf.asIntBuffer().put(values);
+        buf.position(buf.position() + 4 * values.length);
+    }
+
+    private static int[] getInts(ByteBuffer buf, int count) {
+        // Checked before allocating, so a damaged count cannot request an arbitrarily large array
+        if (count < 0 || count > buf.remaining() / 4) throw new BufferUnderflowException();
+        int[] values = new int[count];
+        buf.asIntBuffer().get(values);
+        buf.position(buf.position() + 4 * count);
+        return values;
+    }
+
+    /**
+     * Checks that CSR arrays are monotonic and only reference existing nodes, so that a damaged file
+     * is rejected on load instead of failing a later search.
+     */
+    private static void checkCsr(int[] offsets, int[] nodes, int n, Path file) throws IOException {
+        if (offsets[0] != 0 || offsets[n] != nodes.length) throw new IOException("Corrupt compiled graph file: " + file);
+        for (int i = 0; i < n; i++) {
+            if (offsets[i] > offsets[i + 1]) throw new IOException("Corrupt compiled graph file: " + file);
+        }
+        for (int v : nodes) {
+            if (v < 0 || v >= n) throw new IOException("Corrupt compiled graph file: " + file);
+        }
+    }
+
+    private static byte[] decodeHash(String hex) {
+        try {
+            byte[] hash = Hex.decodeHex(hex);
+            if (hash.length != HASH_BYTES) throw new IllegalArgumentException("Not a SHA-256 hash: " + hex);
+            return hash;
+        } catch (DecoderException e) {
+            throw new IllegalArgumentException("Not a SHA-256 hash: " + hex, e);
+        }
+    }
+
+    /**
+     * Contents of a compiled graph file.
+     *
+     * @param graph        the compiled graph
+     * @param reachability the reachability index of the graph, or null if the file does not contain one
+     * @param sourceHash   the SHA-256 of the BPMN XML the graph was compiled from in lower-case hex, or null if unknown
+     */
+    public record Contents(ProcessGraph graph, ReachabilityIndex reachability, String sourceHash) {}
+}
@@ -3,8 +3,12 @@ package com.CamundaEnver;
 import org.camunda.bpm.model.bpmn.Bpmn;
 import org.camunda.bpm.model.bpmn.BpmnModelInstance;
 import org.camunda.bpm.model.bpmn.instance.FlowNode;
+import org.camunda.bpm.model.bpmn.instance.SequenceFlow;
 import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
 import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
 import java.util.Collection;
 import java.util.HashMap;
 import java.util.Map;
@@ -28,6 +32,16 @@ public class DefaultBpmnModelService {
         );
     }
 
+    /**
+     * Parses a BPMN XML stream into a BpmnModelInstance.
+     *
+     * @param xml the UTF-8 encoded BPMN XML to be parsed
+     * @return a BpmnModelInstance representing the parsed BPMN model
+     */
+    public BpmnModelInstance parseModel(InputStream xml) {
+        return Bpmn.readModelFromStream(xml);
+    }
+
     /**
      * Builds a map of flow nodes from the given BpmnModelInstance.
      *
@@ -40,4 +54,46 @@ public class DefaultBpmnModelService {
         for (FlowNode n : nodes) map.put(n.getId(), n);
         return map;
     }
+
+    /**
+     * Compiles a node map into an immutable ProcessGraph.
+     * The outgoing sequence flows of every node are resolved once, so that the resulting graph
+     * can be searched concurrently without going back to the model instance.
+     *
+     * @param nodeMap a map where the keys are flow node IDs and the values are the corresponding FlowNode objects
+     * @return the compiled graph
+     */
+    public ProcessGraph compileGraph(Map<String, FlowNode> nodeMap) {
+        ProcessGraph.Builder builder = ProcessGraph.builder();
+        for (String id : nodeMap.keySet()) builder.addNode(id);
+        for (Map.Entry<String, FlowNode> e : nodeMap.entrySet()) {
+            for (SequenceFlow f : e.getValue().getOutgoing()) builder.addEdge(e.getKey(), f.getTarget().getId());
+        }
+        return builder.build();
+    }
+
+    /**
+     * Writes a compiled graph to a {@link CompiledGraphFile}, so that it can later be loaded
+     * without parsing the BPMN XML again.
+     *
+     * @param graph        the compiled graph
+     * @param reachability the reachability index of the graph to include, or null to omit it
+     * @param sourceHash   the SHA-256 of the BPMN XML the graph was compiled from in lower-case hex, or null if unknown
+     * @param file         the file to write
+     * @throws IOException if the file cannot be written
+     */
+    public void writeSnapshot(ProcessGraph graph, ReachabilityIndex reachability, String sourceHash, Path file) throws IOException {
+        CompiledGraphFile.write(file, graph, reachability, sourceHash);
+    }
+
+    /**
+     * Reads a compiled graph written by {@link #writeSnapshot}.
+     *
+     * @param file the file to read
+     * @return the contents of the file
+     * @throws IOException if the file cannot be read or is not a valid compiled graph file
+     */
+    public CompiledGraphFile.Contents readSnapshot(Path file) throws IOException {
+        return CompiledGraphFile.read(file);
+    }
 }
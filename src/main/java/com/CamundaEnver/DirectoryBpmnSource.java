@@ -0,0 +1,171 @@
+package com.CamundaEnver;
+
+import java.io.FileNotFoundException;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.TreeSet;
+import java.util.stream.Stream;
+
+/**
+ * Loads a BPMN definition by process definition key from a directory of raw BPMN files,
+ * such as a deployment folder on an air-gapped node. The definition with key {@code k} is read from
+ * the first existing file among {@code k.bpmn}, {@code k.bpmn20.xml} and {@code k.xml}.
+ * <p>
+ * The file is resolved again on every load, so a definition that is replaced under another
+ * supported name is picked up; change detection otherwise follows {@link FileBpmnSource}.
+ * <p>
+ * Keys are plain file names: a key containing a path separator or naming {@code .} or {@code ..} is rejected,
+ * so that no key reads a file outside the directory.
+ */
+public class DirectoryBpmnSource implements BpmnSource {
+    private static final List<String> EXTENSIONS = List.of(".bpmn", ".bpmn20.xml", ".xml"); // Supported file names, by priority
+
+    private final Path dir; // Directory holding the definitions
+    private final String key; // Process definition key of the loaded definition
+    private volatile FileBpmnSource current; // Source of the file resolved last, null until the first load
+
+    /**
+     * Constructs a source for the definition with the given key.
+     *
+     * @param dir the directory holding the definitions
+     * @param key the process definition key
+     * @throws IllegalArgumentException if the key is not a valid file name within the directory
+     */
+    public DirectoryBpmnSource(Path dir, String key) {
+        if (!isValidKey(key)) throw new IllegalArgumentException("Invalid definition key: " + key);
+        this.dir = dir;
+        this.key = key;
+    }
+
+    /**
+     * Lists the process definition keys of all definitions in a directory.
+     *
+     * @param dir the directory holding the definitions
+     * @return the keys in alphabetical order
+     * @throws IOException if the directory cannot be listed
+     */
+    public static List<String> keys(Path dir) throws IOException {
+        TreeSet<String> keys = new TreeSet<>();
+        try (Stream<Path> files = Files.list(dir)) {
+            files.filter(Files::isRegularFile).forEach(f -> {
+                String key = keyOf(f);
+                if (key != null) keys.add(key);
+            });
+        }
+        return List.copyOf(keys);
+    }
+
+    /**
+     * Checks whether a key names a file directly inside a definition directory.
+     *
+     * @param key the process definition key, possibly null
+     * @return false if the key is null, empty, {@code .} or {@code ..}, or contains a path separator or NUL
+     */
+    static boolean isValidKey(String key) {
+        return key != null && !key.isEmpty() && !key.equals(".") && !key.equals("..")
+                && key.indexOf('/') < 0 && key.indexOf('\\') < 0 && key.indexOf('\0') < 0;
+    }
+
+    /**
+     * Returns the process definition key of a definition file.
+     *
+     * @param file a file in a definition directory
+     * @return the key, or null if the file name has no supported extension
+     */
+    static String keyOf(Path file) {
+        String name = file.getFileName().toString();
+        for (String ext : EXTENSIONS) {
+            if (name.endsWith(ext) && name.length() > ext.length()) return name.substring(0, name.length() - ext.length());
+        }
+        return null;
+    }
+
+    /**
+     * Returns the directory this source reads from.
+     *
+     * @return the definition directory
+     */
+    public Path directory() {
+        return dir;
+    }
+
+    /**
+     * Returns the process definition key this source loads.
+     *
+     * @return the definition key
+     */
+    public String key() {
+        return key;
+    }
+
+    /**
+     * Returns the identifier of this source.
+     *
+     * @return the directory URI followed by the definition key as a fragment
+     */
+    @Override
+    public String id() {
+        return dir.toUri() + "#" + key;
+    }
+
+    /**
+     * Parses the definition file.
+     *
+     * @param parser the parser that consumes the BPMN XML
+     * @param <T>    the type of the parsed result
+     * @return the result of the parser
+     * @throws IOException if no file exists for the key or it cannot be parsed
+     */
+    @Override
+    public <T> T fetch(BpmnStreamParser<T> parser) throws IOException {
+        return resolve().fetch(parser);
+    }
+
+    /**
+     * Parses the definition file unless it is unchanged since the last successful load.
+     *
+     * @param parser the parser that consumes the BPMN XML
+     * @param <T>    the type of the parsed result
+     * @return the result of the parser, or null if the file is unchanged
+     * @throws IOException if no file exists for the key or it cannot be parsed
+     */
+    @Override
+    public <T> T fetchIfModified(BpmnStreamParser<T> parser) throws IOException {
+        return resolve().fetchIfModified(parser);
+    }
+
+    /**
+     * Finds the file of the definition, keeping the previous file source if the file is the same.
+     *
+     * @return the source of the definition file
+     * @throws FileNotFoundException if no file exists for the key
+     */
+    private synchronized FileBpmnSource resolve() throws FileNotFoundException {
+        Path file = fileOf(dir, key);
+        if (file == null) throw new FileNotFoundException("No definition for key " + key + " in " + dir);
+        FileBpmnSource c = current;
+        if (c == null || !c.file().equals(file)) current = c = new FileBpmnSource(file);
+        return c;
+    }
+
+    /**
+     * Returns the file the definition with the given key is read from.
+     *
+     * @param dir the directory holding the definitions
+     * @param key the process definition key
+     * @return the first existing file for the key, or null if there is none or the key is invalid
+     */
+    static Path fileOf(Path dir, String key) {
+        if (!isValidKey(key)) return null;
+        Path base = dir.normalize();
+        for (String ext : EXTENSIONS) {
+            Path file = dir.resolve(key + ext);
+            // Also guards against separators of other file systems
+            if (!file.normalize().startsWith(base)) return null;
+            if (Files.isRegularFile(file)) return file;
+        }
+        return null;
+    }
+}
@@ -0,0 +1,325 @@
+package com.CamundaEnver;
+
+import com.fasterxml.jackson.core.type.TypeReference;
+import org.apache.commons.codec.binary.Hex;
+import org.apache.commons.codec.digest.DigestUtils;
+
+import java.io.FilterInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.channels.FileChannel;
+import java.nio.channels.FileLock;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.nio.file.attribute.FileTime;
+import java.security.DigestInputStream;
+import java.security.MessageDigest;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Persistent cache of fetched BPMN definitions in a local directory.
+ * Every distinct definition is stored once, in a file named after the SHA-256 hash of its XML,
+ * and an index file maps each definition URL to the hash and the HTTP validators of the response
+ * it was stored from. A restarted process can therefore compile the definition from disk and
+ * revalidate it with a conditional request instead of downloading it again.
+ * <p>
+ * Next to each definition file, the compiled graph can be kept in a {@link CompiledGraphFile} named after
+ * the same hash, so that a restart does not even need to parse the XML.
+ * <p>
+ * Files are written to a temporary name and moved into place, so readers never see partial content;
+ * a definition file whose content no longer matches its hash is treated as missing.
+ * <p>
+ * A directory may be shared by several libraries and processes. Within a process, {@link #open} hands out one
+ * instance per directory. Across processes, the index is updated under a {@link FileLock} on a lock file in the
+ * directory: every update re-reads the index and merges its change into it, and a definition file is only removed
+ * once the merged index no longer refers to it. Entries written by other processes are picked up when the index
+ * file changes.
+ */
+public final class DiskDefinitionCache {
+    private static final String INDEX_FILE = "index.json"; // Name of the URL -> entry index in the cache directory
+    private static final String LOCK_FILE = "index.lock"; // Name of the file locked while the index is updated
+    private static final String SUFFIX = ".bpmn"; // Extension of definition files
+    private static final String COMPILED_SUFFIX = ".graph"; // Extension of compiled graph files
+    private static final Map<Path, DiskDefinitionCache> INSTANCES = new ConcurrentHashMap<>(); // Shared caches by directory
+
+    private final Path dir; // Cache directory
+    private Map<String, Entry> index; // URL -> entry, guarded by this
+    private FileTime indexModified; // Modification time of the index file when it was last read or written, guarded by this
+
+    /**
+     * Opens a cache in the given directory, creating the directory if needed and reading its index.
+     * An unreadable index is treated as empty. Each instance behaves like a separate process sharing the directory;
+     * libraries use {@link #open} instead.
+     *
+     * @param dir the cache directory
+     * @throws IOException if the directory cannot be created
+     */
+    DiskDefinitionCache(Path dir) throws IOException {
+        this.dir = Files.createDirectories(dir);
+        this.indexModified = modifiedTime(indexFile());
+        this.index = readIndex(indexFile());
+    }
+
+    /**
+     * Returns the cache of the given directory, opening it on first use. All callers in this process that name
+     * the same directory share one instance.
+     *
+     * @param dir the cache directory
+     * @return the shared cache
+     * @throws IOException if the directory cannot be created
+     */
+    public static DiskDefinitionCache open(Path dir) throws IOException {
+        Path key = dir.toAbsolutePath().normalize();
+        DiskDefinitionCache cache = INSTANCES.get(key);
+        if (cache != null) return cache;
+        synchronized (INSTANCES) {
+            cache = INSTANCES.get(key);
+            if (cache == null) {
+                cache = new DiskDefinitionCache(key);
+                INSTANCES.put(key, cache);
+            }
+            return cache;
+        }
+    }
+
+    /**
+     * Returns the index entry of a definition URL, re-reading the index first if another process has changed it.
+     *
+     * @param url the definition URL
+     * @return the entry, or null if the URL has not been stored
+     */
+    public synchronized Entry get(String url) {
+        FileTime modified = modifiedTime(indexFile());
+        if (modified != null && !modified.equals(indexModified)) {
+            indexModified = modified;
+            index = readIndex(indexFile());
+        }
+        return index.get(url);
+    }
+
+    /**
+     * Parses the stored definition of an index entry. The content is checked against its hash while it is read.
+     *
+     * @param entry  the index entry
+     * @param parser the parser that consumes the BPMN XML
+     * @param <T>    the type of the parsed result
+     * @return the result of the parser
+     * @throws IOException if the definition file is missing, corrupt or cannot be parsed
+     */
+    public <T> T read(Entry entry, BpmnStreamParser<T> parser) throws IOException {
+        MessageDigest digest = DigestUtils.getSha256Digest();
+        T value;
+        try (InputStream file = Files.newInputStream(file(entry.hash()))) {
+            InputStream in = new TeeInputStream(new DigestInputStream(file, digest), OutputStream.nullOutputStream());
+            value = parser.parse(in);
+            in.transferTo(OutputStream.nullOutputStream());
+        }
+        if (!Hex.encodeHexString(digest.digest()).equals(entry.hash())) {
+            throw new IOException("Cached definition does not match its hash: " + entry.hash());
+        }
+        return value;
+    }
+
+    /**
+     * Wraps a parser so that the XML it consumes is also written to the cache directory under its hash.
+     * The returned result carries the hash, which is then recorded for a URL through {@link #put}.
+     *
+     * @param parser the parser that consumes the BPMN XML
+     * @param <T>    the type of the parsed result
+     * @return a parser producing the result of the given parser together with the hash of the XML
+     */
+    public <T> BpmnStreamParser<Stored<T>> persisting(BpmnStreamParser<T> parser) {
+        return xml -> {
+            Path tmp = Files.createTempFile(dir, "definition", ".tmp");
+            try {
+                MessageDigest digest = DigestUtils.getSha256Digest();
+                T value;
+                try (OutputStream out = Files.newOutputStream(tmp)) {
+                    InputStream in = new TeeInputStream(new DigestInputStream(xml, digest), out);
+                    value = parser.parse(in);
+                    // Parsers may stop at the end of the root element; the rest still belongs to the content
+                    in.transferTo(OutputStream.nullOutputStream());
+                }
+                String hash = Hex.encodeHexString(digest.digest());
+                // Replacing an existing file of the same hash also repairs a damaged copy
+                move(tmp, file(hash));
+                return new Stored<>(value, hash);
+            } finally {
+                Files.deleteIfExists(tmp);
+            }
+        };
+    }
+
+    /**
+     * Records the stored definition of a URL together with the validators of the response it came from,
+     * and removes the file of the URL's previous definition if no other URL refers to it.
+     * The index is re-read and updated under the directory's file lock, so that entries recorded by other
+     * processes in the meantime are kept.
+     *
+     * @param url          the definition URL
+     * @param hash         the hash returned by a {@link #persisting} parser
+     * @param etag         the ETag of the response, or null if absent
+     * @param lastModified the Last-Modified header of the response, or null if absent
+     * @throws IOException if the definition file has been removed meanwhile or the index cannot be written
+     */
+    public synchronized void put(String url, String hash, String etag, String lastModified) throws IOException {
+        try (FileChannel channel = FileChannel.open(dir.resolve(LOCK_FILE), StandardOpenOption.CREATE, StandardOpenOption.WRITE)) {
+            FileLock lock = channel.lock();
+            try {
+                // Another process may have replaced its last reference, and removed it, since it was stored
+                if (!Files.exists(file(hash))) throw new NoSuchFileException(file(hash).toString());
+                Map<String, Entry> merged = readIndex(indexFile());
+                Entry previous = merged.put(url, new Entry(hash, etag, lastModified, System.currentTimeMillis()));
+                writeIndex(merged);
+                index = merged;
+                indexModified = modifiedTime(indexFile());
+                if (previous != null && !previous.hash().equals(hash)
+                        && merged.values().stream().noneMatch(e -> e.hash().equals(previous.hash()))) {
+                    Files.deleteIfExists(file(previous.hash()));
+                    Files.deleteIfExists(compiledFile(previous.hash()));
+                }
+            } finally {
+                lock.release();
+            }
+        }
+    }
+
+    /**
+     * Returns the location of the {@link CompiledGraphFile} compiled from the definition with the given hash.
+     * The file is written and read by the caller; the cache only removes it together with its definition.
+     *
+     * @param hash the hash of the definition
+     * @return the path of the compiled graph file, which may not exist
+     */
+    public Path compiledFile(String hash) {
+        return dir.resolve(hash + COMPILED_SUFFIX);
+    }
+
+    private Path file(String hash) {
+        return dir.resolve(hash + SUFFIX);
+    }
+
+    private Path indexFile() {
+        return dir.resolve(INDEX_FILE);
+    }
+
+    private static FileTime modifiedTime(Path file) {
+        try {
+            return Files.getLastModifiedTime(file);
+        } catch (IOException e) {
+            // No index yet
+            return null;
+        }
+    }
+
+    private static Map<String, Entry> readIndex(Path file) {
+        if (!Files.exists(file)) return new HashMap<>();
+        try (InputStream in = Files.newInputStream(file)) {
+            return new HashMap<>(JsonUtil.MAPPER.readValue(in, new TypeReference<Map<String, Entry>>() {}));
+        } catch (IOException e) {
+            // A damaged index only costs a download; it is rewritten by the next put
+            return new HashMap<>();
+        }
+    }
+
+    private void writeIndex(Map<String, Entry> entries) throws IOException {
+        Path tmp = Files.createTempFile(dir, "index", ".tmp");
+        try {
+            JsonUtil.MAPPER.writeValue(tmp.toFile(), entries);
+            move(tmp, indexFile());
+        } finally {
+            Files.deleteIfExists(tmp);
+        }
+    }
+
+    private static void move(Path source, Path target) throws IOException {
+        try {
+            Files.move(source, target, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+        } catch (AtomicMoveNotSupportedException e) {
+            Files.move(source, target, StandardCopyOption.REPLACE_EXISTING);
+        }
+    }
+
+    /**
+     * Index entry of a stored definition.
+     *
+     * @param hash           the SHA-256 hash of the BPMN XML, in lower-case hex
+     * @param etag           the ETag of the response the definition was stored from, or null if absent
+     * @param lastModified   the Last-Modified header of that response, or null if absent
+     * @param storedAtMillis the time at which the definition was stored, in milliseconds since the epoch
+     */
+    public record Entry(String hash, String etag, String lastModified, long storedAtMillis) {
+
+        /**
+         * Checks whether the entry is younger than the given maximum age.
+         *
+         * @param maxAgeMs  the maximum age in milliseconds; values less than or equal to zero are never fresh
+         * @param nowMillis the current time in milliseconds since the epoch
+         * @return true if the stored definition may be used without revalidating it
+         */
+        public boolean isFresh(long maxAgeMs, long nowMillis) {
+            return maxAgeMs > 0 && nowMillis - storedAtMillis < maxAgeMs;
+        }
+    }
+
+    /**
+     * Result of a {@link #persisting} parser.
+     *
+     * @param value the result of the wrapped parser
+     * @param hash  the hash under which the XML was stored
+     * @param <T>   the type of the parsed result
+     */
+    public record Stored<T>(T value, String hash) {}
+
+    /**
+     * Input stream that copies every byte it reads to an output stream.
+     * Closing it leaves the source open, so the rest of the content can still be drained after parsers that close their input.
+     */
+    private static final class TeeInputStream extends FilterInputStream {
+        private final OutputStream copy; // Receives the bytes read
+
+        TeeInputStream(InputStream in, OutputStream copy) {
+            super(in);
+            this.copy = copy;
+        }
+
+        @Override
+        public int read() throws IOException {
+            int b = in.read();
+            if (b >= 0) copy.write(b);
+            return b;
+        }
+
+        @Override
+        public int read(byte[] b, int off, int len) throws IOException {
+            int n = in.read(b, off, len);
+            if (n > 0) copy.write(b, off, n);
+            return n;
+        }
+
+        @Override
+        public long skip(long n) throws IOException {
+            // Skipped bytes must still be copied
+            byte[] buf = new byte[(int) Math.min(n, 8192)];
+            int read = read(buf, 0, buf.length);
+            return Math.max(read, 0);
+        }
+
+        @Override
+        public boolean markSupported() {
+            return false;
+        }
+
+        @Override
+        public void close() {
+            // The source is closed by its owner
+        }
+    }
+}
@@ -0,0 +1,158 @@
+package com.CamundaEnver;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.nio.file.attribute.FileTime;
+
+/**
+ * Loads a BPMN definition from a raw {@code .bpmn} file on the local file system.
+ * Small files are read through an NIO input stream; files of at least {@link #MMAP_THRESHOLD} bytes
+ * are memory-mapped, so that the parser reads straight from the page cache.
+ * <p>
+ * The file counts as modified when its size or last modification time differs from the last successful load.
+ */
+public class FileBpmnSource implements BpmnSource {
+    public static final long MMAP_THRESHOLD = 1 << 20; // Files of at least this many bytes are memory-mapped
+
+    private final Path file; // File holding the BPMN XML
+    private volatile Stamp loaded; // Size and modification time of the last successful load, null until then
+
+    /**
+     * Constructs a source for the given file.
+     *
+     * @param file the BPMN XML file
+     */
+    public FileBpmnSource(Path file) {
+        this.file = file;
+    }
+
+    /**
+     * Returns the file this source reads.
+     *
+     * @return the BPMN XML file
+     */
+    public Path file() {
+        return file;
+    }
+
+    /**
+     * Returns the identifier of this source.
+     *
+     * @return the URI of the file
+     */
+    @Override
+    public String id() {
+        return file.toUri().toString();
+    }
+
+    /**
+     * Parses the file.
+     *
+     * @param parser the parser that consumes the BPMN XML
+     * @param <T>    the type of the parsed result
+     * @return the result of the parser
+     * @throws IOException if the file cannot be read or parsed
+     */
+    @Override
+    public <T> T fetch(BpmnStreamParser<T> parser) throws IOException {
+        return read(null, parser);
+    }
+
+    /**
+     * Parses the file unless its size and modification time are unchanged since the last successful load.
+     *
+     * @param parser the parser that consumes the BPMN XML
+     * @param <T>    the type of the parsed result
+     * @return the result of the parser, or null if the file is unchanged
+     * @throws IOException if the file cannot be read or parsed
+     */
+    @Override
+    public <T> T fetchIfModified(BpmnStreamParser<T> parser) throws IOException {
+        return read(loaded, parser);
+    }
+
+    /**
+     * Parses the file unless its stamp equals the given one.
+     *
+     * @param previous the stamp of the last successful load, or null to read unconditionally
+     * @param parser   the parser that consumes the BPMN XML
+     * @param <T>      the type of the parsed result
+     * @return the result of the parser, or null if previous is not null and the file is unchanged
+     * @throws IOException if the file cannot be read or parsed
+     */
+    private <T> T read(Stamp previous, BpmnStreamParser<T> parser) throws IOException {
+        Stamp stamp = Stamp.of(file);
+        if (stamp.equals(previous)) return null;
+        T value;
+        try (FileChannel ch = FileChannel.open(file, StandardOpenOption.READ)) {
+            long size = ch.size();
+            if (size >= MMAP_THRESHOLD && size <= Integer.MAX_VALUE) {
+                value = parser.parse(new ByteBufferInputStream(ch.map(FileChannel.MapMode.READ_ONLY, 0, size)));
+            } else {
+                value = parser.parse(Channels.newInputStream(ch));
+            }
+        }
+        // Recorded only after the parser has succeeded, so that a failed parse is retried in full
+        loaded = stamp;
+        return value;
+    }
+
+    /**
+     * Size and last modification time of a file.
+     *
+     * @param size         the file size in bytes
+     * @param lastModified the last modification time
+     */
+    record Stamp(long size, FileTime lastModified) {
+
+        static Stamp of(Path file) throws IOException {
+            BasicFileAttributes attrs = Files.readAttributes(file, BasicFileAttributes.class);
+            return new Stamp(attrs.size(), attrs.lastModifiedTime());
+        }
+    }
+
+    /**
+     * Input stream over a byte buffer, used to feed a memory-mapped file to a parser.
+     */
+    private static final class ByteBufferInputStream extends InputStream {
+        private final ByteBuffer buf; // Remaining content
+
+        ByteBufferInputStream(MappedByteBuffer buf) {
+            this.buf = buf;
+        }
+
+        @Override
+        public int read() {
+            return buf.hasRemaining() ? buf.get() & 0xFF : -1;
+        }
+
+        @Override
+        public int read(byte[] b, int off, int len) {
+            if (len == 0) return 0;
+            if (!buf.hasRemaining()) return -1;
+            int n = Math.min(len, buf.remaining());
+            buf.get(b, off, n);
+            return n;
+        }
+
+        @Override
+        public long skip(long n) {
+            int k = (int) Math.max(0, Math.min(n, buf.remaining()));
+            buf.position(buf.position() + k);
+            return k;
+        }
+
+        @Override
+        public int available() {
+            return buf.remaining();
+        }
+    }
+}
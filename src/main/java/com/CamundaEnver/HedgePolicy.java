@@ -0,0 +1,118 @@
+package com.CamundaEnver;
+
+import java.util.Arrays;
+
+/**
+ * Decides when a slow definition fetch is hedged with a second, identical request.
+ * <p>
+ * The policy keeps the latencies of the last {@code windowSize} answered requests. A request that has not been
+ * answered after the {@code percentile}-th percentile of those latencies, but never earlier than
+ * {@code minDelayMs}, is hedged: the fetcher sends the same request again, takes whichever answer arrives first and
+ * cancels the other. Until enough latencies have been observed, {@code initialDelayMs} is used instead. Hedging
+ * at the 95th percentile costs about 5% extra requests and cuts off the latency tail beyond it.
+ * <p>
+ * A policy is thread-safe and is meant to be shared by all fetchers talking to the same endpoint.
+ */
+public final class HedgePolicy {
+    private static final int MIN_SAMPLES = 10; // Latencies needed before the percentile replaces the initial delay
+
+    private final double percentile; // Percentile of the observed latencies after which a request is hedged
+    private final long minDelayMs; // Lower bound of the hedge delay
+    private final long initialDelayMs; // Hedge delay until enough latencies have been observed
+    private final long[] latencies; // Ring buffer of the most recent latencies in milliseconds, guarded by this
+    private int next; // Position of the next latency in the ring buffer, guarded by this
+    private int recorded; // Number of latencies in the ring buffer, guarded by this
+    private long hedges; // Hedged requests sent so far, guarded by this
+    private long hedgeWins; // Hedged requests that answered before the original request, guarded by this
+
+    /**
+     * Constructs a hedge policy.
+     *
+     * @param percentile     the percentile of the observed latencies after which a request is hedged, between 0 and 100
+     * @param minDelayMs     the minimum time in milliseconds before a request is hedged
+     * @param initialDelayMs the time in milliseconds before a request is hedged until enough latencies have been observed
+     * @param windowSize     the number of most recent latencies the percentile is computed over
+     * @throws IllegalArgumentException if percentile is not in (0, 100] or windowSize is not positive
+     */
+    public HedgePolicy(double percentile, long minDelayMs, long initialDelayMs, int windowSize) {
+        if (!(percentile > 0 && percentile <= 100)) throw new IllegalArgumentException("percentile must be in (0, 100]: " + percentile);
+        if (windowSize <= 0) throw new IllegalArgumentException("windowSize must be positive: " + windowSize);
+        this.percentile = percentile;
+        this.minDelayMs = minDelayMs;
+        this.initialDelayMs = initialDelayMs;
+        this.latencies = new long[windowSize];
+    }
+
+    /**
+     * Creates a hedge policy from configuration, or none if hedging is not enabled. Hedging is enabled by setting
+     * {@code HTTP_HEDGE_PERCENTILE} to the percentile to hedge at, for example 95; the other settings are
+     * {@code HTTP_HEDGE_MIN_DELAY_MS} (default 20), {@code HTTP_HEDGE_INITIAL_DELAY_MS} (1000) and
+     * {@code HTTP_HEDGE_WINDOW_SIZE} (100), or the corresponding {@code http.hedge.*} system properties.
+     *
+     * @return a new hedge policy, or null if hedging is disabled
+     */
+    public static HedgePolicy fromDefaults() {
+        int percentile = ConfigUtil.parseEnvOrProp("HTTP_HEDGE_PERCENTILE", "http.hedge.percentile", 0);
+        if (percentile <= 0) return null;
+        return new HedgePolicy(Math.min(percentile, 100),
+                ConfigUtil.parseEnvOrProp("HTTP_HEDGE_MIN_DELAY_MS", "http.hedge.min.delay.ms", 20),
+                ConfigUtil.parseEnvOrProp("HTTP_HEDGE_INITIAL_DELAY_MS", "http.hedge.initial.delay.ms", 1000),
+                Math.max(1, ConfigUtil.parseEnvOrProp("HTTP_HEDGE_WINDOW_SIZE", "http.hedge.window.size", 100)));
+    }
+
+    /**
+     * Returns the time after which an unanswered request is hedged.
+     *
+     * @return the hedge delay in milliseconds
+     */
+    public synchronized long delayMillis() {
+        if (recorded < Math.min(MIN_SAMPLES, latencies.length)) return Math.max(minDelayMs, initialDelayMs);
+        long[] sorted = Arrays.copyOf(latencies, recorded);
+        Arrays.sort(sorted);
+        int rank = (int) Math.ceil(percentile / 100 * recorded) - 1; // Nearest-rank percentile
+        return Math.max(minDelayMs, sorted[Math.max(0, rank)]);
+    }
+
+    /**
+     * Records the latency of an answered request.
+     *
+     * @param elapsedMs the time from sending the request until its response, in milliseconds
+     */
+    public synchronized void recordLatency(long elapsedMs) {
+        latencies[next] = elapsedMs;
+        next = (next + 1) % latencies.length;
+        if (recorded < latencies.length) recorded++;
+    }
+
+    /**
+     * Records a hedged request that has been sent.
+     */
+    synchronized void recordHedge() {
+        hedges++;
+    }
+
+    /**
+     * Records a hedged request whose answer was taken instead of the original request's.
+     */
+    synchronized void recordHedgeWin() {
+        hedgeWins++;
+    }
+
+    /**
+     * Returns the number of hedged requests sent so far.
+     *
+     * @return the hedge count
+     */
+    public synchronized long hedges() {
+        return hedges;
+    }
+
+    /**
+     * Returns the number of hedged requests that answered before the request they duplicated.
+     *
+     * @return the number of hedges that won
+     */
+    public synchronized long hedgeWins() {
+        return hedgeWins;
+    }
+}
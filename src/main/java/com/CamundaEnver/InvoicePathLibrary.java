@@ -5,33 +5,176 @@ import org.camunda.bpm.model.bpmn.BpmnModelInstance;
 import org.camunda.bpm.model.bpmn.instance.FlowNode;
 
 import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
 
 /**
  * Reusable library for finding BPMN node paths.
  * This class provides functionality to fetch BPMN models and find the shortest path
  * between two nodes identified by their IDs.
+ * <p>
+ * A library created through the constructor is single-use: the first query fetches the model
+ * and closes the underlying HTTP client. A library created through {@link #session} keeps the
+ * client open and answers queries from a cached {@link ModelSnapshot}, which is reloaded when
+ * it exceeds the configured maximum age or when {@link #refresh()} is called.
+ * <p>
+ * While the circuit breaker of the HTTP source is open, an expired snapshot keeps being served instead of
+ * failing the query; see {@link CircuitBreaker}.
+ * <p>
+ * A session created through {@link #staleWhileRevalidate} never reloads on the query path once
+ * its first snapshot is loaded: queries are answered from the current snapshot even if it has
+ * exceeded its maximum age, and a background task revalidates the definition and swaps in the result.
+ * <p>
+ * If a cache directory is configured through {@code BPMN_CACHE_DIR} or {@code bpmn.cache.dir}, every HTTP-fetched
+ * definition is persisted in a {@link DiskDefinitionCache}. A session then starts from the persisted copy without
+ * waiting for the network and revalidates it in the background. A single-use library uses the copy as is while it is
+ * younger than {@code BPMN_CACHE_MAX_AGE_MS} ({@code bpmn.cache.max.age.ms}, default 0); an older copy also answers
+ * the query at once, and is revalidated in the background before the source is closed, so that the next run starts
+ * from the current definition. A process that exits right after its query may cut that revalidation short; setting
+ * {@code BPMN_CACHE_BLOCKING_REVALIDATE} ({@code bpmn.cache.blocking.revalidate}) to 1 makes a single-use library
+ * revalidate an older copy with a conditional request before answering instead.
  */
 public class InvoicePathLibrary implements AutoCloseable {
     public static final String DEFAULT_URL = "https://n35ro2ic4d.execute-api.eu-central-1.amazonaws.com/prod/engine-rest/process-definition/key/invoice/xml";
+    private static final SingleFlight<String, ModelSnapshot> LOADS = new SingleFlight<>(); // Coalesces concurrent loads of a source ID across all libraries
 
-    private final ApacheBpmnFetcher fetcher; // Fetcher for retrieving BPMN XML data
+    private final BpmnSource source; // Source the BPMN XML is loaded from
+    private final ApacheBpmnFetcher http; // The source if it is an HTTP fetcher, whose responses can be persisted; null otherwise
     private final DefaultBpmnModelService modelService = new DefaultBpmnModelService(); // Service for parsing BPMN models
-    private final PathFinderService pathFinder = new PathFinderService(); // Service for finding paths in the BPMN model
+    private final PathFinderService pathFinder; // Service for finding paths in the BPMN model
+    private final BpmnStreamParser<ProcessGraph> compiler; // Compiles fetched XML into a ProcessGraph
+    private final boolean session; // Whether the source and the compiled model outlive a single query
+    private final long maxAgeMs; // Maximum snapshot age before a session reloads it, <= 0 for explicit refresh only
+    private final int allPairsMaxNodes; // Largest graph for which a session answers queries from an all-pairs index, 0 to disable
+    private final boolean reachabilityCheck; // Whether a session rejects unreachable pairs through the reachability index
+    private final int reachabilityMaxNodes; // Largest graph a reachability index is built for
+    private final ShortestPathTreeCache treeCache; // Shortest path trees per start node of a session, null if disabled
+    private final long refreshJitterMs; // Upper bound of the random delay added to each background refresh
+    private final ScheduledExecutorService refresher; // Runs background refreshes of a stale-while-revalidate session, null otherwise
+    private volatile Throwable lastRefreshFailure; // Failure of the most recent background refresh, null if it succeeded
+    private final DiskDefinitionCache diskCache; // Persisted copies of fetched definitions, null if disabled
+    private final long diskMaxAgeMs; // Age up to which a single-use library trusts the persisted copy without revalidating it
+    private final boolean diskBlockingRevalidate; // Whether a single-use library revalidates an older copy before answering
+    private final AtomicBoolean revalidatePersisted = new AtomicBoolean(); // Set when a session starts from a persisted copy
+    private volatile DiskDefinitionCache.Entry staleCopy; // Older persisted copy a single-use library answered from, null otherwise
+    private volatile ModelSnapshot snapshot; // Current compiled model of a session, null until first loaded
+    private final Thread shutdownHook; // Closes the source when the JVM shuts down, removed again by close()
 
     /**
-     * Constructs an InvoicePathLibrary with the specified parameters.
+     * Constructs a single-use InvoicePathLibrary with the specified parameters.
      *
      * @param url        the URL to fetch the BPMN XML from
      * @param timeoutMs  the timeout in milliseconds for fetching the XML
      * @param maxRetries the maximum number of retries for fetching the XML
      */
     public InvoicePathLibrary(String url, int timeoutMs, int maxRetries) {
-        this.fetcher = new ApacheBpmnFetcher(url, timeoutMs, maxRetries);
-        // Adds a shutdown hook to ensure that the fetcher is closed when the JVM shuts down
-        Runtime.getRuntime().addShutdownHook(new Thread(fetcher::close));
+        this(new ApacheBpmnFetcher(url, timeoutMs, maxRetries));
+    }
+
+    /**
+     * Constructs a single-use InvoicePathLibrary that loads the model from the given source.
+     *
+     * @param source the source to load the BPMN XML from; it is closed after the first query
+     */
+    public InvoicePathLibrary(BpmnSource source) {
+        this(source, false, 0, false, 0);
+    }
+
+    private InvoicePathLibrary(BpmnSource source, boolean session, long maxAgeMs, boolean background, long refreshJitterMs) {
+        this.source = source;
+        this.http = source instanceof ApacheBpmnFetcher f ? f : null;
+        // The StAX compiler is used unless the full Camunda model is requested through BPMN_USE_DOM / bpmn.use.dom
+        this.compiler = ConfigUtil.parseEnvOrProp("BPMN_USE_DOM", "bpmn.use.dom", 0) != 0
+                ? this::compileWithModel
+                : new BpmnGraphCompiler();
+        // Bidirectional search is opted into through BPMN_BIDIRECTIONAL / bpmn.bidirectional
+        this.pathFinder = new PathFinderService(ConfigUtil.parseEnvOrProp("BPMN_BIDIRECTIONAL", "bpmn.bidirectional", 0) != 0
+                ? PathFinderService.SearchMode.BIDIRECTIONAL
+                : PathFinderService.SearchMode.BFS);
+        this.session = session;
+        this.maxAgeMs = maxAgeMs;
+        this.allPairsMaxNodes = Math.min(AllPairsIndex.MAX_NODES,
+                ConfigUtil.parseEnvOrProp("BPMN_ALL_PAIRS_MAX_NODES", "bpmn.all.pairs.max.nodes", 0));
+        this.reachabilityCheck = session && ConfigUtil.parseEnvOrProp("BPMN_REACHABILITY_INDEX", "bpmn.reachability.index", 1) != 0;
+        // The closure grows with the square of the component count, so larger graphs are searched instead
+        this.reachabilityMaxNodes = Math.min(ReachabilityIndex.MAX_NODES,
+                ConfigUtil.parseEnvOrProp("BPMN_REACHABILITY_MAX_NODES", "bpmn.reachability.max.nodes", 4096));
+        int trees = ConfigUtil.parseEnvOrProp("BPMN_TREE_CACHE_SIZE", "bpmn.tree.cache.size", 16);
+        this.treeCache = session && trees > 0 ? new ShortestPathTreeCache(trees, pathFinder) : null;
+        this.refreshJitterMs = refreshJitterMs;
+        this.diskCache = http != null ? openDiskCache() : null;
+        this.diskMaxAgeMs = ConfigUtil.parseEnvOrProp("BPMN_CACHE_MAX_AGE_MS", "bpmn.cache.max.age.ms", 0);
+        this.diskBlockingRevalidate = ConfigUtil.parseEnvOrProp("BPMN_CACHE_BLOCKING_REVALIDATE", "bpmn.cache.blocking.revalidate", 0) != 0;
+        this.refresher = background ? newRefresher() : null;
+        if (refresher != null) scheduleRefresh();
+        // Adds a shutdown hook to ensure that the source is closed when the JVM shuts down
+        this.shutdownHook = new Thread(source::close);
+        Runtime.getRuntime().addShutdownHook(shutdownHook);
+    }
+
+    /**
+     * Creates a long-lived InvoicePathLibrary that fetches and compiles the model once
+     * and answers all subsequent queries from the cached snapshot.
+     *
+     * @param url        the URL to fetch the BPMN XML from
+     * @param timeoutMs  the timeout in milliseconds for fetching the XML
+     * @param maxRetries the maximum number of retries for fetching the XML
+     * @param maxAgeMs   the maximum age of the cached snapshot in milliseconds before it is reloaded on the next query;
+     *                   values less than or equal to zero disable automatic reloading
+     * @return a new session-mode InvoicePathLibrary
+     */
+    public static InvoicePathLibrary session(String url, int timeoutMs, int maxRetries, long maxAgeMs) {
+        return session(new ApacheBpmnFetcher(url, timeoutMs, maxRetries), maxAgeMs);
+    }
+
+    /**
+     * Creates a long-lived InvoicePathLibrary on top of an existing source, for example a local file
+     * or a fetcher that sends its requests through a {@link SharedHttpClient}.
+     *
+     * @param source   the source to load the BPMN XML from; it is closed together with the library
+     * @param maxAgeMs the maximum age of the cached snapshot in milliseconds before it is reloaded on the next query;
+     *                 values less than or equal to zero disable automatic reloading
+     * @return a new session-mode InvoicePathLibrary
+     */
+    public static InvoicePathLibrary session(BpmnSource source, long maxAgeMs) {
+        return new InvoicePathLibrary(source, true, maxAgeMs, false, 0);
+    }
+
+    /**
+     * Creates a long-lived InvoicePathLibrary with a stale-while-revalidate cache policy.
+     * Only the very first query waits for the model to be fetched; afterwards every query is answered at once
+     * from the current snapshot, while a background task revalidates the definition every
+     * {@code ttlMs} plus a random jitter of up to {@code jitterMs} and atomically swaps in the new snapshot.
+     * The jitter keeps many instances started together from revalidating in lockstep.
+     * A failed refresh keeps the previous snapshot and is retried on the next schedule.
+     *
+     * @param source   the source to load the BPMN XML from; it is closed together with the library
+     * @param ttlMs    the interval between background refreshes in milliseconds; must be positive
+     * @param jitterMs the maximum random delay in milliseconds added to each interval
+     * @return a new session-mode InvoicePathLibrary that refreshes its model in the background
+     * @throws IllegalArgumentException if ttlMs is not positive
+     */
+    public static InvoicePathLibrary staleWhileRevalidate(BpmnSource source, long ttlMs, long jitterMs) {
+        if (ttlMs <= 0) throw new IllegalArgumentException("ttlMs must be positive: " + ttlMs);
+        return new InvoicePathLibrary(source, true, ttlMs, true, Math.max(0, jitterMs));
     }
 
     /**
@@ -43,22 +186,604 @@ public class InvoicePathLibrary implements AutoCloseable {
      * @throws Exception if an error occurs during the fetching or processing of the BPMN model
      */
     public PathResult findPath(String startId, String endId) throws Exception {
-        try (fetcher) {
-            String xml = fetcher.fetchXml(); // Fetch the BPMN XML
-            BpmnModelInstance model = modelService.parseModel(xml); // Parse the XML into a BPMN model
-            Map<String, FlowNode> nodeMap = modelService.buildNodeMap(model); // Build a map of nodes
-
-            // Validate the provided node IDs
-            if (!nodeMap.containsKey(startId) || !nodeMap.containsKey(endId)) {
-                return new PathResult(false, "Invalid node IDs", List.of());
+        if (!session) {
+            try {
+                return findPath(loadSnapshot(), startId, endId);
+            } finally {
+                release();
+            }
+        }
+        return findPath(currentSnapshot(), startId, endId);
+    }
+
+    /**
+     * Finds the shortest path between two nodes without blocking the calling thread.
+     * If the model has to be loaded first, it is fetched with the non-blocking HTTP client and the
+     * search runs once the response has been compiled; a session whose snapshot is still fresh
+     * answers immediately.
+     *
+     * @param startId the ID of the starting node
+     * @param endId   the ID of the ending node
+     * @return a future completing with the PathResult, or exceptionally if the model cannot be fetched or processed
+     */
+    public CompletableFuture<PathResult> findPathAsync(String startId, String endId) {
+        if (!session) {
+            return loadSnapshotAsync()
+                    .thenApply(s -> findPath(s, startId, endId))
+                    .whenComplete((result, ex) -> release());
+        }
+        ModelSnapshot s = snapshot;
+        if (isServable(s)) {
+            return CompletableFuture.completedFuture(findPath(s, startId, endId));
+        }
+        AtomicBoolean led = new AtomicBoolean();
+        return LOADS.loadAsync(source.id(), () -> {
+            led.set(true);
+            // Another caller may have reloaded the snapshot since the check above
+            ModelSnapshot cur = snapshot;
+            return isServable(cur) ? CompletableFuture.completedFuture(cur) : loadSnapshotAsync();
+        }).handle((loaded, ex) -> {
+            if (ex == null) return adopt(loaded, led.get(), s);
+            Throwable cause = ex instanceof CompletionException && ex.getCause() != null ? ex.getCause() : ex;
+            // The endpoint is known to be failing; the last good snapshot is served until the breaker closes
+            if (cause instanceof CircuitBreaker.OpenException && s != null) return s;
+            throw new CompletionException(cause);
+        }).whenComplete((loaded, ex) -> revalidatePersisted()).thenApply(loaded -> findPath(loaded, startId, endId));
+    }
+
+    /**
+     * Finds the shortest paths for many (start, end) pairs against a single model snapshot,
+     * spreading the work across the common fork-join pool.
+     *
+     * @param queries the pairs of node IDs to find paths between
+     * @return a PathResult for every query, in the iteration order of queries
+     * @throws Exception if an error occurs during the fetching or processing of the BPMN model
+     */
+    public List<PathResult> findPaths(Collection<PathQuery> queries) throws Exception {
+        return findPaths(queries, ForkJoinPool.commonPool());
+    }
+
+    /**
+     * Finds the shortest paths for many (start, end) pairs against a single model snapshot.
+     * Queries are grouped by start node so that each distinct start needs only one breadth-first
+     * search, or one shortest path tree in a session, and the groups are solved in parallel on the given pool.
+     *
+     * @param queries the pairs of node IDs to find paths between
+     * @param pool    the pool to run the searches on
+     * @return a PathResult for every query, in the iteration order of queries
+     * @throws Exception if an error occurs during the fetching or processing of the BPMN model
+     */
+    public List<PathResult> findPaths(Collection<PathQuery> queries, ForkJoinPool pool) throws Exception {
+        if (!session) {
+            try {
+                return findPaths(loadSnapshot(), queries, pool);
+            } finally {
+                release();
+            }
+        }
+        return findPaths(currentSnapshot(), queries, pool);
+    }
+
+    /**
+     * Checks whether the end node is reachable from the start node without computing a path.
+     * The answer comes from the reachability index of the current snapshot, which is built once per model version,
+     * or from a search if the graph has more than {@code BPMN_REACHABILITY_MAX_NODES} nodes.
+     *
+     * @param startId the ID of the starting node
+     * @param endId   the ID of the ending node
+     * @return true if both nodes exist and the end node is reachable from the start node
+     * @throws Exception if an error occurs during the fetching or processing of the BPMN model
+     */
+    public boolean isReachable(String startId, String endId) throws Exception {
+        if (!session) {
+            try {
+                return isReachable(loadSnapshot(), startId, endId);
+            } finally {
+                release();
+            }
+        }
+        return isReachable(currentSnapshot(), startId, endId);
+    }
+
+    private boolean isReachable(ModelSnapshot snap, String startId, String endId) {
+        return snap.graph().size() <= reachabilityMaxNodes
+                ? snap.reachabilityIndex().isReachable(startId, endId)
+                : pathFinder.isReachable(snap.graph(), startId, endId);
+    }
+
+    /**
+     * Reloads the model of a session immediately, regardless of the age of the current snapshot.
+     * If a load of the same source ID is already in flight, in this or another library, the caller waits for it
+     * instead of starting another one.
+     *
+     * @return the newly loaded snapshot
+     * @throws IOException if an error occurs while fetching the BPMN model
+     */
+    public ModelSnapshot refresh() throws IOException {
+        ModelSnapshot before = snapshot;
+        AtomicBoolean led = new AtomicBoolean();
+        ModelSnapshot loaded = LOADS.load(source.id(), () -> {
+            led.set(true);
+            return loadSnapshot();
+        });
+        ModelSnapshot published = adopt(loaded, led.get(), before);
+        revalidatePersisted();
+        return published;
+    }
+
+    /**
+     * Returns the snapshot that queries of a session are answered from, loading it first
+     * if there is none yet or if it has exceeded the maximum age.
+     * Concurrent callers that find the snapshot missing or expired share a single fetch and compilation,
+     * and so do the callers of other libraries over a source with the same ID, such as the same definition URL.
+     *
+     * @return the current snapshot
+     * @throws IOException if an error occurs while fetching the BPMN model
+     */
+    public ModelSnapshot currentSnapshot() throws IOException {
+        ModelSnapshot s = snapshot;
+        if (isServable(s)) return s;
+        AtomicBoolean led = new AtomicBoolean();
+        ModelSnapshot loaded;
+        try {
+            loaded = LOADS.load(source.id(), () -> {
+                led.set(true);
+                // Another caller may have reloaded the snapshot since the check above
+                ModelSnapshot cur = snapshot;
+                return isServable(cur) ? cur : loadSnapshot();
+            });
+        } catch (CircuitBreaker.OpenException e) {
+            // The endpoint is known to be failing; the last good snapshot is served until the breaker closes
+            if (s == null) throw e;
+            return s;
+        }
+        ModelSnapshot published = adopt(loaded, led.get(), s);
+        revalidatePersisted();
+        return published;
+    }
+
+    /**
+     * Returns the failure of the most recent background refresh of a stale-while-revalidate session,
+     * or of the background revalidation of a persisted copy.
+     *
+     * @return the exception thrown by the last background refresh, or null if it succeeded or none has run yet
+     */
+    public Throwable lastRefreshFailure() {
+        return lastRefreshFailure;
+    }
+
+    /**
+     * Checks whether queries may be answered from the given snapshot without reloading it first.
+     * A stale-while-revalidate session serves any loaded snapshot, leaving expiry to the background refresh.
+     *
+     * @param s the snapshot to check, or null if none is loaded
+     * @return true if the snapshot can be served as is
+     */
+    private boolean isServable(ModelSnapshot s) {
+        return s != null && (refresher != null || !s.isExpired(maxAgeMs, System.currentTimeMillis()));
+    }
+
+    private static ScheduledExecutorService newRefresher() {
+        ScheduledThreadPoolExecutor executor = new ScheduledThreadPoolExecutor(1, r -> {
+            Thread t = new Thread(r, "bpmn-model-refresh");
+            t.setDaemon(true);
+            return t;
+        });
+        executor.setRemoveOnCancelPolicy(true);
+        return executor;
+    }
+
+    /**
+     * Schedules the next background refresh after the TTL plus a random jitter.
+     * Each refresh schedules its successor, so a slow refresh delays the next one instead of overlapping it.
+     */
+    private void scheduleRefresh() {
+        long delay = maxAgeMs + (refreshJitterMs > 0 ? ThreadLocalRandom.current().nextLong(refreshJitterMs + 1) : 0);
+        try {
+            refresher.schedule(this::backgroundRefresh, delay, TimeUnit.MILLISECONDS);
+        } catch (RejectedExecutionException ignored) {
+            // The library has been closed
+        }
+    }
+
+    private void backgroundRefresh() {
+        try {
+            // Nothing is revalidated before the first query has loaded a snapshot
+            if (snapshot != null) refresh();
+            lastRefreshFailure = null;
+        } catch (IOException | RuntimeException e) {
+            // Queries keep being answered from the previous snapshot until a refresh succeeds
+            lastRefreshFailure = e;
+        } finally {
+            scheduleRefresh();
+        }
+    }
+
+    /**
+     * Makes a snapshot from a shared load current. The load may have been run by another library, whose first
+     * snapshot may be a persisted copy that only that library would revalidate, so a session revalidates it as well.
+     *
+     * @param loaded the loaded snapshot
+     * @param led    whether this library ran the load
+     * @param before the snapshot of this library before the load, or null if it had none
+     * @return the current snapshot
+     */
+    private ModelSnapshot adopt(ModelSnapshot loaded, boolean led, ModelSnapshot before) {
+        if (!led && before == null && session && diskCache != null) revalidatePersisted.set(true);
+        return publish(loaded);
+    }
+
+    /**
+     * Makes a loaded snapshot current, building its enabled indexes first so that queries never wait for them.
+     * Loads shared with other libraries can complete in any order, so a snapshot older than the current one is ignored.
+     *
+     * @param s the snapshot to publish
+     * @return the current snapshot
+     */
+    private ModelSnapshot publish(ModelSnapshot s) {
+        if (usesAllPairs(s)) s.allPairsIndex();
+        if (usesReachability(s)) s.reachabilityIndex();
+        synchronized (this) {
+            ModelSnapshot cur = snapshot;
+            if (cur == null || s.version() > cur.version()
+                    || (s.version() == cur.version() && s.loadedAtMillis() >= cur.loadedAtMillis())) {
+                snapshot = s;
+            }
+            return snapshot;
+        }
+    }
+
+    private boolean usesAllPairs(ModelSnapshot s) {
+        return session && s.graph().size() <= allPairsMaxNodes;
+    }
+
+    private boolean usesReachability(ModelSnapshot s) {
+        return reachabilityCheck && s.graph().size() <= reachabilityMaxNodes;
+    }
+
+    /**
+     * Fetches, parses and compiles the BPMN model into a new snapshot.
+     * If a snapshot is already cached, the fetch is conditional and an unchanged definition
+     * only refreshes the load time of the cached snapshot instead of being parsed again.
+     *
+     * @return the compiled snapshot
+     * @throws IOException if an error occurs while fetching the BPMN model
+     */
+    private ModelSnapshot loadSnapshot() throws IOException {
+        ModelSnapshot current = snapshot;
+        if (current == null) {
+            ModelSnapshot persisted = loadPersisted();
+            return persisted != null ? persisted : fetchSnapshot(false);
+        }
+        return nextSnapshot(current, fetchSnapshot(true));
+    }
+
+    /**
+     * Asynchronous counterpart of {@link #loadSnapshot()}. The returned snapshot is not published.
+     * The first load of a library with a disk cache reads the persisted copy on the common pool.
+     *
+     * @return a future completing with the compiled snapshot
+     */
+    private CompletableFuture<ModelSnapshot> loadSnapshotAsync() {
+        ModelSnapshot current = snapshot;
+        if (current == null && diskCache != null) {
+            return CompletableFuture.supplyAsync(() -> {
+                try {
+                    return loadSnapshot();
+                } catch (IOException e) {
+                    throw new CompletionException(e);
+                }
+            });
+        }
+        if (current == null) return fetchSnapshotAsync(false);
+        return fetchSnapshotAsync(true).thenApply(fetched -> nextSnapshot(current, fetched));
+    }
+
+    /**
+     * Loads the first snapshot from the persisted copy of the definition.
+     * A session uses the copy immediately and revalidates it in the background once the load has completed.
+     * A single-use library uses a fresh copy as is; an older copy is revalidated once the query has been answered,
+     * or before it is read if revalidation is configured to block.
+     *
+     * @return the snapshot, or null if there is no persisted copy
+     * @throws IOException if an error occurs while fetching the BPMN model
+     */
+    private ModelSnapshot loadPersisted() throws IOException {
+        if (diskCache == null) return null;
+        DiskDefinitionCache.Entry entry = diskCache.get(source.id());
+        if (entry == null) return null;
+        long now = System.currentTimeMillis();
+        http.seedValidators(entry.etag(), entry.lastModified());
+        boolean stale = !session && !entry.isFresh(diskMaxAgeMs, now);
+        if (stale && diskBlockingRevalidate) {
+            stale = false;
+            try {
+                ModelSnapshot changed = fetchSnapshot(true);
+                if (changed != null) return changed;
+                // Unchanged: restart the age of the persisted copy
+                persist(entry.hash(), entry.etag(), entry.lastModified());
+            } catch (CircuitBreaker.OpenException e) {
+                // The endpoint is known to be failing; the persisted copy is the last good definition
+            }
+        }
+        try {
+            ModelSnapshot s = readPersisted(entry, now);
+            if (session) revalidatePersisted.set(true);
+            if (stale) staleCopy = entry;
+            return s;
+        } catch (IOException | RuntimeException e) {
+            // A missing or damaged copy is replaced by a full download
+            return fetchSnapshot(false);
+        }
+    }
+
+    /**
+     * Reads a persisted definition, preferring its compiled graph file over parsing the XML.
+     * A compiled graph file that is missing, damaged or compiled from other content is rebuilt from the XML.
+     *
+     * @param entry the index entry of the persisted definition
+     * @param now   the load time of the snapshot in milliseconds since the epoch
+     * @return the snapshot
+     * @throws IOException if the persisted XML is missing, damaged or cannot be parsed
+     */
+    private ModelSnapshot readPersisted(DiskDefinitionCache.Entry entry, long now) throws IOException {
+        String hash = entry.hash();
+        Path compiled = diskCache.compiledFile(hash);
+        if (Files.exists(compiled)) {
+            try {
+                CompiledGraphFile.Contents contents = modelService.readSnapshot(compiled);
+                if (hash.equals(contents.sourceHash())) return new ModelSnapshot(contents.graph(), contents.reachability(), now);
+            } catch (IOException e) {
+                // Falls through to recompiling the XML, which also replaces the damaged file
             }
-            // Find the shortest path between the start and end nodes
-            List<String> path = pathFinder.findShortestPath(nodeMap, startId, endId);
-            if (path.isEmpty()) {
-                return new PathResult(false, "No path found", List.of());
+        }
+        return compiled(hash, diskCache.read(entry, compiler), now);
+    }
+
+    /**
+     * Starts a background revalidation of a session snapshot that was loaded from the disk cache.
+     * Runs at most once per persisted load, after the load has completed.
+     */
+    private void revalidatePersisted() {
+        if (!revalidatePersisted.compareAndSet(true, false)) return;
+        CompletableFuture.runAsync(() -> {
+            try {
+                refresh();
+            } catch (IOException | RuntimeException e) {
+                lastRefreshFailure = e;
             }
-            return new PathResult(true, "Path found", path); // Return the successful path result
+        });
+    }
+
+    /**
+     * Closes the source of a single-use library once its query has been answered. If the query was answered from
+     * an older persisted copy, the copy is revalidated in the background first and replaced if the definition changed.
+     */
+    private void release() {
+        DiskDefinitionCache.Entry entry = staleCopy;
+        if (entry == null) {
+            source.close();
+            return;
         }
+        staleCopy = null;
+        CompletableFuture.runAsync(() -> {
+            try {
+                // Unchanged: restart the age of the persisted copy
+                if (fetchSnapshot(true) == null) persist(entry.hash(), entry.etag(), entry.lastModified());
+            } catch (IOException | RuntimeException e) {
+                // The next run revalidates the copy again
+                lastRefreshFailure = e;
+            } finally {
+                source.close();
+            }
+        });
+    }
+
+    /**
+     * Fetches and compiles the definition into a new snapshot, persisting it if a disk cache is configured.
+     *
+     * @param conditional whether to skip an unchanged definition
+     * @return the new snapshot, or null if conditional and the definition is unchanged
+     * @throws IOException if an error occurs while fetching the BPMN model
+     */
+    private ModelSnapshot fetchSnapshot(boolean conditional) throws IOException {
+        if (diskCache == null) {
+            ProcessGraph graph = conditional ? source.fetchIfModified(compiler) : source.fetch(compiler);
+            return graph != null ? new ModelSnapshot(graph, System.currentTimeMillis()) : null;
+        }
+        BpmnStreamParser<DiskDefinitionCache.Stored<ProcessGraph>> parser = diskCache.persisting(compiler);
+        DiskDefinitionCache.Stored<ProcessGraph> stored = conditional ? source.fetchIfModified(parser) : source.fetch(parser);
+        return stored != null ? persisted(stored) : null;
+    }
+
+    /**
+     * Asynchronous counterpart of {@link #fetchSnapshot}.
+     *
+     * @param conditional whether to skip an unchanged definition
+     * @return a future completing with the new snapshot, or with null if conditional and the definition is unchanged
+     */
+    private CompletableFuture<ModelSnapshot> fetchSnapshotAsync(boolean conditional) {
+        if (diskCache == null) {
+            return (conditional ? source.fetchIfModifiedAsync(compiler) : source.fetchAsync(compiler))
+                    .thenApply(graph -> graph != null ? new ModelSnapshot(graph, System.currentTimeMillis()) : null);
+        }
+        BpmnStreamParser<DiskDefinitionCache.Stored<ProcessGraph>> parser = diskCache.persisting(compiler);
+        return (conditional ? source.fetchIfModifiedAsync(parser) : source.fetchAsync(parser))
+                .thenApply(stored -> stored != null ? persisted(stored) : null);
+    }
+
+    private ModelSnapshot persisted(DiskDefinitionCache.Stored<ProcessGraph> stored) {
+        persist(stored.hash(), http.etag(), http.lastModified());
+        return compiled(stored.hash(), stored.value(), System.currentTimeMillis());
+    }
+
+    private void persist(String hash, String etag, String lastModified) {
+        try {
+            diskCache.put(source.id(), hash, etag, lastModified);
+        } catch (IOException ignored) {
+            // The disk cache is best effort; the loaded model is used regardless
+        }
+    }
+
+    /**
+     * Creates a snapshot for a graph compiled from persisted XML and writes its compiled graph file,
+     * including the reachability index if the library uses one, so that the next start skips parsing.
+     *
+     * @param hash  the hash of the XML the graph was compiled from
+     * @param graph the compiled graph
+     * @param now   the load time of the snapshot in milliseconds since the epoch
+     * @return the snapshot
+     */
+    private ModelSnapshot compiled(String hash, ProcessGraph graph, long now) {
+        ReachabilityIndex reachability = reachabilityCheck && graph.size() <= reachabilityMaxNodes
+                ? ReachabilityIndex.build(graph)
+                : null;
+        try {
+            modelService.writeSnapshot(graph, reachability, hash, diskCache.compiledFile(hash));
+        } catch (IOException ignored) {
+            // The graph is recompiled from the XML on the next start
+        }
+        return new ModelSnapshot(graph, reachability, now);
+    }
+
+    private static DiskDefinitionCache openDiskCache() {
+        String dir = Optional.ofNullable(System.getenv("BPMN_CACHE_DIR")).orElseGet(() -> System.getProperty("bpmn.cache.dir"));
+        if (dir == null || dir.isBlank()) return null;
+        try {
+            return DiskDefinitionCache.open(Path.of(dir));
+        } catch (IOException e) {
+            // An unusable cache directory disables persistence instead of failing every query
+            return null;
+        }
+    }
+
+    /**
+     * Derives the next snapshot from the result of a conditional fetch.
+     *
+     * @param current the current snapshot
+     * @param fetched the snapshot of a changed definition, or null if the definition is unchanged
+     * @return the fetched snapshot, or the current one revalidated
+     */
+    private static ModelSnapshot nextSnapshot(ModelSnapshot current, ModelSnapshot fetched) {
+        return fetched != null ? fetched : current.revalidated(System.currentTimeMillis());
+    }
+
+    /**
+     * Compiles BPMN XML through the full Camunda model instead of the StAX compiler.
+     *
+     * @param xml the UTF-8 encoded BPMN XML
+     * @return the compiled graph
+     */
+    private ProcessGraph compileWithModel(InputStream xml) {
+        BpmnModelInstance model = modelService.parseModel(xml); // Parse the streamed XML into a BPMN model
+        Map<String, FlowNode> nodeMap = modelService.buildNodeMap(model); // Build a map of nodes
+        return modelService.compileGraph(nodeMap);
+    }
+
+    /**
+     * Finds the shortest path between two nodes of the given snapshot.
+     *
+     * @param snap    the snapshot to search
+     * @param startId the ID of the starting node
+     * @param endId   the ID of the ending node
+     * @return a PathResult containing success status, message, and the path as a list of node IDs
+     */
+    private PathResult findPath(ModelSnapshot snap, String startId, String endId) {
+        ProcessGraph graph = snap.graph();
+        int start = graph.indexOf(startId), end = graph.indexOf(endId);
+        PathResult shortcut = checkQuery(snap, start, end);
+        if (shortcut != null) return shortcut;
+        // Find the shortest path between the start and end nodes
+        if (usesAllPairs(snap)) return toResult(snap.allPairsIndex().path(start, end));
+        if (treeCache != null) return toResult(treeCache.get(snap, start).pathTo(end));
+        return toResult(pathFinder.findShortestPath(graph, start, end));
+    }
+
+    /**
+     * Answers a batch of queries from the given snapshot.
+     *
+     * @param snap    the snapshot to search
+     * @param queries the pairs of node IDs to find paths between
+     * @param pool    the pool to run the searches on
+     * @return a PathResult for every query, in the iteration order of queries
+     */
+    private List<PathResult> findPaths(ModelSnapshot snap, Collection<PathQuery> queries, ForkJoinPool pool) {
+        List<PathQuery> list = List.copyOf(queries);
+        PathResult[] results = new PathResult[list.size()];
+        // Group query positions by start node so that each start is searched only once
+        Map<String, List<Integer>> byStart = new HashMap<>();
+        for (int i = 0; i < list.size(); i++) {
+            byStart.computeIfAbsent(list.get(i).startId(), k -> new ArrayList<>()).add(i);
+        }
+        List<ForkJoinTask<?>> tasks = new ArrayList<>(byStart.size());
+        for (Map.Entry<String, List<Integer>> group : byStart.entrySet()) {
+            tasks.add(pool.submit(() -> solveGroup(snap, group.getKey(), group.getValue(), list, results)));
+        }
+        // Each group writes distinct slots of results; joining publishes them to this thread
+        for (ForkJoinTask<?> task : tasks) task.join();
+        return Arrays.asList(results);
+    }
+
+    /**
+     * Answers all queries that share a start node, with at most one search from that node.
+     *
+     * @param snap      the snapshot to search
+     * @param startId   the ID of the common starting node
+     * @param positions the positions of the group's queries in list
+     * @param list      all queries of the batch
+     * @param results   receives the result of each query at its position
+     */
+    private void solveGroup(ModelSnapshot snap, String startId, List<Integer> positions, List<PathQuery> list, PathResult[] results) {
+        ProcessGraph graph = snap.graph();
+        int start = graph.indexOf(startId);
+        int[] ends = new int[positions.size()], searched = new int[positions.size()];
+        int count = 0;
+        ShortestPathTree tree = null;
+        for (int i : positions) {
+            int end = graph.indexOf(list.get(i).endId());
+            PathResult shortcut = checkQuery(snap, start, end);
+            if (shortcut != null) {
+                results[i] = shortcut;
+            } else if (usesAllPairs(snap)) {
+                results[i] = toResult(snap.allPairsIndex().path(start, end));
+            } else if (treeCache != null) {
+                if (tree == null) tree = treeCache.get(snap, start);
+                results[i] = toResult(tree.pathTo(end));
+            } else {
+                ends[count] = end;
+                searched[count++] = i;
+            }
+        }
+        if (count == 0) return;
+        List<List<String>> paths = pathFinder.findShortestPaths(graph, start, Arrays.copyOf(ends, count));
+        for (int k = 0; k < count; k++) results[searched[k]] = toResult(paths.get(k));
+    }
+
+    /**
+     * Answers a query without searching if its node IDs are invalid or the end node is known to be unreachable.
+     *
+     * @param snap  the snapshot to search
+     * @param start the index of the starting node, or -1 if unknown
+     * @param end   the index of the ending node, or -1 if unknown
+     * @return the result of the query, or null if a search is needed
+     */
+    private PathResult checkQuery(ModelSnapshot snap, int start, int end) {
+        // Validate the provided node IDs
+        if (start < 0 || end < 0) {
+            return new PathResult(false, "Invalid node IDs", List.of());
+        }
+        // Reject unreachable pairs without searching
+        if (usesReachability(snap) && !snap.reachabilityIndex().isReachable(start, end)) {
+            return new PathResult(false, "No path found", List.of());
+        }
+        return null;
+    }
+
+    private static PathResult toResult(List<String> path) {
+        if (path.isEmpty()) {
+            return new PathResult(false, "No path found", List.of());
+        }
+        return new PathResult(true, "Path found", path); // Return the successful path result
     }
 
     /**
@@ -77,7 +802,14 @@ public class InvoicePathLibrary implements AutoCloseable {
      */
     @Override
     public void close() {
-        fetcher.close(); // Close the fetcher to release resources
+        if (refresher != null) refresher.shutdownNow(); // Stop background refreshes
+        source.close(); // Close the source to release resources
+        try {
+            // The hook would otherwise keep this library's source reachable until the JVM exits
+            Runtime.getRuntime().removeShutdownHook(shutdownHook);
+        } catch (IllegalStateException e) {
+            // The JVM is already shutting down and runs the hook anyway
+        }
     }
 
     /**
@@ -89,16 +821,77 @@ public class InvoicePathLibrary implements AutoCloseable {
      */
     public record PathResult(boolean success, String message, List<String> path) {}
 
+    /**
+     * A pair of node IDs to find a path between, for use with {@link #findPaths(Collection)}.
+     *
+     * @param startId the ID of the starting node
+     * @param endId   the ID of the ending node
+     */
+    public record PathQuery(String startId, String endId) {}
+
     /**
      * Creates an instance of InvoicePathLibrary using default configuration.
+     * If {@code BPMN_FILE} or {@code bpmn.file} names a local BPMN file, the model is read from that file
+     * instead of the REST API.
      *
      * @return a new instance of InvoicePathLibrary with default URL, timeout, and retries
      */
     public static InvoicePathLibrary fromDefaults() {
-        String url = Optional.ofNullable(System.getenv("BPMN_URL"))
+        Path file = defaultFile();
+        if (file != null) return new InvoicePathLibrary(new FileBpmnSource(file));
+        return new InvoicePathLibrary(defaultUrl(), defaultTimeout(), defaultRetries());
+    }
+
+    /**
+     * Creates a session-mode instance of InvoicePathLibrary using default configuration.
+     * The maximum snapshot age is read from {@code BPMN_MAX_AGE_MS} or {@code bpmn.max.age.ms}
+     * and defaults to zero, meaning the model is only reloaded through {@link #refresh()}.
+     * If {@code HTTP_SHARED_POOL} or {@code http.shared.pool} is non-zero, the session sends its requests
+     * through {@link SharedHttpClient#defaultInstance()} and warms up {@code HTTP_WARM_UP_CONNECTIONS}
+     * ({@code http.warm.up.connections}, default 1) connections to the definition URL.
+     * If {@code BPMN_STALE_WHILE_REVALIDATE} or {@code bpmn.stale.while.revalidate} is non-zero and the maximum age
+     * is positive, the session follows {@link #staleWhileRevalidate} with the maximum age as TTL and a jitter read from
+     * {@code BPMN_REFRESH_JITTER_MS} or {@code bpmn.refresh.jitter.ms} (default 0).
+     * As with {@link #fromDefaults()}, {@code BPMN_FILE} or {@code bpmn.file} selects a local file instead of the REST API.
+     *
+     * @return a new session-mode instance of InvoicePathLibrary with default URL, timeout, retries, and maximum age
+     */
+    public static InvoicePathLibrary sessionFromDefaults() {
+        int maxAge = ConfigUtil.parseEnvOrProp("BPMN_MAX_AGE_MS", "bpmn.max.age.ms", 0);
+        Path file = defaultFile();
+        BpmnSource source;
+        if (file != null) {
+            source = new FileBpmnSource(file);
+        } else if (ConfigUtil.parseEnvOrProp("HTTP_SHARED_POOL", "http.shared.pool", 0) == 0) {
+            source = new ApacheBpmnFetcher(defaultUrl(), defaultTimeout(), defaultRetries());
+        } else {
+            SharedHttpClient shared = SharedHttpClient.defaultInstance();
+            int warm = ConfigUtil.parseEnvOrProp("HTTP_WARM_UP_CONNECTIONS", "http.warm.up.connections", 1);
+            if (warm > 0) shared.warmUp(defaultUrl(), warm);
+            source = new ApacheBpmnFetcher(defaultUrl(), defaultTimeout(), shared);
+        }
+        if (maxAge > 0 && ConfigUtil.parseEnvOrProp("BPMN_STALE_WHILE_REVALIDATE", "bpmn.stale.while.revalidate", 0) != 0) {
+            int jitter = ConfigUtil.parseEnvOrProp("BPMN_REFRESH_JITTER_MS", "bpmn.refresh.jitter.ms", 0);
+            return staleWhileRevalidate(source, maxAge, jitter);
+        }
+        return session(source, maxAge);
+    }
+
+    private static Path defaultFile() {
+        String file = Optional.ofNullable(System.getenv("BPMN_FILE")).orElseGet(() -> System.getProperty("bpmn.file"));
+        return file == null || file.isBlank() ? null : Path.of(file);
+    }
+
+    private static String defaultUrl() {
+        return Optional.ofNullable(System.getenv("BPMN_URL"))
                 .orElseGet(() -> System.getProperty("bpmn.url", DEFAULT_URL));
-        int timeout = ConfigUtil.parseEnvOrProp("HTTP_TIMEOUT_MS", "http.timeout.ms", 5000);
-        int retries = ConfigUtil.parseEnvOrProp("HTTP_MAX_RETRIES", "http.max.retries", 3);
-        return new InvoicePathLibrary(url, timeout, retries);
+    }
+
+    private static int defaultTimeout() {
+        return ConfigUtil.parseEnvOrProp("HTTP_TIMEOUT_MS", "http.timeout.ms", 5000);
+    }
+
+    private static int defaultRetries() {
+        return ConfigUtil.parseEnvOrProp("HTTP_MAX_RETRIES", "http.max.retries", 3);
     }
 }
\ No newline at end of file
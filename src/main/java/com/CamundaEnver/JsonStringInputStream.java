@@ -0,0 +1,193 @@
+package com.CamundaEnver;
+
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.Objects;
+
+/**
+ * Input stream that decodes the body of a JSON string literal into UTF-8 bytes on the fly.
+ * The underlying stream must be positioned just after the opening quote of a string in
+ * UTF-8 encoded JSON; this stream ends at the closing quote. Unescaped bytes are copied
+ * through unchanged, since the quote and backslash bytes never occur inside multi-byte
+ * UTF-8 sequences, and escape sequences are translated to their UTF-8 encoding.
+ * <p>
+ * This allows a large string value such as {@code bpmn20Xml} to be handed to an XML parser
+ * without ever materializing it as a String.
+ */
+final class JsonStringInputStream extends InputStream {
+    private static final int REPLACEMENT_CHAR = 0xFFFD; // Substitute for unpaired surrogates
+
+    private final InputStream in; // Raw JSON bytes following the opening quote
+    private final byte[] buf = new byte[8192]; // Read-ahead buffer over the raw JSON bytes
+    private int pos, limit; // Current read position and end of valid data in buf
+    private final byte[] pending = new byte[8]; // Decoded bytes of an escape sequence not yet returned
+    private int pendingPos, pendingLen; // Current read position and end of valid data in pending
+    private int carried = -1; // Code unit of an already consumed escape still to be decoded, or -1
+    private boolean done; // Whether the closing quote has been reached
+
+    /**
+     * Constructs a JsonStringInputStream over the given raw JSON bytes.
+     *
+     * @param in the stream positioned just after the opening quote of a JSON string
+     */
+    JsonStringInputStream(InputStream in) {
+        this.in = in;
+    }
+
+    @Override
+    public int read() throws IOException {
+        byte[] one = new byte[1];
+        return read(one, 0, 1) == -1 ? -1 : one[0] & 0xFF;
+    }
+
+    @Override
+    public int read(byte[] b, int off, int len) throws IOException {
+        Objects.checkFromIndexSize(off, len, b.length);
+        if (len == 0) return 0;
+        int n = 0;
+        while (n < len) {
+            if (pendingPos < pendingLen) {
+                b[off + n++] = pending[pendingPos++];
+                continue;
+            }
+            if (carried >= 0) {
+                int unit = carried;
+                carried = -1;
+                pendingPos = pendingLen = 0;
+                decodeUnicodeEscape(unit);
+                continue;
+            }
+            if (done) break;
+            if (pos == limit) {
+                if (n > 0) break; // Hand out what has been decoded before blocking again
+                if (!fill()) throw new EOFException("Unterminated JSON string");
+            }
+            byte c = buf[pos];
+            if (c == '"') {
+                pos++;
+                done = true;
+            } else if (c == '\\') {
+                pos++;
+                pendingPos = pendingLen = 0;
+                decodeEscape();
+            } else {
+                // Copy the run of plain bytes up to the next quote or backslash in one go
+                int start = pos, max = Math.min(limit, pos + (len - n));
+                while (pos < max && buf[pos] != '"' && buf[pos] != '\\') pos++;
+                System.arraycopy(buf, start, b, off + n, pos - start);
+                n += pos - start;
+            }
+        }
+        return n == 0 && done ? -1 : n;
+    }
+
+    @Override
+    public void close() throws IOException {
+        in.close();
+    }
+
+    /**
+     * Decodes the escape sequence following a backslash into the pending buffer.
+     *
+     * @throws IOException if the escape sequence is malformed or truncated
+     */
+    private void decodeEscape() throws IOException {
+        int c = nextByte();
+        switch (c) {
+            case '"', '\\', '/' -> pending[pendingLen++] = (byte) c;
+            case 'b' -> pending[pendingLen++] = '\b';
+            case 'f' -> pending[pendingLen++] = '\f';
+            case 'n' -> pending[pendingLen++] = '\n';
+            case 'r' -> pending[pendingLen++] = '\r';
+            case 't' -> pending[pendingLen++] = '\t';
+            case 'u' -> decodeUnicodeEscape(readHex4());
+            default -> throw new IOException("Invalid JSON escape: \\" + (char) c);
+        }
+    }
+
+    /**
+     * Decodes the code unit of a JSON unicode escape into the pending buffer, combining a high surrogate
+     * with the low surrogate escape that follows it. Unpaired surrogates become U+FFFD.
+     *
+     * @param unit the UTF-16 code unit of the escape
+     * @throws IOException if a following escape sequence is malformed or truncated
+     */
+    private void decodeUnicodeEscape(int unit) throws IOException {
+        if (!Character.isHighSurrogate((char) unit)) {
+            encode(Character.isLowSurrogate((char) unit) ? REPLACEMENT_CHAR : unit);
+            return;
+        }
+        if (peekByte() != '\\') {
+            encode(REPLACEMENT_CHAR);
+            return;
+        }
+        pos++;
+        if (peekByte() != 'u') {
+            encode(REPLACEMENT_CHAR);
+            decodeEscape();
+            return;
+        }
+        pos++;
+        int low = readHex4();
+        if (Character.isLowSurrogate((char) low)) {
+            encode(Character.toCodePoint((char) unit, (char) low));
+        } else {
+            // Decode the second unit on the next read so the pending buffer stays bounded
+            encode(REPLACEMENT_CHAR);
+            carried = low;
+        }
+    }
+
+    private int readHex4() throws IOException {
+        int v = 0;
+        for (int i = 0; i < 4; i++) {
+            int d = Character.digit(nextByte(), 16);
+            if (d < 0) throw new IOException("Invalid JSON unicode escape");
+            v = (v << 4) | d;
+        }
+        return v;
+    }
+
+    /**
+     * Appends the UTF-8 encoding of a code point to the pending buffer.
+     *
+     * @param cp the code point to encode
+     */
+    private void encode(int cp) {
+        if (cp < 0x80) {
+            pending[pendingLen++] = (byte) cp;
+        } else if (cp < 0x800) {
+            pending[pendingLen++] = (byte) (0xC0 | (cp >> 6));
+            pending[pendingLen++] = (byte) (0x80 | (cp & 0x3F));
+        } else if (cp < 0x10000) {
+            pending[pendingLen++] = (byte) (0xE0 | (cp >> 12));
+            pending[pendingLen++] = (byte) (0x80 | ((cp >> 6) & 0x3F));
+            pending[pendingLen++] = (byte) (0x80 | (cp & 0x3F));
+        } else {
+            pending[pendingLen++] = (byte) (0xF0 | (cp >> 18));
+            pending[pendingLen++] = (byte) (0x80 | ((cp >> 12) & 0x3F));
+            pending[pendingLen++] = (byte) (0x80 | ((cp >> 6) & 0x3F));
+            pending[pendingLen++] = (byte) (0x80 | (cp & 0x3F));
+        }
+    }
+
+    private int nextByte() throws IOException {
+        int c = peekByte();
+        pos++;
+        return c;
+    }
+
+    private int peekByte() throws IOException {
+        if (pos == limit && !fill()) throw new EOFException("Unterminated JSON string");
+        return buf[pos] & 0xFF;
+    }
+
+    private boolean fill() throws IOException {
+        int r = in.read(buf, 0, buf.length);
+        if (r <= 0) return false;
+        pos = 0;
+        limit = r;
+        return true;
+    }
+}
@@ -0,0 +1,141 @@
+package com.CamundaEnver;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * A compiled BPMN definition together with the bookkeeping needed to decide when it must be reloaded.
+ * Snapshots are immutable; a refresh publishes a new snapshot instead of modifying the current one,
+ * so queries that already hold a snapshot keep a consistent view of the graph.
+ * <p>
+ * Search indexes derived from the graph are built lazily, at most once per graph, and are shared
+ * with revalidated copies of the snapshot; a snapshot for a changed definition starts without any.
+ */
+public final class ModelSnapshot {
+    private static final AtomicLong VERSIONS = new AtomicLong(); // Source of unique snapshot versions
+
+    private final ProcessGraph graph; // Compiled flow graph
+    private final long version; // Unique, increasing version of the compiled content
+    private final long loadedAtMillis; // Wall clock time at which the content was last confirmed as current
+    private final Indexes indexes; // Lazily built indexes over the graph, shared by all snapshots of the same version
+
+    /**
+     * Constructs a new snapshot for a freshly compiled graph.
+     *
+     * @param graph          the compiled flow graph
+     * @param loadedAtMillis the time at which the graph was loaded, in milliseconds since the epoch
+     */
+    public ModelSnapshot(ProcessGraph graph, long loadedAtMillis) {
+        this(graph, VERSIONS.incrementAndGet(), loadedAtMillis, new Indexes());
+    }
+
+    /**
+     * Constructs a new snapshot for a graph whose reachability index is already known,
+     * for example because both were read from a {@link CompiledGraphFile}.
+     *
+     * @param graph          the compiled flow graph
+     * @param reachability   the reachability index of the graph, or null to build it on first use
+     * @param loadedAtMillis the time at which the graph was loaded, in milliseconds since the epoch
+     */
+    ModelSnapshot(ProcessGraph graph, ReachabilityIndex reachability, long loadedAtMillis) {
+        this(graph, loadedAtMillis);
+        indexes.reachability = reachability;
+    }
+
+    private ModelSnapshot(ProcessGraph graph, long version, long loadedAtMillis, Indexes indexes) {
+        this.graph = graph;
+        this.version = version;
+        this.loadedAtMillis = loadedAtMillis;
+        this.indexes = indexes;
+    }
+
+    /**
+     * Returns the compiled flow graph.
+     *
+     * @return the graph held by this snapshot
+     */
+    public ProcessGraph graph() {
+        return graph;
+    }
+
+    /**
+     * Returns the version of this snapshot. Two snapshots share a version only if they hold the same graph.
+     *
+     * @return the snapshot version
+     */
+    public long version() {
+        return version;
+    }
+
+    /**
+     * Returns the time at which the content of this snapshot was last loaded or confirmed as current.
+     *
+     * @return the load time in milliseconds since the epoch
+     */
+    public long loadedAtMillis() {
+        return loadedAtMillis;
+    }
+
+    /**
+     * Returns a copy of this snapshot that has been confirmed as current at the given time,
+     * for example after the server answered a conditional request with 304 Not Modified.
+     * The copy keeps the graph and the version of this snapshot.
+     *
+     * @param nowMillis the time of the confirmation in milliseconds since the epoch
+     * @return the revalidated snapshot
+     */
+    public ModelSnapshot revalidated(long nowMillis) {
+        return new ModelSnapshot(graph, version, nowMillis, indexes);
+    }
+
+    /**
+     * Returns the all-pairs shortest path index of the graph, building it on first use.
+     *
+     * @return the all-pairs index
+     * @throws IllegalArgumentException if the graph is too large for an all-pairs index
+     */
+    public AllPairsIndex allPairsIndex() {
+        AllPairsIndex idx = indexes.allPairs;
+        if (idx == null) {
+            synchronized (indexes) {
+                idx = indexes.allPairs;
+                if (idx == null) indexes.allPairs = idx = AllPairsIndex.build(graph);
+            }
+        }
+        return idx;
+    }
+
+    /**
+     * Checks whether this snapshot is older than the given maximum age.
+     *
+     * @param maxAgeMs  the maximum age in milliseconds; values less than or equal to zero never expire
+     * @param nowMillis the current time in milliseconds since the epoch
+     * @return true if the snapshot should be reloaded, false otherwise
+     */
+    public boolean isExpired(long maxAgeMs, long nowMillis) {
+        return maxAgeMs > 0 && nowMillis - loadedAtMillis >= maxAgeMs;
+    }
+
+    /**
+     * Returns the reachability index of the graph, building it on first use.
+     *
+     * @return the reachability index
+     */
+    public ReachabilityIndex reachabilityIndex() {
+        ReachabilityIndex idx = indexes.reachability;
+        if (idx == null) {
+            synchronized (indexes) {
+                idx = indexes.reachability;
+                if (idx == null) indexes.reachability = idx = ReachabilityIndex.build(graph);
+            }
+        }
+        return idx;
+    }
+
+    /**
+     * Holder for the indexes derived from one graph.
+     */
+    private static final class Indexes {
+        volatile AllPairsIndex allPairs; // All-pairs shortest path index, null until first requested
+        volatile ReachabilityIndex reachability; // Transitive closure, null until first requested
+    }
+}
@@ -0,0 +1,268 @@
+package com.CamundaEnver;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Immutable, compiled view of the flow nodes and sequence flows of a BPMN process.
+ * Unlike the Camunda model instance, a compiled graph is safe to share between threads
+ * and can answer any number of path queries without touching the underlying DOM.
+ * <p>
+ * Flow node IDs are interned to dense indexes {@code 0..size()-1}, and outgoing edges are stored in
+ * compressed sparse row form: the successors of node {@code n} are
+ * {@code targets[offsets[n]] .. targets[offsets[n + 1] - 1]}, in the order the sequence flows were added.
+ * Incoming edges are stored the same way in {@code inOffsets} / {@code inSources} for searches that run backwards.
+ * Search algorithms work on the indexes only and map back to IDs when producing results.
+ */
+public final class ProcessGraph {
+    private final String[] ids; // Node index -> flow node ID
+    private final Map<String, Integer> index; // Flow node ID -> node index
+    private final int[] offsets; // Start of each node's edges in targets, with a trailing entry equal to the edge count
+    private final int[] targets; // Target node index of every edge, grouped by source node
+    private final int[] inOffsets; // Start of each node's incoming edges in inSources, with a trailing entry equal to the edge count
+    private final int[] inSources; // Source node index of every edge, grouped by target node
+
+    private ProcessGraph(String[] ids, Map<String, Integer> index, int[] offsets, int[] targets, int[] inOffsets, int[] inSources) {
+        this.ids = ids;
+        this.index = index;
+        this.offsets = offsets;
+        this.targets = targets;
+        this.inOffsets = inOffsets;
+        this.inSources = inSources;
+    }
+
+    /**
+     * Creates a graph from arrays in compressed sparse row form, for example read back from a {@link CompiledGraphFile}.
+     * The arrays are used as is and must not be modified afterwards.
+     *
+     * @param ids       the flow node IDs by node index
+     * @param offsets   the start of each node's edges in targets, with a trailing entry equal to the edge count
+     * @param targets   the target node index of every edge, grouped by source node
+     * @param inOffsets the start of each node's incoming edges in inSources, with a trailing entry equal to the edge count
+     * @param inSources the source node index of every edge, grouped by target node
+     * @return the graph
+     */
+    static ProcessGraph fromCsr(String[] ids, int[] offsets, int[] targets, int[] inOffsets, int[] inSources) {
+        Map<String, Integer> index = new HashMap<>(ids.length * 4 / 3 + 1);
+        for (int i = 0; i < ids.length; i++) index.put(ids[i], i);
+        return new ProcessGraph(ids, Map.copyOf(index), offsets, targets, inOffsets, inSources);
+    }
+
+    /**
+     * Creates a builder for a new graph.
+     *
+     * @return an empty builder
+     */
+    public static Builder builder() {
+        return new Builder();
+    }
+
+    /**
+     * Checks whether the graph contains a flow node with the given ID.
+     *
+     * @param id the flow node ID, possibly null
+     * @return true if the node is part of the graph, false otherwise
+     */
+    public boolean contains(String id) {
+        return id != null && index.containsKey(id);
+    }
+
+    /**
+     * Returns the index of the given flow node.
+     *
+     * @param id the flow node ID, possibly null
+     * @return the node index, or -1 if the node is unknown or the ID is null
+     */
+    public int indexOf(String id) {
+        if (id == null) return -1; // The immutable index map rejects null keys
+        Integer i = index.get(id);
+        return i != null ? i : -1;
+    }
+
+    /**
+     * Returns the ID of the flow node with the given index.
+     *
+     * @param node the node index
+     * @return the flow node ID
+     */
+    public String idOf(int node) {
+        return ids[node];
+    }
+
+    /**
+     * Returns the direct successors of the given flow node.
+     *
+     * @param id the flow node ID
+     * @return the IDs of the targets of the node's outgoing sequence flows, or an empty list if the node is unknown
+     */
+    public List<String> successors(String id) {
+        int n = indexOf(id);
+        if (n < 0) return List.of();
+        String[] next = new String[offsets[n + 1] - offsets[n]];
+        for (int e = offsets[n]; e < offsets[n + 1]; e++) next[e - offsets[n]] = ids[targets[e]];
+        return List.of(next);
+    }
+
+    /**
+     * Maps a path of node indexes back to flow node IDs.
+     *
+     * @param path   the node indexes
+     * @param length the number of leading entries of path to map
+     * @return an immutable list of the corresponding flow node IDs
+     */
+    public List<String> toIds(int[] path, int length) {
+        String[] out = new String[length];
+        for (int i = 0; i < length; i++) out[i] = ids[path[i]];
+        return Collections.unmodifiableList(Arrays.asList(out));
+    }
+
+    /**
+     * Returns the number of flow nodes in the graph.
+     *
+     * @return the node count
+     */
+    public int size() {
+        return ids.length;
+    }
+
+    /**
+     * Returns the number of sequence flows between flow nodes in the graph.
+     *
+     * @return the edge count
+     */
+    public int edgeCount() {
+        return targets.length;
+    }
+
+    /**
+     * Estimates the heap footprint of the graph, for caches that are bounded by memory rather than entry count.
+     * The estimate assumes compressed object pointers and compact Latin-1 strings.
+     *
+     * @return the approximate number of bytes retained by the graph
+     */
+    public long estimatedBytes() {
+        long n = ids.length, m = targets.length;
+        long bytes = 16 + 16 + 4 * n; // this and the ids array
+        for (String id : ids) bytes += 40 + id.length(); // String header and value array
+        bytes += 16 + 8 * n + 16 * n; // index table with its boxed values
+        bytes += 4 * 16 + 4 * (2 * (n + 1) + 2 * m); // the four CSR arrays
+        return bytes;
+    }
+
+    /**
+     * Returns the CSR offsets array. The array is shared and must not be modified.
+     *
+     * @return the offsets, of length {@code size() + 1}
+     */
+    int[] offsets() {
+        return offsets;
+    }
+
+    /**
+     * Returns the CSR targets array. The array is shared and must not be modified.
+     *
+     * @return the edge targets, of length {@code edgeCount()}
+     */
+    int[] targets() {
+        return targets;
+    }
+
+    /**
+     * Returns the reverse CSR offsets array. The array is shared and must not be modified.
+     *
+     * @return the offsets of the incoming edges, of length {@code size() + 1}
+     */
+    int[] inOffsets() {
+        return inOffsets;
+    }
+
+    /**
+     * Returns the reverse CSR sources array. The array is shared and must not be modified.
+     *
+     * @return the edge sources grouped by target node, of length {@code edgeCount()}
+     */
+    int[] inSources() {
+        return inSources;
+    }
+
+    /**
+     * Collects flow nodes and sequence flows and compiles them into a ProcessGraph.
+     * Nodes must be added before the edges that reference them.
+     */
+    public static final class Builder {
+        private final Map<String, Integer> index = new HashMap<>();
+        private String[] ids = new String[16];
+        private int[] sources = new int[16], dests = new int[16]; // Edge list in insertion order
+        private int nodeCount, edgeCount;
+
+        private Builder() {
+        }
+
+        /**
+         * Adds a flow node unless a node with the same ID already exists.
+         *
+         * @param id the flow node ID
+         * @return the index of the node
+         */
+        public int addNode(String id) {
+            Integer existing = index.get(id);
+            if (existing != null) return existing;
+            if (nodeCount == ids.length) ids = Arrays.copyOf(ids, nodeCount * 2);
+            ids[nodeCount] = id;
+            index.put(id, nodeCount);
+            return nodeCount++;
+        }
+
+        /**
+         * Adds a sequence flow between two previously added flow nodes.
+         *
+         * @param sourceId the ID of the source node
+         * @param targetId the ID of the target node
+         * @return true if the edge was added, false if either node is unknown
+         */
+        public boolean addEdge(String sourceId, String targetId) {
+            Integer s = index.get(sourceId), t = index.get(targetId);
+            if (s == null || t == null) return false;
+            if (edgeCount == sources.length) {
+                sources = Arrays.copyOf(sources, edgeCount * 2);
+                dests = Arrays.copyOf(dests, edgeCount * 2);
+            }
+            sources[edgeCount] = s;
+            dests[edgeCount] = t;
+            edgeCount++;
+            return true;
+        }
+
+        /**
+         * Compiles the collected nodes and edges into an immutable graph.
+         *
+         * @return the compiled graph
+         */
+        public ProcessGraph build() {
+            int[] offsets = new int[nodeCount + 1], inOffsets = new int[nodeCount + 1];
+            int[] targets = new int[edgeCount], inSources = new int[edgeCount];
+            group(sources, dests, offsets, targets);
+            group(dests, sources, inOffsets, inSources);
+            return new ProcessGraph(Arrays.copyOf(ids, nodeCount), Map.copyOf(index), offsets, targets, inOffsets, inSources);
+        }
+
+        /**
+         * Groups the edge list by key node into CSR form.
+         * The stable counting sort keeps each node's edges in insertion order.
+         *
+         * @param keys    the node each edge is grouped by
+         * @param values  the node stored for each edge
+         * @param offsets receives the CSR offsets, of length nodeCount + 1
+         * @param out     receives the grouped values, of length edgeCount
+         */
+        private void group(int[] keys, int[] values, int[] offsets, int[] out) {
+            for (int e = 0; e < edgeCount; e++) offsets[keys[e] + 1]++;
+            for (int n = 0; n < nodeCount; n++) offsets[n + 1] += offsets[n];
+            int[] fill = Arrays.copyOf(offsets, nodeCount);
+            for (int e = 0; e < edgeCount; e++) out[fill[keys[e]]++] = values[e];
+        }
+    }
+}
@@ -0,0 +1,541 @@
+package com.CamundaEnver;
+
+import com.fasterxml.jackson.databind.JsonNode;
+
+import java.io.FileNotFoundException;
+import java.io.IOException;
+import java.net.URLEncoder;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+/**
+ * Holds the compiled graphs of many process definitions, identified by process definition key and version,
+ * and routes path queries to the right one.
+ * <p>
+ * Definitions are loaded on first use through a {@link SourceFactory}, typically one that sends all requests
+ * through a single {@link SharedHttpClient}; concurrent first uses of the same definition share one load, and so do
+ * concurrent first loads of sources with the same ID, such as the same definition URL, across registries.
+ * Only the compact {@link ProcessGraph} of each definition is retained, never a model instance, and the
+ * total estimated size of the retained graphs is bounded: once it exceeds the limit, the least recently used
+ * definitions are evicted and loaded again on their next use. The most recently used definition is always kept,
+ * even if it alone exceeds the limit.
+ * <p>
+ * With a positive maximum age, a definition is revalidated on the first use after its snapshot has expired;
+ * an unchanged definition keeps its compiled graph. Definitions addressed by process definition ID, and specific
+ * versions, which the engine resolves to an ID, are immutable: they are kept until evicted and never revalidated.
+ */
+public final class ProcessGraphRegistry implements AutoCloseable {
+    public static final int LATEST = 0; // Version that stands for the latest deployed version of a key
+    private static final SingleFlight<String, ProcessGraph> FETCHES = new SingleFlight<>(); // Coalesces first fetches of a source ID across all registries
+
+    private final SourceFactory sources; // Opens the source of a definition on its first use
+    private final BpmnStreamParser<ProcessGraph> compiler = new BpmnGraphCompiler(); // Compiles fetched XML into a ProcessGraph
+    private final PathFinderService pathFinder; // Service for finding paths in the compiled graphs
+    private final long maxBytes; // Upper bound of the estimated size of all retained graphs
+    private final long maxAgeMs; // Maximum snapshot age before a definition is revalidated, <= 0 to never revalidate
+    private final SingleFlight<DefinitionRef, Entry> loads = new SingleFlight<>(); // Coalesces concurrent loads per definition
+    private final Map<DefinitionRef, Entry> entries = new LinkedHashMap<>(16, 0.75f, true); // Access-ordered, guarded by this
+    private long totalBytes; // Estimated size of all retained graphs, guarded by this
+    private long evictions; // Number of definitions evicted so far, guarded by this
+    private volatile BulkLoadProgress lastPreload; // Progress of the most recent bulk load, null if none was started
+
+    /**
+     * Constructs an empty registry.
+     *
+     * @param sources  opens the source of a definition on its first use
+     * @param maxBytes the upper bound of the estimated size of all retained graphs in bytes
+     * @param maxAgeMs the maximum age of a snapshot in milliseconds before the definition is revalidated on its next use;
+     *                 values less than or equal to zero disable revalidation
+     */
+    public ProcessGraphRegistry(SourceFactory sources, long maxBytes, long maxAgeMs) {
+        this.sources = sources;
+        this.maxBytes = maxBytes;
+        this.maxAgeMs = maxAgeMs;
+        // Bidirectional search is opted into through BPMN_BIDIRECTIONAL / bpmn.bidirectional, as for InvoicePathLibrary
+        this.pathFinder = new PathFinderService(ConfigUtil.parseEnvOrProp("BPMN_BIDIRECTIONAL", "bpmn.bidirectional", 0) != 0
+                ? PathFinderService.SearchMode.BIDIRECTIONAL
+                : PathFinderService.SearchMode.BFS);
+    }
+
+    /**
+     * Creates a registry that loads definitions from the Camunda REST API through the process-wide shared client.
+     * The REST base URL is read from {@code CAMUNDA_REST_URL} or {@code camunda.rest.url} and defaults to the engine
+     * of {@link InvoicePathLibrary#DEFAULT_URL}. The memory bound and maximum age are read from
+     * {@code BPMN_REGISTRY_MAX_BYTES} (default 64 MiB) and {@code BPMN_REGISTRY_MAX_AGE_MS} (default 0),
+     * or the corresponding {@code bpmn.registry.*} system properties.
+     * <p>
+     * If {@code BPMN_REGISTRY_PRELOAD} or {@code bpmn.registry.preload} is set to a non-zero value, all deployed
+     * definitions are listed and loaded in the background with the parallelism given by
+     * {@code BPMN_REGISTRY_PRELOAD_PARALLELISM} (default 8); its progress is available through {@link #lastPreload()}.
+     *
+     * @return a new registry
+     */
+    public static ProcessGraphRegistry fromDefaults() {
+        String restUrl = Optional.ofNullable(System.getenv("CAMUNDA_REST_URL"))
+                .orElseGet(() -> System.getProperty("camunda.rest.url",
+                        InvoicePathLibrary.DEFAULT_URL.substring(0, InvoicePathLibrary.DEFAULT_URL.indexOf("/process-definition/"))));
+        int timeoutMs = ConfigUtil.parseEnvOrProp("HTTP_TIMEOUT_MS", "http.timeout.ms", 5000);
+        SharedHttpClient shared = SharedHttpClient.defaultInstance();
+        ProcessGraphRegistry registry = new ProcessGraphRegistry(
+                engineSources(restUrl, timeoutMs, shared),
+                ConfigUtil.parseEnvOrProp("BPMN_REGISTRY_MAX_BYTES", "bpmn.registry.max.bytes", 64 << 20),
+                ConfigUtil.parseEnvOrProp("BPMN_REGISTRY_MAX_AGE_MS", "bpmn.registry.max.age.ms", 0));
+        if (ConfigUtil.parseEnvOrProp("BPMN_REGISTRY_PRELOAD", "bpmn.registry.preload", 0) != 0) {
+            try {
+                registry.preloadAll(engineCatalog(restUrl, timeoutMs, shared),
+                        Math.max(1, ConfigUtil.parseEnvOrProp("BPMN_REGISTRY_PRELOAD_PARALLELISM", "bpmn.registry.preload.parallelism", 8)));
+            } catch (IOException e) {
+                // Preloading is best-effort; definitions are still loaded on first use
+            }
+        }
+        return registry;
+    }
+
+    /**
+     * Returns a factory for definitions deployed to a Camunda engine. The latest version of a key is fetched from
+     * {@code /process-definition/key/{key}/xml}; a specific version is first resolved to its definition ID through
+     * {@code /process-definition?key={key}&version={version}} and then fetched by ID. A definition addressed by ID
+     * is fetched from {@code /process-definition/{id}/xml} through {@link ApacheBpmnFetcher#forDefinitionId},
+     * so it is never revalidated. All requests go through the given shared client, which the registry never closes.
+     *
+     * @param restUrl   the base URL of the engine REST API, for example {@code https://host/engine-rest}
+     * @param timeoutMs the timeout in milliseconds for the HTTP requests
+     * @param shared    the shared client to send requests through
+     * @return the source factory
+     */
+    public static SourceFactory engineSources(String restUrl, int timeoutMs, SharedHttpClient shared) {
+        String base = restUrl.endsWith("/") ? restUrl.substring(0, restUrl.length() - 1) : restUrl;
+        return ref -> {
+            if (ref.id() != null) return ApacheBpmnFetcher.forDefinitionId(base, ref.id(), timeoutMs, shared);
+            if (ref.version() == LATEST) {
+                return new ApacheBpmnFetcher(base + "/process-definition/key/" + encode(ref.key()) + "/xml", timeoutMs, shared);
+            }
+            return ApacheBpmnFetcher.forDefinitionId(base, definitionId(base, ref, timeoutMs, shared), timeoutMs, shared);
+        };
+    }
+
+    /**
+     * Returns a factory for definitions stored as files in a local directory, as read by {@link DirectoryBpmnSource}.
+     * A directory holds a single version per key, so only {@link #LATEST} can be loaded.
+     *
+     * @param dir the directory holding the definitions
+     * @return the source factory
+     */
+    public static SourceFactory directorySources(Path dir) {
+        return ref -> {
+            if (ref.id() != null || ref.version() != LATEST) {
+                throw new FileNotFoundException("Only the latest version of a key can be loaded from " + dir + ": " + ref);
+            }
+            if (!DirectoryBpmnSource.isValidKey(ref.key())) {
+                throw new FileNotFoundException("Invalid definition key for " + dir + ": " + ref.key());
+            }
+            return new DirectoryBpmnSource(dir, ref.key());
+        };
+    }
+
+    /**
+     * Returns a catalog of the definitions deployed to a Camunda engine, listed through
+     * {@code /process-definition?latestVersion=true}. Every key is listed once, as its {@link #LATEST} version.
+     * The listing is retried and guarded by the circuit breaker of the shared client, like the definition fetches.
+     *
+     * @param restUrl   the base URL of the engine REST API, for example {@code https://host/engine-rest}
+     * @param timeoutMs the timeout in milliseconds for the HTTP request
+     * @param shared    the shared client to send the request through
+     * @return the catalog
+     */
+    public static Catalog engineCatalog(String restUrl, int timeoutMs, SharedHttpClient shared) {
+        String base = restUrl.endsWith("/") ? restUrl.substring(0, restUrl.length() - 1) : restUrl;
+        return () -> {
+            // Definitions of several tenants may share a key; each key is loaded once
+            Set<String> keys = new LinkedHashSet<>();
+            for (JsonNode d : ApacheBpmnFetcher.fetchJson(base + "/process-definition?latestVersion=true", timeoutMs, shared)) {
+                String key = d.path("key").asText(null);
+                if (key != null) keys.add(key);
+            }
+            List<DefinitionRef> refs = new ArrayList<>(keys.size());
+            for (String key : keys) refs.add(new DefinitionRef(key, LATEST));
+            return refs;
+        };
+    }
+
+    /**
+     * Returns a catalog of the definitions stored as files in a local directory, as read by {@link DirectoryBpmnSource}.
+     *
+     * @param dir the directory holding the definitions
+     * @return the catalog
+     */
+    public static Catalog directoryCatalog(Path dir) {
+        return () -> {
+            List<DefinitionRef> refs = new ArrayList<>();
+            for (String key : DirectoryBpmnSource.keys(dir)) refs.add(new DefinitionRef(key, LATEST));
+            return refs;
+        };
+    }
+
+    /**
+     * Lists all definitions of a catalog and loads them in the background, at most {@code parallelism} at a time.
+     * Definitions are loaded exactly as on first use, so queries arriving during the warm-up share the loads
+     * already in flight instead of starting their own. Loading more definitions than the memory bound can hold
+     * evicts the least recently used ones again. Failed definitions are recorded in the returned progress
+     * and loaded again on their first use.
+     *
+     * @param catalog     the catalog listing the definitions to load
+     * @param parallelism the maximum number of definitions fetched and compiled concurrently
+     * @return the progress of the bulk load
+     * @throws IOException if the catalog cannot be listed
+     * @throws IllegalArgumentException if parallelism is not positive
+     */
+    public BulkLoadProgress preloadAll(Catalog catalog, int parallelism) throws IOException {
+        return preload(catalog.list(), parallelism);
+    }
+
+    /**
+     * Loads the given definitions in the background, at most {@code parallelism} at a time.
+     *
+     * @param refs        the definitions to load
+     * @param parallelism the maximum number of definitions fetched and compiled concurrently
+     * @return the progress of the bulk load
+     * @throws IllegalArgumentException if parallelism is not positive
+     * @see #preloadAll(Catalog, int)
+     */
+    public BulkLoadProgress preload(Collection<DefinitionRef> refs, int parallelism) {
+        if (parallelism <= 0) throw new IllegalArgumentException("parallelism must be positive: " + parallelism);
+        Set<DefinitionRef> distinct = new LinkedHashSet<>(refs);
+        BulkLoadProgress progress = new BulkLoadProgress(distinct.size());
+        lastPreload = progress;
+        if (distinct.isEmpty()) return progress;
+        ExecutorService pool = Executors.newFixedThreadPool(Math.min(parallelism, distinct.size()), r -> {
+            Thread t = new Thread(r, "bpmn-bulk-load");
+            t.setDaemon(true);
+            return t;
+        });
+        for (DefinitionRef ref : distinct) {
+            pool.execute(() -> {
+                try {
+                    snapshot(ref);
+                    progress.recordSuccess();
+                } catch (Throwable e) {
+                    // Errors such as OutOfMemoryError are recorded too, so that the progress still reaches its total
+                    progress.recordFailure(ref, e);
+                    if (e instanceof Error error) throw error;
+                }
+            });
+        }
+        // Threads exit once the queued loads are done
+        pool.shutdown();
+        return progress;
+    }
+
+    /**
+     * Finds the shortest path between two nodes of the latest version of a definition.
+     *
+     * @param key     the process definition key
+     * @param startId the ID of the starting node
+     * @param endId   the ID of the ending node
+     * @return a PathResult containing success status, message, and the path as a list of node IDs
+     * @throws IOException if the definition cannot be loaded
+     */
+    public InvoicePathLibrary.PathResult findPath(String key, String startId, String endId) throws IOException {
+        return findPath(key, LATEST, startId, endId);
+    }
+
+    /**
+     * Finds the shortest path between two nodes of a specific version of a definition.
+     *
+     * @param key     the process definition key
+     * @param version the definition version, or {@link #LATEST}
+     * @param startId the ID of the starting node
+     * @param endId   the ID of the ending node
+     * @return a PathResult containing success status, message, and the path as a list of node IDs
+     * @throws IOException if the definition cannot be loaded
+     */
+    public InvoicePathLibrary.PathResult findPath(String key, int version, String startId, String endId) throws IOException {
+        return findPath(new DefinitionRef(key, version), startId, endId);
+    }
+
+    /**
+     * Finds the shortest path between two nodes of the definition with the given process definition ID,
+     * as known to every running process instance.
+     *
+     * @param definitionId the process definition ID
+     * @param startId      the ID of the starting node
+     * @param endId        the ID of the ending node
+     * @return a PathResult containing success status, message, and the path as a list of node IDs
+     * @throws IOException if the definition cannot be loaded
+     */
+    public InvoicePathLibrary.PathResult findPathById(String definitionId, String startId, String endId) throws IOException {
+        return findPath(DefinitionRef.byId(definitionId), startId, endId);
+    }
+
+    private InvoicePathLibrary.PathResult findPath(DefinitionRef ref, String startId, String endId) throws IOException {
+        ProcessGraph graph = snapshot(ref).graph();
+        // Validate the provided node IDs
+        if (!graph.contains(startId) || !graph.contains(endId)) {
+            return new InvoicePathLibrary.PathResult(false, "Invalid node IDs", List.of());
+        }
+        List<String> path = pathFinder.findShortestPath(graph, startId, endId);
+        if (path.isEmpty()) {
+            return new InvoicePathLibrary.PathResult(false, "No path found", List.of());
+        }
+        return new InvoicePathLibrary.PathResult(true, "Path found", path);
+    }
+
+    /**
+     * Returns the current snapshot of a definition, loading it first if it is not retained
+     * or revalidating it if it has exceeded the maximum age.
+     *
+     * @param key     the process definition key
+     * @param version the definition version, or {@link #LATEST}
+     * @return the current snapshot
+     * @throws IOException if the definition cannot be loaded
+     */
+    public ModelSnapshot snapshot(String key, int version) throws IOException {
+        return snapshot(new DefinitionRef(key, version));
+    }
+
+    /**
+     * Returns the snapshot of the definition with the given process definition ID, loading it first if it is not retained.
+     * The definition is immutable, so a retained snapshot is returned without revalidation.
+     *
+     * @param definitionId the process definition ID
+     * @return the snapshot
+     * @throws IOException if the definition cannot be loaded
+     */
+    public ModelSnapshot snapshotById(String definitionId) throws IOException {
+        return snapshot(DefinitionRef.byId(definitionId));
+    }
+
+    private ModelSnapshot snapshot(DefinitionRef ref) throws IOException {
+        Entry e;
+        synchronized (this) {
+            e = entries.get(ref);
+        }
+        if (e != null && !isStale(e, System.currentTimeMillis())) return e.snapshot();
+        return loads.load(ref, () -> load(ref)).snapshot();
+    }
+
+    /**
+     * Returns the number of definitions currently retained.
+     *
+     * @return the number of retained graphs
+     */
+    public synchronized int size() {
+        return entries.size();
+    }
+
+    /**
+     * Returns the estimated size of all retained graphs.
+     *
+     * @return the estimated number of bytes retained
+     */
+    public synchronized long estimatedBytes() {
+        return totalBytes;
+    }
+
+    /**
+     * Returns the number of definitions evicted to stay within the memory bound.
+     *
+     * @return the eviction count
+     */
+    public synchronized long evictions() {
+        return evictions;
+    }
+
+    /**
+     * Returns the progress of the most recent bulk load, such as the one started by {@link #fromDefaults()}.
+     *
+     * @return the bulk load progress, or null if no bulk load was started
+     */
+    public BulkLoadProgress lastPreload() {
+        return lastPreload;
+    }
+
+    /**
+     * Drops all retained graphs and closes their sources. Shared clients passed to a source factory stay open.
+     */
+    @Override
+    public void close() {
+        List<Entry> closed;
+        synchronized (this) {
+            closed = new ArrayList<>(entries.values());
+            entries.clear();
+            totalBytes = 0;
+        }
+        closed.forEach(e -> e.source().close());
+    }
+
+    /**
+     * Loads or revalidates a definition and retains the result.
+     *
+     * @param ref the definition to load
+     * @return the retained entry
+     * @throws IOException if the definition cannot be loaded
+     */
+    private Entry load(DefinitionRef ref) throws IOException {
+        long now = System.currentTimeMillis();
+        Entry cur;
+        synchronized (this) {
+            cur = entries.get(ref);
+        }
+        // Another caller may have loaded the definition since it was found missing or expired
+        if (cur != null && !isStale(cur, now)) return cur;
+        Entry next;
+        if (cur == null) {
+            BpmnSource source = sources.open(ref);
+            try {
+                // References resolving to the same definition, in this or another registry, share the fetch
+                ProcessGraph graph = FETCHES.load(source.id(), () -> source.fetch(compiler));
+                next = new Entry(source, new ModelSnapshot(graph, now), graph.estimatedBytes());
+            } catch (IOException | RuntimeException e) {
+                source.close();
+                throw e;
+            }
+        } else {
+            ProcessGraph graph;
+            try {
+                graph = cur.source().fetchIfModified(compiler);
+            } catch (CircuitBreaker.OpenException e) {
+                // The endpoint is known to be failing; the last good snapshot is served until the breaker closes
+                return cur;
+            }
+            next = graph == null
+                    ? new Entry(cur.source(), cur.snapshot().revalidated(now), cur.bytes())
+                    : new Entry(cur.source(), new ModelSnapshot(graph, now), graph.estimatedBytes());
+        }
+        retain(ref, next);
+        return next;
+    }
+
+    /**
+     * Checks whether an entry must be revalidated before it is used. Immutable definitions never are.
+     *
+     * @param e         the retained entry
+     * @param nowMillis the current time in milliseconds since the epoch
+     * @return true if the snapshot has expired and its definition can change
+     */
+    private boolean isStale(Entry e, long nowMillis) {
+        return !e.source().isImmutable() && e.snapshot().isExpired(maxAgeMs, nowMillis);
+    }
+
+    /**
+     * Stores an entry and evicts the least recently used other entries while the memory bound is exceeded.
+     *
+     * @param ref   the definition
+     * @param entry the entry to store
+     */
+    private void retain(DefinitionRef ref, Entry entry) {
+        List<Entry> evicted = new ArrayList<>();
+        synchronized (this) {
+            Entry prev = entries.put(ref, entry);
+            totalBytes += entry.bytes() - (prev != null ? prev.bytes() : 0);
+            // The entry just stored is the most recently used one, so it is never the eldest while others remain
+            Iterator<Entry> it = entries.values().iterator();
+            while (totalBytes > maxBytes && entries.size() > 1) {
+                Entry eldest = it.next();
+                it.remove();
+                totalBytes -= eldest.bytes();
+                evictions++;
+                evicted.add(eldest);
+            }
+        }
+        evicted.forEach(e -> e.source().close());
+    }
+
+    /**
+     * Resolves a specific version of a definition to its definition ID through the engine REST API,
+     * with the retries and circuit breaker of the shared client.
+     */
+    private static String definitionId(String base, DefinitionRef ref, int timeoutMs, SharedHttpClient shared) throws IOException {
+        JsonNode list = ApacheBpmnFetcher.fetchJson(base + "/process-definition?key=" + encode(ref.key()) + "&version=" + ref.version(), timeoutMs, shared);
+        // The engine filters by key and version; the first match is the definition of the default tenant, if any
+        for (JsonNode d : list) {
+            if (ref.key().equals(d.path("key").asText()) && d.path("version").asInt() == ref.version()) {
+                return d.path("id").asText();
+            }
+        }
+        throw new FileNotFoundException("No process definition " + ref);
+    }
+
+    private static String encode(String s) {
+        return URLEncoder.encode(s, StandardCharsets.UTF_8).replace("+", "%20");
+    }
+
+    /**
+     * Identifies a process definition either by key and version or by process definition ID.
+     *
+     * @param key     the process definition key, or null if the definition is identified by ID
+     * @param version the definition version, or {@link #LATEST} for the latest deployed version
+     * @param id      the process definition ID, or null if the definition is identified by key and version
+     */
+    public record DefinitionRef(String key, int version, String id) {
+
+        /**
+         * Identifies a process definition by key and version.
+         *
+         * @param key     the process definition key
+         * @param version the definition version, or {@link #LATEST} for the latest deployed version
+         */
+        public DefinitionRef(String key, int version) {
+            this(key, version, null);
+        }
+
+        /**
+         * Identifies a process definition by its process definition ID.
+         *
+         * @param definitionId the process definition ID
+         * @return the reference
+         */
+        public static DefinitionRef byId(String definitionId) {
+            return new DefinitionRef(null, LATEST, definitionId);
+        }
+    }
+
+    /**
+     * Lists the definitions to load in bulk.
+     */
+    @FunctionalInterface
+    public interface Catalog {
+        /**
+         * Lists the definitions.
+         *
+         * @return the definitions to load
+         * @throws IOException if the definitions cannot be listed
+         */
+        List<DefinitionRef> list() throws IOException;
+    }
+
+    /**
+     * Opens the source of a definition on its first use.
+     */
+    @FunctionalInterface
+    public interface SourceFactory {
+        /**
+         * Opens the source of a definition.
+         *
+         * @param ref the definition to load
+         * @return the source; it is closed when the definition is evicted or the registry is closed
+         * @throws IOException if the definition cannot be located
+         */
+        BpmnSource open(DefinitionRef ref) throws IOException;
+    }
+
+    /**
+     * A retained definition.
+     *
+     * @param source   the source the definition is loaded from, kept for conditional revalidation
+     * @param snapshot the current snapshot of the definition
+     * @param bytes    the estimated size of the snapshot's graph
+     */
+    private record Entry(BpmnSource source, ModelSnapshot snapshot, long bytes) {}
+}
@@ -0,0 +1,215 @@
+package com.CamundaEnver;
+
+/**
+ * Transitive closure of a compiled process graph, answering "can X reach Y" in constant time.
+ * The graph is first condensed into its strongly connected components, so that loops such as
+ * review/approve cycles collapse into a single component, and one {@code long[]} bitset row is
+ * then computed per component over the resulting acyclic graph. All nodes of a component share
+ * its row.
+ * <p>
+ * The index needs {@code components * ceil(components / 64)} longs, which is small for graphs
+ * with many cycles and grows quadratically for large acyclic graphs. Graphs with more than
+ * {@link #MAX_NODES} nodes are rejected, which caps the closure at 32 MiB.
+ */
+public final class ReachabilityIndex {
+    public static final int MAX_NODES = 16384; // Hard ceiling on the node count, bounding the closure to 32 MiB
+
+    private final ProcessGraph graph; // Graph the index was built for
+    private final int[] component; // Node index -> component index
+    private final int words; // Number of longs per bitset row
+    private final long[] closure; // closure[c * words ..] = bitset of the components reachable from component c
+
+    /**
+     * Creates an index from its parts, for example read back from a {@link CompiledGraphFile}.
+     *
+     * @param graph     the graph the index was built for
+     * @param component the component index of every node
+     * @param words     the number of longs per bitset row
+     * @param closure   the bitset rows of all components
+     */
+    ReachabilityIndex(ProcessGraph graph, int[] component, int words, long[] closure) {
+        this.graph = graph;
+        this.component = component;
+        this.words = words;
+        this.closure = closure;
+    }
+
+    /**
+     * Builds the reachability index for the given graph.
+     *
+     * @param graph the compiled process graph
+     * @return the reachability index
+     * @throws IllegalArgumentException if the graph has more than {@link #MAX_NODES} nodes
+     */
+    public static ReachabilityIndex build(ProcessGraph graph) {
+        int n = graph.size();
+        if (n > MAX_NODES) throw new IllegalArgumentException("Graph too large for reachability index: " + n + " nodes");
+        int[] offsets = graph.offsets(), targets = graph.targets();
+        int[] component = new int[n];
+        int comps = findComponents(graph, component);
+
+        // Group nodes by component
+        int[] start = new int[comps + 1];
+        for (int v = 0; v < n; v++) start[component[v] + 1]++;
+        for (int c = 0; c < comps; c++) start[c + 1] += start[c];
+        int[] members = new int[n], fill = start.clone();
+        for (int v = 0; v < n; v++) members[fill[component[v]]++] = v;
+
+        // Components are numbered in reverse topological order, so every successor row is final when it is merged
+        int words = (comps + 63) >>> 6;
+        long longs = (long) comps * words;
+        if (longs > (long) MAX_NODES * (MAX_NODES >>> 6)) {
+            throw new IllegalArgumentException("Reachability index too large: " + comps + " components");
+        }
+        long[] closure = new long[(int) longs];
+        for (int c = 0; c < comps; c++) {
+            int row = c * words;
+            closure[row + (c >>> 6)] |= 1L << c;
+            for (int i = start[c]; i < start[c + 1]; i++) {
+                int v = members[i];
+                for (int e = offsets[v]; e < offsets[v + 1]; e++) {
+                    int d = component[targets[e]];
+                    if (d == c || (closure[row + (d >>> 6)] & (1L << d)) != 0) continue;
+                    int other = d * words;
+                    for (int w = 0; w < words; w++) closure[row + w] |= closure[other + w];
+                }
+            }
+        }
+        return new ReachabilityIndex(graph, component, words, closure);
+    }
+
+    /**
+     * Computes the strongly connected components of the graph with an iterative version of Tarjan's algorithm.
+     * Components are numbered in the order they are completed, which is a reverse topological order
+     * of the condensation: every edge leads from a component to one with a smaller or equal number.
+     *
+     * @param graph     the compiled process graph
+     * @param component receives the component index of every node
+     * @return the number of components
+     */
+    private static int findComponents(ProcessGraph graph, int[] component) {
+        int n = graph.size();
+        int[] offsets = graph.offsets(), targets = graph.targets();
+        int[] order = new int[n], low = new int[n]; // Discovery order (0 = undiscovered) and lowest reachable order
+        int[] stack = new int[n], callNode = new int[n], callEdge = new int[n];
+        boolean[] onStack = new boolean[n];
+        int counter = 0, comps = 0, sp = 0;
+        for (int root = 0; root < n; root++) {
+            if (order[root] != 0) continue;
+            int csp = 0;
+            order[root] = low[root] = ++counter;
+            stack[sp++] = root;
+            onStack[root] = true;
+            callNode[csp] = root;
+            callEdge[csp++] = offsets[root];
+            while (csp > 0) {
+                int v = callNode[csp - 1];
+                if (callEdge[csp - 1] < offsets[v + 1]) {
+                    int w = targets[callEdge[csp - 1]++];
+                    if (order[w] == 0) {
+                        order[w] = low[w] = ++counter;
+                        stack[sp++] = w;
+                        onStack[w] = true;
+                        callNode[csp] = w;
+                        callEdge[csp++] = offsets[w];
+                    } else if (onStack[w]) {
+                        low[v] = Math.min(low[v], order[w]);
+                    }
+                    continue;
+                }
+                if (low[v] == order[v]) {
+                    int w;
+                    do {
+                        w = stack[--sp];
+                        onStack[w] = false;
+                        component[w] = comps;
+                    } while (w != v);
+                    comps++;
+                }
+                if (--csp > 0) {
+                    int u = callNode[csp - 1];
+                    low[u] = Math.min(low[u], low[v]);
+                }
+            }
+        }
+        return comps;
+    }
+
+    /**
+     * Returns the graph this index was built for.
+     *
+     * @return the compiled process graph
+     */
+    public ProcessGraph graph() {
+        return graph;
+    }
+
+    /**
+     * Checks whether the end node is reachable from the start node. Every node reaches itself.
+     *
+     * @param start the index of the starting node
+     * @param end   the index of the ending node
+     * @return true if a path exists
+     */
+    public boolean isReachable(int start, int end) {
+        int d = component[end];
+        return (closure[component[start] * words + (d >>> 6)] & (1L << d)) != 0;
+    }
+
+    /**
+     * Checks whether the end node is reachable from the start node.
+     *
+     * @param startId the ID of the starting node
+     * @param endId   the ID of the ending node
+     * @return true if both nodes exist and a path exists between them
+     */
+    public boolean isReachable(String startId, String endId) {
+        int s = graph.indexOf(startId), t = graph.indexOf(endId);
+        return s >= 0 && t >= 0 && isReachable(s, t);
+    }
+
+    /**
+     * Returns the component index of every node. The array is shared and must not be modified.
+     *
+     * @return the component map, of length {@code graph().size()}
+     */
+    int[] components() {
+        return component;
+    }
+
+    /**
+     * Returns the number of longs per bitset row.
+     *
+     * @return the row length of the closure
+     */
+    int words() {
+        return words;
+    }
+
+    /**
+     * Returns the bitset rows of all components. The array is shared and must not be modified.
+     *
+     * @return the closure
+     */
+    long[] closure() {
+        return closure;
+    }
+
+    /**
+     * Returns the number of strongly connected components of the graph.
+     *
+     * @return the component count
+     */
+    public int componentCount() {
+        return closure.length / Math.max(1, words);
+    }
+
+    /**
+     * Returns the approximate heap size of the index.
+     *
+     * @return the size of the component map and the closure in bytes
+     */
+    public long memoryBytes() {
+        return 4L * component.length + 8L * closure.length;
+    }
+}
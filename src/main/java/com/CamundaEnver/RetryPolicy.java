@@ -0,0 +1,115 @@
+package com.CamundaEnver;
+
+import org.apache.http.HttpStatus;
+import org.apache.http.client.utils.DateUtils;
+
+import java.util.Date;
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * Decides whether and when a failed definition fetch is retried.
+ * <p>
+ * I/O failures and the overload responses 429 Too Many Requests and 503 Service Unavailable are retried
+ * up to {@code maxRetries} times. The delay before retry {@code n} (counted from zero) is drawn uniformly from
+ * {@code [0, min(maxDelayMs, baseDelayMs * 2^n)]} ("full jitter"), so that many clients failing together
+ * spread their retries out instead of hitting a struggling engine in lockstep. If the server sends a
+ * {@code Retry-After} header, its delay is used instead, unless it exceeds {@code maxDelayMs}: the operation then
+ * gives up at once rather than blocking its caller for as long as the server asks. With a positive
+ * {@code deadlineMs}, no retry is started later than that many milliseconds after the first attempt, and fetchers
+ * shorten the timeouts of each attempt so that it ends by then as well.
+ *
+ * @param maxRetries  the maximum number of retries after the first attempt
+ * @param baseDelayMs the upper bound of the delay before the first retry in milliseconds, 0 to retry at once
+ * @param maxDelayMs  the cap of the exponentially growing delay bound in milliseconds
+ * @param deadlineMs  the total time budget across all attempts in milliseconds, less than or equal to zero for none
+ */
+public record RetryPolicy(int maxRetries, long baseDelayMs, long maxDelayMs, long deadlineMs) {
+
+    /**
+     * Creates a policy with the given number of retries and the delays and deadline from configuration:
+     * {@code HTTP_RETRY_BASE_DELAY_MS} (default 100), {@code HTTP_RETRY_MAX_DELAY_MS} (default 5000) and
+     * {@code HTTP_RETRY_DEADLINE_MS} (default 30000, 0 for no deadline), or the corresponding {@code http.retry.*}
+     * system properties.
+     *
+     * @param maxRetries the maximum number of retries after the first attempt
+     * @return the retry policy
+     */
+    public static RetryPolicy fromDefaults(int maxRetries) {
+        return new RetryPolicy(maxRetries,
+                ConfigUtil.parseEnvOrProp("HTTP_RETRY_BASE_DELAY_MS", "http.retry.base.delay.ms", 100),
+                ConfigUtil.parseEnvOrProp("HTTP_RETRY_MAX_DELAY_MS", "http.retry.max.delay.ms", 5000),
+                ConfigUtil.parseEnvOrProp("HTTP_RETRY_DEADLINE_MS", "http.retry.deadline.ms", 30000));
+    }
+
+    /**
+     * Checks whether a response status signals a transient overload that is worth retrying.
+     *
+     * @param status the HTTP status code
+     * @return true for 429 Too Many Requests and 503 Service Unavailable
+     */
+    public static boolean isRetryableStatus(int status) {
+        return status == 429 || status == HttpStatus.SC_SERVICE_UNAVAILABLE;
+    }
+
+    /**
+     * Returns the time by which all attempts of an operation starting now must have finished.
+     *
+     * @param nowMillis the start time of the first attempt in milliseconds since the epoch
+     * @return the deadline in milliseconds since the epoch, or {@link Long#MAX_VALUE} if there is none
+     */
+    public long deadlineFrom(long nowMillis) {
+        return deadlineMs > 0 ? nowMillis + deadlineMs : Long.MAX_VALUE;
+    }
+
+    /**
+     * Returns the delay before the given retry, or -1 if the operation must give up instead.
+     *
+     * @param retry        the number of retries already made
+     * @param retryAfterMs the delay requested by the server through Retry-After, or -1 if none
+     * @param nowMillis    the current time in milliseconds since the epoch
+     * @param deadline     the deadline returned by {@link #deadlineFrom}
+     * @return the delay in milliseconds, or -1 if the retries are exhausted, the server asks for a longer delay than
+     * {@code maxDelayMs} or the retry would start past the deadline
+     */
+    public long delayMillis(int retry, long retryAfterMs, long nowMillis, long deadline) {
+        if (retry >= maxRetries || retryAfterMs > maxDelayMs) return -1;
+        long delay = retryAfterMs >= 0 ? retryAfterMs : backoffMillis(retry);
+        return delay < deadline - nowMillis ? delay : -1;
+    }
+
+    /**
+     * Draws the full-jitter backoff delay before the given retry.
+     *
+     * @param retry the number of retries already made
+     * @return a delay between zero and the exponential bound for this retry, in milliseconds
+     */
+    long backoffMillis(int retry) {
+        if (baseDelayMs <= 0) return 0;
+        // The shift is capped so that the bound cannot overflow before it is capped by maxDelayMs
+        long bound = Math.min(maxDelayMs, baseDelayMs << Math.min(retry, 30));
+        return bound > 0 ? ThreadLocalRandom.current().nextLong(bound + 1) : 0;
+    }
+
+    /**
+     * Parses a Retry-After header, given either in seconds or as an HTTP date.
+     *
+     * @param value     the header value, or null if absent
+     * @param nowMillis the current time in milliseconds since the epoch
+     * @return the requested delay in milliseconds, {@link Long#MAX_VALUE} if it is too long to represent,
+     * or -1 if the header is absent or invalid
+     */
+    public static long retryAfterMillis(String value, long nowMillis) {
+        if (value == null || value.isBlank()) return -1;
+        String v = value.trim();
+        if (v.chars().allMatch(c -> c >= '0' && c <= '9')) {
+            try {
+                return Math.multiplyExact(Long.parseLong(v), 1000L);
+            } catch (NumberFormatException | ArithmeticException e) {
+                // Too many seconds to count is still a valid request to wait, longer than any cap
+                return Long.MAX_VALUE;
+            }
+        }
+        Date date = DateUtils.parseDate(v);
+        return date != null ? Math.max(0, date.getTime() - nowMillis) : -1;
+    }
+}
@@ -0,0 +1,127 @@
+package com.CamundaEnver;
+
+import java.util.Arrays;
+
+/**
+ * Per-thread scratch space for graph searches over node indexes.
+ * Holds, for a forward and a backward search frontier, a link array, a visited bitset and a
+ * ring-buffer queue that are grown on demand and reused by every search on the same thread,
+ * so that a search allocates nothing but its result.
+ * <p>
+ * A workspace is only valid until the next call to {@code acquire} on the same thread;
+ * searches must therefore not nest.
+ */
+final class SearchWorkspace {
+    private static final ThreadLocal<SearchWorkspace> LOCAL = ThreadLocal.withInitial(SearchWorkspace::new);
+
+    final Frontier forward = new Frontier(); // Frontier growing from the start node
+    final Frontier backward = new Frontier(); // Frontier growing from the end node, used by bidirectional searches
+
+    private SearchWorkspace() {
+    }
+
+    /**
+     * Returns the workspace of the calling thread with its forward frontier sized for and cleared
+     * for a graph of the given size.
+     *
+     * @param nodes the number of nodes of the graph to search
+     * @return the thread's workspace
+     */
+    static SearchWorkspace acquire(int nodes) {
+        SearchWorkspace ws = LOCAL.get();
+        ws.forward.reset(nodes);
+        return ws;
+    }
+
+    /**
+     * Returns the workspace of the calling thread with both frontiers sized for and cleared
+     * for a graph of the given size.
+     *
+     * @param nodes the number of nodes of the graph to search
+     * @return the thread's workspace
+     */
+    static SearchWorkspace acquireBidirectional(int nodes) {
+        SearchWorkspace ws = acquire(nodes);
+        ws.backward.reset(nodes);
+        return ws;
+    }
+
+    /**
+     * Visited set, queue and link array of one search direction.
+     */
+    static final class Frontier {
+        int[] link = new int[0]; // Neighbour through which each visited node was reached; only meaningful for visited nodes
+        private long[] visited = new long[0]; // One bit per node
+        private int[] queue = new int[1]; // Ring buffer, capacity is a power of two
+        private int head, tail; // Monotonic read and write counters of the ring buffer
+
+        private void reset(int nodes) {
+            int words = (nodes + 63) >>> 6;
+            if (link.length < nodes) link = new int[nodes];
+            if (visited.length < words) visited = new long[words];
+            else Arrays.fill(visited, 0, words, 0L);
+            if (queue.length < nodes) queue = new int[Integer.highestOneBit(Math.max(1, nodes - 1)) << 1];
+            head = tail = 0;
+        }
+
+        /**
+         * Marks a node as visited.
+         *
+         * @param node the node index
+         * @return true if the node had not been visited before
+         */
+        boolean visit(int node) {
+            long bit = 1L << node;
+            long word = visited[node >>> 6];
+            if ((word & bit) != 0) return false;
+            visited[node >>> 6] = word | bit;
+            return true;
+        }
+
+        /**
+         * Checks whether a node has been visited.
+         *
+         * @param node the node index
+         * @return true if the node has been visited
+         */
+        boolean isVisited(int node) {
+            return (visited[node >>> 6] & (1L << node)) != 0;
+        }
+
+        /**
+         * Appends a node to the queue. Each node may be enqueued at most once per search.
+         *
+         * @param node the node index
+         */
+        void enqueue(int node) {
+            queue[tail++ & (queue.length - 1)] = node;
+        }
+
+        /**
+         * Removes the node at the head of the queue.
+         *
+         * @return the node index
+         */
+        int dequeue() {
+            return queue[head++ & (queue.length - 1)];
+        }
+
+        /**
+         * Returns the number of queued nodes.
+         *
+         * @return the queue length
+         */
+        int queued() {
+            return tail - head;
+        }
+
+        /**
+         * Checks whether the queue is empty.
+         *
+         * @return true if no nodes are queued
+         */
+        boolean isQueueEmpty() {
+            return head == tail;
+        }
+    }
+}
@@ -0,0 +1,243 @@
+package com.CamundaEnver;
+
+import org.apache.http.client.config.RequestConfig;
+import org.apache.http.client.methods.CloseableHttpResponse;
+import org.apache.http.client.methods.HttpHead;
+import org.apache.http.conn.ConnectionKeepAliveStrategy;
+import org.apache.http.impl.client.CloseableHttpClient;
+import org.apache.http.impl.client.DefaultConnectionKeepAliveStrategy;
+import org.apache.http.impl.client.HttpClients;
+import org.apache.http.impl.conn.PoolingHttpClientConnectionManager;
+import org.apache.http.util.EntityUtils;
+import java.io.Closeable;
+import java.io.IOException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * HTTP client with a pooled connection manager that can be shared by many fetchers.
+ * Connections are bounded per route and in total, kept alive between requests, and evicted
+ * by a background thread once they have been idle for too long, so that fetchers talking to
+ * the same engine reuse established TLS connections instead of performing a new handshake each time.
+ * <p>
+ * Fetchers created on a shared client never close it; the owner of the shared client does.
+ */
+public final class SharedHttpClient implements Closeable {
+    private static volatile SharedHttpClient defaultInstance; // Process-wide instance created from configuration
+
+    private final PoolingHttpClientConnectionManager manager; // Connection pool shared by all requests
+    private final CloseableHttpClient client; // HTTP client on top of the pool
+    private final RetryPolicy retryPolicy; // Retry policy of the fetchers that send requests through this client
+    private final CircuitBreaker circuitBreaker; // Circuit breaker shared by those fetchers, null if disabled
+    private final HedgePolicy hedgePolicy; // Hedge policy shared by those fetchers, null if disabled
+    private final AtomicBoolean closed = new AtomicBoolean(false); // Flag to track if the client is closed
+
+    /**
+     * Constructs a SharedHttpClient with the specified pool limits and timeouts.
+     *
+     * @param maxPerRoute the maximum number of pooled connections per route
+     * @param maxTotal    the maximum number of pooled connections in total
+     * @param keepAliveMs how long a connection is kept alive when the server does not say, in milliseconds
+     * @param maxIdleMs   how long a connection may be idle before it is evicted, in milliseconds
+     * @param timeoutMs   the default timeout in milliseconds for the HTTP requests
+     * @param maxRetries  the maximum number of retries for failed requests, with the delays of {@link RetryPolicy#fromDefaults}
+     */
+    public SharedHttpClient(int maxPerRoute, int maxTotal, long keepAliveMs, long maxIdleMs, int timeoutMs, int maxRetries) {
+        this(maxPerRoute, maxTotal, keepAliveMs, maxIdleMs, timeoutMs, RetryPolicy.fromDefaults(maxRetries), CircuitBreaker.fromDefaults());
+    }
+
+    /**
+     * Constructs a SharedHttpClient with the specified pool limits, timeouts and retry policy.
+     *
+     * @param maxPerRoute the maximum number of pooled connections per route
+     * @param maxTotal    the maximum number of pooled connections in total
+     * @param keepAliveMs how long a connection is kept alive when the server does not say, in milliseconds
+     * @param maxIdleMs   how long a connection may be idle before it is evicted, in milliseconds
+     * @param timeoutMs   the default timeout in milliseconds for the HTTP requests
+     * @param retryPolicy the retry policy of the fetchers that send requests through this client
+     */
+    public SharedHttpClient(int maxPerRoute, int maxTotal, long keepAliveMs, long maxIdleMs, int timeoutMs, RetryPolicy retryPolicy) {
+        this(maxPerRoute, maxTotal, keepAliveMs, maxIdleMs, timeoutMs, retryPolicy, CircuitBreaker.fromDefaults());
+    }
+
+    /**
+     * Constructs a SharedHttpClient with the specified pool limits, timeouts, retry policy and circuit breaker.
+     * All fetchers sending requests through this client share the circuit breaker, so that they stop together
+     * when the engine degrades.
+     *
+     * @param maxPerRoute    the maximum number of pooled connections per route
+     * @param maxTotal       the maximum number of pooled connections in total
+     * @param keepAliveMs    how long a connection is kept alive when the server does not say, in milliseconds
+     * @param maxIdleMs      how long a connection may be idle before it is evicted, in milliseconds
+     * @param timeoutMs      the default timeout in milliseconds for the HTTP requests
+     * @param retryPolicy    the retry policy of the fetchers that send requests through this client
+     * @param circuitBreaker the circuit breaker of those fetchers, or null for none
+     */
+    public SharedHttpClient(int maxPerRoute, int maxTotal, long keepAliveMs, long maxIdleMs, int timeoutMs,
+                            RetryPolicy retryPolicy, CircuitBreaker circuitBreaker) {
+        this(maxPerRoute, maxTotal, keepAliveMs, maxIdleMs, timeoutMs, retryPolicy, circuitBreaker, HedgePolicy.fromDefaults());
+    }
+
+    /**
+     * Constructs a SharedHttpClient with the specified pool limits, timeouts, retry policy, circuit breaker and
+     * hedge policy. The hedge delay is then derived from the latencies of all fetchers sending requests through
+     * this client. Hedged requests take a second pooled connection, so maxPerRoute should leave room for them.
+     *
+     * @param maxPerRoute    the maximum number of pooled connections per route
+     * @param maxTotal       the maximum number of pooled connections in total
+     * @param keepAliveMs    how long a connection is kept alive when the server does not say, in milliseconds
+     * @param maxIdleMs      how long a connection may be idle before it is evicted, in milliseconds
+     * @param timeoutMs      the default timeout in milliseconds for the HTTP requests
+     * @param retryPolicy    the retry policy of the fetchers that send requests through this client
+     * @param circuitBreaker the circuit breaker of those fetchers, or null for none
+     * @param hedgePolicy    the hedge policy of those fetchers, or null for no hedging
+     */
+    public SharedHttpClient(int maxPerRoute, int maxTotal, long keepAliveMs, long maxIdleMs, int timeoutMs,
+                            RetryPolicy retryPolicy, CircuitBreaker circuitBreaker, HedgePolicy hedgePolicy) {
+        this.retryPolicy = retryPolicy;
+        this.circuitBreaker = circuitBreaker;
+        this.hedgePolicy = hedgePolicy;
+        this.manager = new PoolingHttpClientConnectionManager();
+        manager.setDefaultMaxPerRoute(maxPerRoute);
+        manager.setMaxTotal(maxTotal);
+        // Revalidate connections that have been idle for a while before reusing them
+        manager.setValidateAfterInactivity(1000);
+        RequestConfig config = RequestConfig.custom()
+                .setConnectTimeout(timeoutMs)
+                .setSocketTimeout(timeoutMs)
+                .setConnectionRequestTimeout(timeoutMs)
+                .build();
+        ConnectionKeepAliveStrategy keepAlive = (response, context) -> {
+            long announced = DefaultConnectionKeepAliveStrategy.INSTANCE.getKeepAliveDuration(response, context);
+            return announced > 0 ? announced : keepAliveMs;
+        };
+        this.client = HttpClients.custom()
+                .setConnectionManager(manager)
+                .setDefaultRequestConfig(config)
+                // Fetchers retry according to the retry policy, so the client itself never does
+                .disableAutomaticRetries()
+                .setKeepAliveStrategy(keepAlive)
+                .evictExpiredConnections()
+                .evictIdleConnections(maxIdleMs, TimeUnit.MILLISECONDS)
+                .build();
+    }
+
+    /**
+     * Returns the process-wide shared client, creating it from configuration on first use.
+     * The pool size, keep-alive and idle eviction are read from {@code HTTP_POOL_MAX_PER_ROUTE},
+     * {@code HTTP_POOL_MAX_TOTAL}, {@code HTTP_KEEP_ALIVE_MS} and {@code HTTP_MAX_IDLE_MS}
+     * (or the corresponding {@code http.*} system properties). The instance is closed by a shutdown hook.
+     *
+     * @return the shared client
+     */
+    public static SharedHttpClient defaultInstance() {
+        SharedHttpClient c = defaultInstance;
+        if (c == null) {
+            synchronized (SharedHttpClient.class) {
+                c = defaultInstance;
+                if (c == null) {
+                    c = new SharedHttpClient(
+                            ConfigUtil.parseEnvOrProp("HTTP_POOL_MAX_PER_ROUTE", "http.pool.max.per.route", 8),
+                            ConfigUtil.parseEnvOrProp("HTTP_POOL_MAX_TOTAL", "http.pool.max.total", 64),
+                            ConfigUtil.parseEnvOrProp("HTTP_KEEP_ALIVE_MS", "http.keep.alive.ms", 30000),
+                            ConfigUtil.parseEnvOrProp("HTTP_MAX_IDLE_MS", "http.max.idle.ms", 60000),
+                            ConfigUtil.parseEnvOrProp("HTTP_TIMEOUT_MS", "http.timeout.ms", 5000),
+                            ConfigUtil.parseEnvOrProp("HTTP_MAX_RETRIES", "http.max.retries", 3));
+                    Runtime.getRuntime().addShutdownHook(new Thread(c::close));
+                    defaultInstance = c;
+                }
+            }
+        }
+        return c;
+    }
+
+    /**
+     * Returns the underlying HTTP client. Callers must not close it.
+     *
+     * @return the pooled HTTP client
+     */
+    public CloseableHttpClient client() {
+        return client;
+    }
+
+    /**
+     * Returns the maximum number of retries for failed requests.
+     *
+     * @return the maximum number of retries
+     */
+    public int maxRetries() {
+        return retryPolicy.maxRetries();
+    }
+
+    /**
+     * Returns the retry policy of the fetchers that send requests through this client.
+     *
+     * @return the retry policy
+     */
+    public RetryPolicy retryPolicy() {
+        return retryPolicy;
+    }
+
+    /**
+     * Returns the circuit breaker shared by the fetchers that send requests through this client.
+     *
+     * @return the circuit breaker, or null if circuit breaking is disabled
+     */
+    public CircuitBreaker circuitBreaker() {
+        return circuitBreaker;
+    }
+
+    /**
+     * Returns the hedge policy shared by the fetchers that send requests through this client.
+     *
+     * @return the hedge policy, or null if hedging is disabled
+     */
+    public HedgePolicy hedgePolicy() {
+        return hedgePolicy;
+    }
+
+    /**
+     * Opens connections to the host of the given URL ahead of the first real request,
+     * so that connection setup and the TLS handshake are not paid on the query path.
+     * Each connection is established with a HEAD request and returned to the pool; failures are ignored.
+     *
+     * @param url         a URL on the route to warm up
+     * @param connections the number of connections to open concurrently
+     */
+    public void warmUp(String url, int connections) {
+        CompletableFuture<?>[] warm = new CompletableFuture<?>[connections];
+        for (int i = 0; i < connections; i++) {
+            warm[i] = CompletableFuture.runAsync(() -> {
+                try (CloseableHttpResponse resp = client.execute(new HttpHead(url))) {
+                    EntityUtils.consumeQuietly(resp.getEntity());
+                } catch (IOException ignored) {
+                }
+            });
+        }
+        CompletableFuture.allOf(warm).join();
+    }
+
+    /**
+     * Returns the number of pooled connections that are currently idle and available for reuse.
+     *
+     * @return the number of available connections
+     */
+    public int availableConnections() {
+        return manager.getTotalStats().getAvailable();
+    }
+
+    /**
+     * Closes the HTTP client and its connection pool.
+     * Ensures that the client is only closed once.
+     */
+    @Override
+    public void close() {
+        if (closed.compareAndSet(false, true)) {
+            try {
+                client.close();
+            } catch (IOException ignored) {
+            }
+        }
+    }
+}
@@ -0,0 +1,87 @@
+package com.CamundaEnver;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Breadth-first shortest path tree rooted at one start node of a compiled process graph.
+ * Holds the distance and the parent of every node reachable from the start, so that the path
+ * to any end node is recovered in time proportional to its length. Trees are immutable and
+ * can be shared between threads.
+ */
+public final class ShortestPathTree {
+    private final ProcessGraph graph; // Graph the tree was built for
+    private final int start; // Index of the root node
+    private final int[] parent; // Parent index of every reached node, -1 for unreached nodes and the root
+    private final int[] distance; // Number of sequence flows from the root, -1 for unreached nodes
+
+    ShortestPathTree(ProcessGraph graph, int start, int[] parent, int[] distance) {
+        this.graph = graph;
+        this.start = start;
+        this.parent = parent;
+        this.distance = distance;
+    }
+
+    /**
+     * Returns the graph this tree was built for.
+     *
+     * @return the compiled process graph
+     */
+    public ProcessGraph graph() {
+        return graph;
+    }
+
+    /**
+     * Returns the index of the root node.
+     *
+     * @return the start node index
+     */
+    public int start() {
+        return start;
+    }
+
+    /**
+     * Returns the length of the shortest path from the root to the given node.
+     *
+     * @param end the index of the ending node
+     * @return the number of sequence flows on the shortest path, or -1 if the node is unreachable
+     */
+    public int distanceTo(int end) {
+        return distance[end];
+    }
+
+    /**
+     * Returns the shortest path from the root to the given node.
+     *
+     * @param end the index of the ending node
+     * @return the flow node IDs of the path, or an empty list if the node is unreachable
+     */
+    public List<String> pathTo(int end) {
+        int d = distance[end];
+        if (d < 0) return Collections.emptyList();
+        String[] path = new String[d + 1];
+        for (int n = end, i = d; i >= 0; n = parent[n], i--) path[i] = graph.idOf(n);
+        return Collections.unmodifiableList(Arrays.asList(path));
+    }
+
+    /**
+     * Returns the shortest path from the root to the given node.
+     *
+     * @param endId the ID of the ending node
+     * @return the flow node IDs of the path, or an empty list if the node is unknown or unreachable
+     */
+    public List<String> pathTo(String endId) {
+        int end = graph.indexOf(endId);
+        return end < 0 ? Collections.emptyList() : pathTo(end);
+    }
+
+    /**
+     * Returns the approximate heap size of the tree.
+     *
+     * @return the size of the parent and distance arrays in bytes
+     */
+    public long memoryBytes() {
+        return 8L * parent.length;
+    }
+}
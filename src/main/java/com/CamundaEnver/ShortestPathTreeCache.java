@@ -0,0 +1,70 @@
+package com.CamundaEnver;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Bounded least-recently-used cache of shortest path trees, keyed by model snapshot version and start node.
+ * Trees of superseded snapshot versions are never looked up again and age out of the cache.
+ * Trees are built outside the cache lock, so concurrent misses for the same key may build
+ * the same tree twice; only one of them is kept.
+ */
+public class ShortestPathTreeCache {
+    private final int capacity; // Maximum number of cached trees
+    private final PathFinderService pathFinder; // Builds trees on cache misses
+    private final Map<Key, ShortestPathTree> trees; // Access-ordered map, guarded by this
+
+    /**
+     * Constructs a cache holding at most the given number of trees.
+     *
+     * @param capacity   the maximum number of cached trees
+     * @param pathFinder the service used to build missing trees
+     */
+    public ShortestPathTreeCache(int capacity, PathFinderService pathFinder) {
+        this.capacity = capacity;
+        this.pathFinder = pathFinder;
+        this.trees = new LinkedHashMap<>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<Key, ShortestPathTree> eldest) {
+                return size() > ShortestPathTreeCache.this.capacity;
+            }
+        };
+    }
+
+    /**
+     * Returns the shortest path tree rooted at the given node of a snapshot, building it on a miss.
+     *
+     * @param snap  the snapshot whose graph is searched
+     * @param start the index of the root node
+     * @return the shortest path tree
+     */
+    public ShortestPathTree get(ModelSnapshot snap, int start) {
+        Key key = new Key(snap.version(), start);
+        synchronized (this) {
+            ShortestPathTree tree = trees.get(key);
+            if (tree != null) return tree;
+        }
+        ShortestPathTree tree = pathFinder.shortestPathTree(snap.graph(), start);
+        synchronized (this) {
+            ShortestPathTree existing = trees.putIfAbsent(key, tree);
+            return existing != null ? existing : tree;
+        }
+    }
+
+    /**
+     * Returns the number of cached trees.
+     *
+     * @return the cache size
+     */
+    public synchronized int size() {
+        return trees.size();
+    }
+
+    /**
+     * Cache key of a tree.
+     *
+     * @param version the snapshot version
+     * @param start   the index of the root node
+     */
+    private record Key(long version, int start) {}
+}
@@ -0,0 +1,114 @@
+package com.CamundaEnver;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.CompletionStage;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.function.Supplier;
+
+/**
+ * Coalesces concurrent loads of the same key into a single in-flight load.
+ * The first caller for a key runs the loader; callers arriving while it is still running
+ * wait for and share its result, including its failure. The key is released just before the
+ * load completes, so a caller that has seen a load complete never joins that same load again.
+ * <p>
+ * Blocking and asynchronous loads of the same key join each other.
+ *
+ * @param <K> the type of the load keys, such as a definition URL
+ * @param <V> the type of the loaded values
+ */
+public final class SingleFlight<K, V> {
+    private final ConcurrentMap<K, CompletableFuture<V>> inFlight = new ConcurrentHashMap<>(); // Loads that have not completed yet
+
+    /**
+     * Loads the value for a key on the calling thread, or waits for the load already in flight for it.
+     *
+     * @param key    the key to load
+     * @param loader the loader to run if no load is in flight
+     * @return the loaded value
+     * @throws IOException if the load fails with an IOException
+     */
+    public V load(K key, Loader<V> loader) throws IOException {
+        CompletableFuture<V> mine = new CompletableFuture<>();
+        CompletableFuture<V> existing = inFlight.putIfAbsent(key, mine);
+        if (existing != null) return await(existing);
+        try {
+            V value = loader.load();
+            inFlight.remove(key, mine);
+            mine.complete(value);
+            return value;
+        } catch (IOException | RuntimeException | Error e) {
+            inFlight.remove(key, mine);
+            mine.completeExceptionally(e);
+            throw e;
+        }
+    }
+
+    /**
+     * Starts an asynchronous load for a key, or returns the load already in flight for it.
+     *
+     * @param key    the key to load
+     * @param loader starts the load if no load is in flight
+     * @return a future completing with the loaded value
+     */
+    public CompletableFuture<V> loadAsync(K key, Supplier<? extends CompletionStage<V>> loader) {
+        CompletableFuture<V> mine = new CompletableFuture<>();
+        CompletableFuture<V> existing = inFlight.putIfAbsent(key, mine);
+        if (existing != null) return existing;
+        try {
+            loader.get().whenComplete((value, ex) -> {
+                inFlight.remove(key, mine);
+                if (ex != null) {
+                    mine.completeExceptionally(ex instanceof CompletionException && ex.getCause() != null ? ex.getCause() : ex);
+                } else {
+                    mine.complete(value);
+                }
+            });
+        } catch (RuntimeException | Error e) {
+            inFlight.remove(key, mine);
+            mine.completeExceptionally(e);
+        }
+        return mine;
+    }
+
+    /**
+     * Returns the number of keys with a load in flight.
+     *
+     * @return the number of in-flight loads
+     */
+    public int inFlight() {
+        return inFlight.size();
+    }
+
+    private static <V> V await(CompletableFuture<V> future) throws IOException {
+        try {
+            return future.join();
+        } catch (CompletionException e) {
+            Throwable cause = e.getCause();
+            if (cause instanceof IOException io) throw io;
+            if (cause instanceof UncheckedIOException io) throw io.getCause();
+            if (cause instanceof RuntimeException re) throw re;
+            if (cause instanceof Error err) throw err;
+            throw new IOException(cause);
+        }
+    }
+
+    /**
+     * A blocking load.
+     *
+     * @param <V> the type of the loaded value
+     */
+    @FunctionalInterface
+    public interface Loader<V> {
+        /**
+         * Loads the value.
+         *
+         * @return the loaded value
+         * @throws IOException if the value cannot be loaded
+         */
+        V load() throws IOException;
+    }
+}
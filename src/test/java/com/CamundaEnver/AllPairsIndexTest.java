@@ -0,0 +1,53 @@
+package com.CamundaEnver;
+
+import org.junit.jupiter.api.Test;
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.util.List;
+import java.util.Random;
+
+/**
+ * Unit tests for the next-hop table of AllPairsIndex.
+ */
+public class AllPairsIndexTest {
+
+    /**
+     * Tests on random graphs that every pair's distance equals the breadth-first distance
+     * and that walking the table yields a valid path of that length.
+     */
+    @Test
+    public void testMatchesBreadthFirst() {
+        Random random = new Random(3);
+        for (int round = 0; round < 50; round++) {
+            int n = 1 + random.nextInt(70);
+            ProcessGraph g = GraphFixtures.randomGraph(random, n, random.nextInt(3 * n + 1));
+            AllPairsIndex index = AllPairsIndex.build(g);
+            assertSame(g, index.graph());
+            assertEquals(2L * n * n, index.memoryBytes());
+            for (int s = 0; s < n; s++) {
+                int[] expected = GraphFixtures.distances(g, s);
+                for (int t = 0; t < n; t++) {
+                    assertEquals(expected[t], index.distance(s, t), "distance " + s + " -> " + t);
+                    assertEquals(expected[t] >= 0, index.isReachable(s, t));
+                    List<String> path = index.path(s, t);
+                    if (expected[t] < 0) {
+                        assertTrue(path.isEmpty());
+                    } else {
+                        assertEquals(expected[t] + 1, path.size());
+                        assertTrue(GraphFixtures.isPath(g, path, s, t), "not a path: " + path);
+                    }
+                }
+            }
+        }
+    }
+
+    /**
+     * Tests that graphs above the hard node ceiling are rejected before the table is allocated.
+     */
+    @Test
+    public void testRejectsGraphsAboveMaxNodes() {
+        ProcessGraph.Builder b = ProcessGraph.builder();
+        for (int i = 0; i <= AllPairsIndex.MAX_NODES; i++) b.addNode("n" + i);
+        assertThrows(IllegalArgumentException.class, () -> AllPairsIndex.build(b.build()));
+    }
+}
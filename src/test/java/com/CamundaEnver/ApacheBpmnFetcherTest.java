@@ -0,0 +1,119 @@
+package com.CamundaEnver;
+
+import org.junit.jupiter.api.Test;
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.io.ByteArrayInputStream;
+import java.io.EOFException;
+import java.io.FilterInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Random;
+
+/**
+ * Unit tests for the streaming extraction of the bpmn20Xml field in ApacheBpmnFetcher.
+ * The decoded bytes are compared with the UTF-8 encoding of the string Jackson serialized.
+ */
+public class ApacheBpmnFetcherTest {
+
+    /**
+     * Tests that a field following other fields, including nested ones, is found and decoded.
+     *
+     * @throws IOException if the body cannot be decoded
+     */
+    @Test
+    public void testSkipsPrecedingFields() throws IOException {
+        String json = "{\"id\":\"invoice:1\",\"links\":[{\"rel\":\"self\"}],\"meta\":{\"bpmn20Xml\":1},"
+                + "\"bpmn20Xml\":\"<definitions/>\",\"after\":true}";
+        assertEquals("<definitions/>", decode(json.getBytes(StandardCharsets.UTF_8), 8192));
+    }
+
+    /**
+     * Tests that every kind of JSON escape is decoded, including surrogate pairs given as two unicode escapes.
+     *
+     * @throws IOException if the body cannot be decoded
+     */
+    @Test
+    public void testDecodesEscapes() throws IOException {
+        String json = "{\"bpmn20Xml\":\"a\\\"b\\\\c\\/d\\b\\f\\n\\r\\t\\u00e9\\u20AC\\ud83d\\ude00\"}";
+        assertEquals("a\"b\\c/d\b\f\n\r\té€😀", decode(json.getBytes(StandardCharsets.UTF_8), 8192));
+    }
+
+    /**
+     * Tests that unpaired surrogate escapes become U+FFFD without swallowing the escape that follows them.
+     *
+     * @throws IOException if the body cannot be decoded
+     */
+    @Test
+    public void testReplacesUnpairedSurrogates() throws IOException {
+        String json = "{\"bpmn20Xml\":\"\\ude00x\\ud83dy\\ud83d\\n\\ud83d\\u0041\"}";
+        assertEquals("�x�y�\n�A", decode(json.getBytes(StandardCharsets.UTF_8), 8192));
+    }
+
+    /**
+     * Tests random strings much larger than the read-ahead buffers, read in small and odd-sized chunks,
+     * so that escape sequences are split across buffer boundaries.
+     *
+     * @throws IOException if the body cannot be decoded
+     */
+    @Test
+    public void testMatchesJacksonOnLargeRandomStrings() throws IOException {
+        Random random = new Random(42);
+        String alphabet = "<>=/ abcxyz\"\\\n\t\u0001\u001fé中😀";
+        for (int round = 0; round < 20; round++) {
+            StringBuilder sb = new StringBuilder();
+            int length = 20000 + random.nextInt(20000);
+            while (sb.length() < length) {
+                int i = random.nextInt(alphabet.length());
+                if (Character.isHighSurrogate(alphabet.charAt(i))) {
+                    sb.append(alphabet, i, i + 2);
+                } else if (!Character.isLowSurrogate(alphabet.charAt(i))) {
+                    sb.append(alphabet.charAt(i));
+                }
+            }
+            Map<String, Object> body = new LinkedHashMap<>();
+            body.put("id", "invoice:" + round);
+            body.put("bpmn20Xml", sb.toString());
+            byte[] json = JsonUtil.MAPPER.writeValueAsBytes(body);
+            assertEquals(sb.toString(), decode(json, 1 + random.nextInt(7000)), "round " + round);
+        }
+    }
+
+    /**
+     * Tests that bodies without a string bpmn20Xml field are rejected.
+     */
+    @Test
+    public void testRejectsMissingOrNonStringField() {
+        assertThrows(IOException.class, () -> decode("{\"id\":\"invoice:1\"}".getBytes(StandardCharsets.UTF_8), 8192));
+        assertThrows(IOException.class, () -> decode("{\"bpmn20Xml\":null}".getBytes(StandardCharsets.UTF_8), 8192));
+        assertThrows(IOException.class, () -> decode("[\"bpmn20Xml\"]".getBytes(StandardCharsets.UTF_8), 8192));
+    }
+
+    /**
+     * Tests that a truncated string or escape sequence is reported instead of ending the stream silently.
+     */
+    @Test
+    public void testRejectsTruncatedString() {
+        assertThrows(EOFException.class, () -> decode("{\"bpmn20Xml\":\"<definitions".getBytes(StandardCharsets.UTF_8), 8192));
+        assertThrows(EOFException.class, () -> decode("{\"bpmn20Xml\":\"abc\\u00".getBytes(StandardCharsets.UTF_8), 8192));
+        assertThrows(IOException.class, () -> decode("{\"bpmn20Xml\":\"abc\\q\"}".getBytes(StandardCharsets.UTF_8), 8192));
+    }
+
+    /**
+     * Decodes the bpmn20Xml field of a body delivered in chunks of at most the given size.
+     */
+    private static String decode(byte[] json, int chunk) throws IOException {
+        InputStream body = new FilterInputStream(new ByteArrayInputStream(json)) {
+            @Override
+            public int read(byte[] b, int off, int len) throws IOException {
+                return super.read(b, off, Math.min(len, chunk));
+            }
+        };
+        try (InputStream xml = ApacheBpmnFetcher.openXmlField(body)) {
+            return new String(xml.readAllBytes(), StandardCharsets.UTF_8);
+        }
+    }
+}
@@ -0,0 +1,161 @@
+package com.CamundaEnver;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.BooleanSupplier;
+
+/**
+ * Unit tests for BpmnDirectoryWatcher, which reloads definitions as files in a temporary directory change.
+ */
+public class BpmnDirectoryWatcherTest {
+
+    private static final long TIMEOUT_MS = 10_000; // Longest wait for the watcher to notice a change
+
+    /**
+     * Tests that created, replaced and deleted files are loaded, reloaded and dropped.
+     *
+     * @param dir a temporary directory holding the watched directory and the files moved into it
+     * @throws Exception if the watcher cannot be started or queried
+     */
+    @Test
+    public void testCreateModifyDelete(@TempDir Path dir) throws Exception {
+        Path defs = Files.createDirectory(dir.resolve("defs"));
+        move(dir, defs, "a", chain(2));
+        try (BpmnDirectoryWatcher w = BpmnDirectoryWatcher.start(defs)) {
+            assertEquals(List.of("a"), w.keys());
+            assertTrue(w.findPath("a", "task0", "task1").success());
+
+            move(dir, defs, "b", chain(2));
+            await(() -> w.library("b") != null, "b loaded");
+            assertEquals(List.of("a", "b"), w.keys());
+            assertTrue(w.findPath("b", "task0", "task1").success());
+            assertFalse(w.findPath("b", "task0", "task2").success());
+
+            move(dir, defs, "b", chain(3));
+            await(() -> reachable(w, "b", "task0", "task2"), "b reloaded");
+            assertNull(w.lastReloadFailure("b"));
+
+            Files.delete(defs.resolve("b.bpmn"));
+            await(() -> w.library("b") == null, "b dropped");
+            assertEquals(List.of("a"), w.keys());
+            assertTrue(w.findPath("a", "task0", "task1").success());
+        }
+    }
+
+    /**
+     * Tests that a burst of writes to one file causes a single reload, of the last version written.
+     *
+     * @param dir a temporary directory holding the watched directory and the files moved into it
+     * @throws Exception if the watcher cannot be started or queried
+     */
+    @Test
+    public void testCoalescesBurst(@TempDir Path dir) throws Exception {
+        Path defs = Files.createDirectory(dir.resolve("defs"));
+        move(dir, defs, "a", chain(2));
+        try (BpmnDirectoryWatcher w = BpmnDirectoryWatcher.start(defs, 500, DirectoryBpmnSource::keys)) {
+            assertEquals(1, w.reloadCount());
+            for (int n = 3; n <= 12; n++) move(dir, defs, "a", chain(n));
+            await(() -> reachable(w, "a", "task0", "task11"), "a reloaded");
+            Thread.sleep(1000);
+            assertEquals(2, w.reloadCount());
+        }
+    }
+
+    /**
+     * Tests that the watcher keeps going when events were lost and the directory cannot be listed:
+     * known definitions are still checked, and later changes are still picked up.
+     *
+     * @param dir a temporary directory holding the watched directory and the files moved into it
+     * @throws Exception if the watcher cannot be started or queried
+     */
+    @Test
+    public void testSurvivesFailedScanAfterOverflow(@TempDir Path dir) throws Exception {
+        Path defs = Files.createDirectory(dir.resolve("defs"));
+        move(dir, defs, "a", chain(2));
+        CountDownLatch written = new CountDownLatch(1);
+        AtomicInteger listings = new AtomicInteger();
+        BpmnDirectoryWatcher.KeyLister lister = d -> {
+            if (listings.incrementAndGet() > 1) throw new IOException("listing failed");
+            // Holds the startup scan until more events are queued than the watch key keeps
+            try {
+                assertTrue(written.await(TIMEOUT_MS, TimeUnit.MILLISECONDS));
+            } catch (InterruptedException e) {
+                throw new IOException(e);
+            }
+            return List.of("a");
+        };
+        CompletableFuture<BpmnDirectoryWatcher> started = CompletableFuture.supplyAsync(() -> {
+            try {
+                return BpmnDirectoryWatcher.start(defs, 0, lister);
+            } catch (IOException e) {
+                throw new IllegalStateException(e);
+            }
+        });
+        await(() -> listings.get() == 1, "startup scan");
+        move(dir, defs, "a", chain(3));
+        for (int i = 0; i < 600; i++) Files.writeString(defs.resolve("noise" + i + ".txt"), "x");
+        written.countDown();
+
+        try (BpmnDirectoryWatcher w = started.get(TIMEOUT_MS, TimeUnit.MILLISECONDS)) {
+            await(() -> w.lastScanFailure() != null, "failed scan");
+            assertEquals("listing failed", w.lastScanFailure().getMessage());
+            await(() -> reachable(w, "a", "task0", "task2"), "a checked after the lost events");
+
+            move(dir, defs, "a", chain(4));
+            await(() -> reachable(w, "a", "task0", "task3"), "a reloaded after the failed scan");
+            move(dir, defs, "c", chain(2));
+            await(() -> w.library("c") != null, "c loaded after the failed scan");
+            assertEquals(2, listings.get());
+        }
+    }
+
+    /**
+     * Writes a process of user tasks {@code task0 .. task<n-1>} connected in a chain.
+     */
+    private static String chain(int n) {
+        StringBuilder sb = new StringBuilder("<?xml version=\"1.0\" encoding=\"UTF-8\"?>\n"
+                + "<bpmn:definitions xmlns:bpmn=\"http://www.omg.org/spec/BPMN/20100524/MODEL\" id=\"defs\" "
+                + "targetNamespace=\"urn:example\"><bpmn:process id=\"chain\">");
+        for (int i = 0; i < n; i++) sb.append("<bpmn:userTask id=\"task").append(i).append("\"/>");
+        for (int i = 1; i < n; i++) {
+            sb.append("<bpmn:sequenceFlow id=\"flow").append(i).append("\" sourceRef=\"task").append(i - 1)
+                    .append("\" targetRef=\"task").append(i).append("\"/>");
+        }
+        return sb.append("</bpmn:process></bpmn:definitions>").toString();
+    }
+
+    /**
+     * Writes a definition next to the watched directory and moves it in atomically.
+     */
+    private static void move(Path dir, Path defs, String key, String xml) throws IOException {
+        Path tmp = Files.writeString(dir.resolve(key + ".tmp"), xml);
+        Files.move(tmp, defs.resolve(key + ".bpmn"), StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+    }
+
+    private static boolean reachable(BpmnDirectoryWatcher w, String key, String startId, String endId) {
+        try {
+            return w.findPath(key, startId, endId).success();
+        } catch (Exception e) {
+            return false;
+        }
+    }
+
+    private static void await(BooleanSupplier condition, String what) throws InterruptedException {
+        long end = System.currentTimeMillis() + TIMEOUT_MS;
+        while (!condition.getAsBoolean()) {
+            assertTrue(System.currentTimeMillis() < end, "timed out waiting for " + what);
+            Thread.sleep(10);
+        }
+    }
+}
@@ -0,0 +1,106 @@
+package com.CamundaEnver;
+
+import org.junit.jupiter.api.Test;
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Unit tests for the StAX based BpmnGraphCompiler, which must compile the same graph as the Camunda model API.
+ */
+public class BpmnGraphCompilerTest {
+
+    private static final String XML = """
+            <?xml version="1.0" encoding="UTF-8"?>
+            <bpmn:definitions xmlns:bpmn="http://www.omg.org/spec/BPMN/20100524/MODEL"
+                              xmlns:other="urn:example:other" id="defs" targetNamespace="urn:example">
+              <bpmn:collaboration id="collab">
+                <bpmn:participant id="invoicePool" processRef="invoice"/>
+                <bpmn:participant id="supplierPool"/>
+                <bpmn:messageFlow id="m1" sourceRef="notifySupplier" targetRef="supplierPool"/>
+              </bpmn:collaboration>
+              <bpmn:process id="invoice" isExecutable="true">
+                <bpmn:extensionElements><other:task id="foreign"/></bpmn:extensionElements>
+                <bpmn:startEvent id="start"><bpmn:outgoing>f1</bpmn:outgoing></bpmn:startEvent>
+                <bpmn:userTask id="approve" name="Approve &amp; sign"><bpmn:outgoing>f2</bpmn:outgoing></bpmn:userTask>
+                <bpmn:exclusiveGateway id="approved"><bpmn:outgoing>f3</bpmn:outgoing><bpmn:outgoing>f4</bpmn:outgoing></bpmn:exclusiveGateway>
+                <bpmn:subProcess id="review">
+                  <bpmn:outgoing>f5</bpmn:outgoing>
+                  <bpmn:startEvent id="reviewStart"><bpmn:outgoing>r1</bpmn:outgoing></bpmn:startEvent>
+                  <bpmn:endEvent id="reviewEnd"/>
+                  <bpmn:sequenceFlow id="r1" sourceRef="reviewStart" targetRef="reviewEnd"/>
+                </bpmn:subProcess>
+                <bpmn:boundaryEvent id="timeout" attachedToRef="review"><bpmn:outgoing>f6</bpmn:outgoing></bpmn:boundaryEvent>
+                <bpmn:sendTask id="notifySupplier"><bpmn:outgoing>f7</bpmn:outgoing></bpmn:sendTask>
+                <bpmn:endEvent id="processed"/>
+                <bpmn:endEvent id="rejected"/>
+                <bpmn:dataObject id="invoiceData"/>
+                <bpmn:sequenceFlow id="f1" sourceRef="start" targetRef="approve"/>
+                <bpmn:sequenceFlow id="f2" sourceRef="approve" targetRef="approved"/>
+                <bpmn:sequenceFlow id="f3" sourceRef="approved" targetRef="notifySupplier"/>
+                <bpmn:sequenceFlow id="f4" sourceRef="approved" targetRef="review"/>
+                <bpmn:sequenceFlow id="f5" sourceRef="review" targetRef="approve"/>
+                <bpmn:sequenceFlow id="f6" sourceRef="timeout" targetRef="rejected"/>
+                <bpmn:sequenceFlow id="f7" sourceRef="notifySupplier" targetRef="processed"/>
+              </bpmn:process>
+            </bpmn:definitions>
+            """;
+
+    /**
+     * Tests that the compiled nodes and edges match those of the Camunda model, ignoring elements
+     * of other namespaces, message flows and non flow node elements.
+     *
+     * @throws IOException if the XML cannot be compiled
+     */
+    @Test
+    public void testMatchesCamundaModel() throws IOException {
+        ProcessGraph streamed = new BpmnGraphCompiler().parse(new ByteArrayInputStream(XML.getBytes(StandardCharsets.UTF_8)));
+        DefaultBpmnModelService models = new DefaultBpmnModelService();
+        ProcessGraph modelled = models.compileGraph(models.buildNodeMap(models.parseModel(XML.trim())));
+
+        assertEquals(10, streamed.size());
+        assertEquals(modelled.size(), streamed.size());
+        assertEquals(edges(modelled), edges(streamed));
+        assertFalse(streamed.contains("foreign"));
+        assertFalse(streamed.contains("invoiceData"));
+        assertFalse(streamed.contains("supplierPool"));
+        assertEquals(List.of("approve"), streamed.successors("review"));
+        assertEquals(List.of("notifySupplier", "review"), streamed.successors("approved"));
+    }
+
+    /**
+     * Tests that malformed XML is reported as an IOException.
+     */
+    @Test
+    public void testRejectsMalformedXml() {
+        byte[] xml = "<bpmn:definitions xmlns:bpmn=\"http://www.omg.org/spec/BPMN/20100524/MODEL\"><bpmn:process>"
+                .getBytes(StandardCharsets.UTF_8);
+        assertThrows(IOException.class, () -> new BpmnGraphCompiler().parse(new ByteArrayInputStream(xml)));
+    }
+
+    /**
+     * Tests that external entities are not resolved.
+     */
+    @Test
+    public void testRejectsDoctype() {
+        byte[] xml = ("<?xml version=\"1.0\"?><!DOCTYPE d [<!ENTITY e SYSTEM \"file:///etc/passwd\">]>"
+                + "<d>&e;</d>").getBytes(StandardCharsets.UTF_8);
+        assertThrows(IOException.class, () -> new BpmnGraphCompiler().parse(new ByteArrayInputStream(xml)));
+    }
+
+    /**
+     * Lists the edges of a graph as sorted "source->target" strings.
+     */
+    private static List<String> edges(ProcessGraph graph) {
+        List<String> edges = new ArrayList<>();
+        for (int n = 0; n < graph.size(); n++) {
+            for (String target : graph.successors(graph.idOf(n))) edges.add(graph.idOf(n) + "->" + target);
+        }
+        edges.sort(null);
+        return edges;
+    }
+}
@@ -0,0 +1,149 @@
+package com.CamundaEnver;
+
+import org.junit.jupiter.api.Test;
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Unit tests for the state transitions of CircuitBreaker.
+ */
+public class CircuitBreakerTest {
+
+    private static final long OPEN_MS = 50; // Open duration kept short so that tests can wait it out
+
+    /**
+     * Tests the full cycle: the breaker opens on failures, rejects requests while open, lets a limited number
+     * of trial requests through once the open duration has elapsed, and closes when they all succeed.
+     *
+     * @throws InterruptedException if interrupted while waiting for the open duration
+     */
+    @Test
+    public void testOpenHalfOpenClosed() throws InterruptedException {
+        CircuitBreaker breaker = new CircuitBreaker(10, 4, 50, 0, 100, OPEN_MS, 2);
+        for (int i = 0; i < 3; i++) call(breaker, true);
+        assertEquals(CircuitBreaker.State.CLOSED, breaker.state(), "fewer than minimumCalls calls");
+        call(breaker, false);
+        assertEquals(CircuitBreaker.State.OPEN, breaker.state(), "3 of 4 calls failed");
+
+        assertFalse(breaker.tryAcquire());
+        assertFalse(breaker.tryAcquire());
+        assertEquals(2, breaker.rejected());
+
+        Thread.sleep(OPEN_MS + 20);
+        assertTrue(breaker.tryAcquire());
+        assertEquals(CircuitBreaker.State.HALF_OPEN, breaker.state());
+        assertTrue(breaker.tryAcquire());
+        assertFalse(breaker.tryAcquire(), "only two trial requests");
+        breaker.record(false, 1);
+        assertEquals(CircuitBreaker.State.HALF_OPEN, breaker.state());
+        breaker.record(false, 1);
+        assertEquals(CircuitBreaker.State.CLOSED, breaker.state());
+
+        // Closing starts a fresh window
+        for (int i = 0; i < 3; i++) call(breaker, true);
+        assertEquals(CircuitBreaker.State.CLOSED, breaker.state());
+    }
+
+    /**
+     * Tests that a failed trial request reopens the breaker for another open duration.
+     *
+     * @throws InterruptedException if interrupted while waiting for the open duration
+     */
+    @Test
+    public void testFailedTrialReopens() throws InterruptedException {
+        CircuitBreaker breaker = new CircuitBreaker(4, 2, 50, 0, 100, OPEN_MS, 1);
+        call(breaker, true);
+        call(breaker, true);
+        assertEquals(CircuitBreaker.State.OPEN, breaker.state());
+
+        Thread.sleep(OPEN_MS + 20);
+        assertTrue(breaker.tryAcquire());
+        breaker.record(true, 1);
+        assertEquals(CircuitBreaker.State.OPEN, breaker.state());
+        assertFalse(breaker.tryAcquire());
+
+        // A late outcome of a request sent before the breaker opened changes nothing
+        breaker.record(false, 1);
+        assertEquals(CircuitBreaker.State.OPEN, breaker.state());
+    }
+
+    /**
+     * Tests that a released trial permit can be used by another request, without counting as a success.
+     *
+     * @throws InterruptedException if interrupted while waiting for the open duration
+     */
+    @Test
+    public void testReleaseGivesBackTrialPermit() throws InterruptedException {
+        CircuitBreaker breaker = new CircuitBreaker(4, 2, 50, 0, 100, OPEN_MS, 1);
+        call(breaker, true);
+        call(breaker, true);
+        Thread.sleep(OPEN_MS + 20);
+
+        assertTrue(breaker.tryAcquire());
+        assertFalse(breaker.tryAcquire());
+        breaker.release();
+        assertEquals(CircuitBreaker.State.HALF_OPEN, breaker.state());
+        assertTrue(breaker.tryAcquire());
+        breaker.record(false, 1);
+        assertEquals(CircuitBreaker.State.CLOSED, breaker.state());
+
+        // Releasing a permit while closed has no effect on the window
+        assertTrue(breaker.tryAcquire());
+        breaker.release();
+        assertEquals(CircuitBreaker.State.CLOSED, breaker.state());
+    }
+
+    /**
+     * Tests that slow calls open the breaker even when they succeed, and that latency is ignored when disabled.
+     */
+    @Test
+    public void testSlowCallsOpen() {
+        CircuitBreaker breaker = new CircuitBreaker(5, 5, 100, 200, 60, OPEN_MS, 1);
+        for (int i = 0; i < 2; i++) record(breaker, false, 500);
+        for (int i = 0; i < 2; i++) record(breaker, false, 10);
+        assertEquals(CircuitBreaker.State.CLOSED, breaker.state());
+        record(breaker, false, 200);
+        assertEquals(CircuitBreaker.State.OPEN, breaker.state(), "3 of 5 calls slow");
+
+        CircuitBreaker latencyIgnored = new CircuitBreaker(5, 5, 100, 0, 60, OPEN_MS, 1);
+        for (int i = 0; i < 10; i++) record(latencyIgnored, false, 60_000);
+        assertEquals(CircuitBreaker.State.CLOSED, latencyIgnored.state());
+    }
+
+    /**
+     * Tests that old outcomes leave the sliding window.
+     */
+    @Test
+    public void testSlidingWindow() {
+        CircuitBreaker breaker = new CircuitBreaker(4, 4, 75, 0, 100, OPEN_MS, 1);
+        call(breaker, true);
+        call(breaker, true);
+        call(breaker, false);
+        call(breaker, false);
+        assertEquals(CircuitBreaker.State.CLOSED, breaker.state(), "2 of 4 failed");
+        // The two failures leave the window one by one
+        call(breaker, true);
+        call(breaker, false);
+        call(breaker, true);
+        assertEquals(CircuitBreaker.State.CLOSED, breaker.state(), "2 of the last 4 failed");
+        call(breaker, true);
+        assertEquals(CircuitBreaker.State.OPEN, breaker.state(), "3 of the last 4 failed");
+    }
+
+    /**
+     * Tests the validation of the constructor arguments.
+     */
+    @Test
+    public void testRejectsInvalidSizes() {
+        assertThrows(IllegalArgumentException.class, () -> new CircuitBreaker(0, 1, 50, 0, 100, OPEN_MS, 1));
+        assertThrows(IllegalArgumentException.class, () -> new CircuitBreaker(10, 1, 50, 0, 100, OPEN_MS, 0));
+    }
+
+    private static void call(CircuitBreaker breaker, boolean failed) {
+        record(breaker, failed, 1);
+    }
+
+    private static void record(CircuitBreaker breaker, boolean failed, long elapsedMs) {
+        assertTrue(breaker.tryAcquire(), "request rejected while " + breaker.state());
+        breaker.record(failed, elapsedMs);
+    }
+}
@@ -0,0 +1,119 @@
+package com.CamundaEnver;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.Random;
+
+/**
+ * Unit tests for the binary format of CompiledGraphFile and the validation of files read back.
+ */
+public class CompiledGraphFileTest {
+
+    private static final String HASH = "9f86d081884c7d659a2feaa0c55ad015a3bf4f1b2b0b822cd15d6c15b0f00a08";
+
+    /**
+     * Tests that a graph and its reachability index are read back unchanged, including non-ASCII IDs.
+     *
+     * @param dir a temporary directory for the file
+     * @throws IOException if the file cannot be written or read
+     */
+    @Test
+    public void testRoundTrip(@TempDir Path dir) throws IOException {
+        Random random = new Random(19);
+        ProcessGraph.Builder b = ProcessGraph.builder();
+        for (int i = 0; i < 100; i++) b.addNode(i % 3 == 0 ? "Prüfung_" + i : "task" + i);
+        for (int i = 0; i < 250; i++) {
+            int s = random.nextInt(100), t = random.nextInt(100);
+            b.addEdge(s % 3 == 0 ? "Prüfung_" + s : "task" + s, t % 3 == 0 ? "Prüfung_" + t : "task" + t);
+        }
+        ProcessGraph graph = b.build();
+        ReachabilityIndex reachability = ReachabilityIndex.build(graph);
+        Path file = dir.resolve(HASH + ".graph");
+        CompiledGraphFile.write(file, graph, reachability, HASH);
+
+        CompiledGraphFile.Contents contents = CompiledGraphFile.read(file);
+        ProcessGraph read = contents.graph();
+        assertEquals(HASH, contents.sourceHash());
+        assertEquals(graph.size(), read.size());
+        for (int i = 0; i < graph.size(); i++) assertEquals(graph.idOf(i), read.idOf(i));
+        assertArrayEquals(graph.offsets(), read.offsets());
+        assertArrayEquals(graph.targets(), read.targets());
+        assertArrayEquals(graph.inOffsets(), read.inOffsets());
+        assertArrayEquals(graph.inSources(), read.inSources());
+        assertNotNull(contents.reachability());
+        assertEquals(reachability.componentCount(), contents.reachability().componentCount());
+        assertArrayEquals(reachability.components(), contents.reachability().components());
+        assertArrayEquals(reachability.closure(), contents.reachability().closure());
+        for (int s = 0; s < graph.size(); s++) {
+            for (int t = 0; t < graph.size(); t++) assertEquals(reachability.isReachable(s, t), contents.reachability().isReachable(s, t));
+        }
+    }
+
+    /**
+     * Tests files without a reachability index or a source hash, and an empty graph.
+     *
+     * @param dir a temporary directory for the file
+     * @throws IOException if the file cannot be written or read
+     */
+    @Test
+    public void testOptionalParts(@TempDir Path dir) throws IOException {
+        Path file = dir.resolve("plain.graph");
+        ProcessGraph graph = GraphFixtures.randomGraph(new Random(2), 10, 15);
+        CompiledGraphFile.write(file, graph, null, null);
+        CompiledGraphFile.Contents contents = CompiledGraphFile.read(file);
+        assertNull(contents.reachability());
+        assertNull(contents.sourceHash());
+        assertArrayEquals(graph.targets(), contents.graph().targets());
+
+        ProcessGraph empty = ProcessGraph.builder().build();
+        CompiledGraphFile.write(file, empty, ReachabilityIndex.build(empty), HASH);
+        contents = CompiledGraphFile.read(file);
+        assertEquals(0, contents.graph().size());
+        assertEquals(0, contents.reachability().componentCount());
+    }
+
+    /**
+     * Tests that a file with any single damaged byte, or cut short anywhere, is rejected.
+     *
+     * @param dir a temporary directory for the file
+     * @throws IOException if the file cannot be written
+     */
+    @Test
+    public void testRejectsCorruptedFiles(@TempDir Path dir) throws IOException {
+        ProcessGraph graph = GraphFixtures.randomGraph(new Random(4), 12, 20);
+        Path file = dir.resolve("valid.graph"), damaged = dir.resolve("damaged.graph");
+        CompiledGraphFile.write(file, graph, ReachabilityIndex.build(graph), HASH);
+        byte[] bytes = Files.readAllBytes(file);
+
+        for (int i = 0; i < bytes.length; i++) {
+            byte[] copy = bytes.clone();
+            copy[i] ^= (byte) (1 << (i % 8));
+            Files.write(damaged, copy);
+            assertThrows(IOException.class, () -> CompiledGraphFile.read(damaged), "damaged byte " + i);
+        }
+        for (int length = 0; length < bytes.length; length++) {
+            Files.write(damaged, Arrays.copyOf(bytes, length));
+            assertThrows(IOException.class, () -> CompiledGraphFile.read(damaged), "truncated to " + length);
+        }
+    }
+
+    /**
+     * Tests that a source hash that is not a SHA-256 hash in hex is refused when writing.
+     *
+     * @param dir a temporary directory for the file
+     */
+    @Test
+    public void testRejectsInvalidHash(@TempDir Path dir) {
+        ProcessGraph graph = GraphFixtures.randomGraph(new Random(6), 3, 2);
+        Path file = dir.resolve("invalid.graph");
+        assertThrows(IllegalArgumentException.class, () -> CompiledGraphFile.write(file, graph, null, "abc"));
+        assertThrows(IllegalArgumentException.class, () -> CompiledGraphFile.write(file, graph, null, HASH.replace('a', 'x')));
+        assertFalse(Files.exists(file));
+    }
+}
@@ -0,0 +1,172 @@
+package com.CamundaEnver;
+
+import org.apache.commons.codec.digest.DigestUtils;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+
+/**
+ * Unit tests for DiskDefinitionCache. Separate instances on the same directory stand in for separate processes.
+ */
+public class DiskDefinitionCacheTest {
+
+    private static final String URL_A = "http://engine/process-definition/key/a/xml";
+    private static final String URL_B = "http://engine/process-definition/key/b/xml";
+
+    /**
+     * Tests that a stored definition is found again by a new instance and parses to the same content,
+     * even if the parser that stored it stopped reading early.
+     *
+     * @param dir the cache directory
+     * @throws IOException if the cache cannot be used
+     */
+    @Test
+    public void testStoreAndRead(@TempDir Path dir) throws IOException {
+        DiskDefinitionCache cache = new DiskDefinitionCache(dir);
+        String hash = store(cache, "<definitions id=\"a\"/>");
+        assertEquals(DigestUtils.sha256Hex("<definitions id=\"a\"/>"), hash);
+        cache.put(URL_A, hash, "\"v1\"", "Tue, 01 Sep 2026 10:00:00 GMT");
+
+        DiskDefinitionCache.Entry entry = new DiskDefinitionCache(dir).get(URL_A);
+        assertNotNull(entry);
+        assertEquals(hash, entry.hash());
+        assertEquals("\"v1\"", entry.etag());
+        assertEquals("Tue, 01 Sep 2026 10:00:00 GMT", entry.lastModified());
+        assertEquals("<definitions id=\"a\"/>", cache.read(entry, in -> new String(in.readAllBytes(), StandardCharsets.UTF_8)));
+        assertNull(cache.get(URL_B));
+    }
+
+    /**
+     * Tests that a definition file whose content no longer matches its hash is rejected.
+     *
+     * @param dir the cache directory
+     * @throws IOException if the cache cannot be used
+     */
+    @Test
+    public void testRejectsCorruptDefinition(@TempDir Path dir) throws IOException {
+        DiskDefinitionCache cache = new DiskDefinitionCache(dir);
+        String hash = store(cache, "<definitions id=\"a\"/>");
+        cache.put(URL_A, hash, null, null);
+        Files.writeString(dir.resolve(hash + ".bpmn"), "<definitions id=\"b\"/>");
+        assertThrows(IOException.class, () -> cache.read(cache.get(URL_A), in -> in.readAllBytes().length));
+    }
+
+    /**
+     * Tests that replacing a URL's definition removes the old files, unless another URL still refers to them.
+     *
+     * @param dir the cache directory
+     * @throws IOException if the cache cannot be used
+     */
+    @Test
+    public void testRemovesUnreferencedDefinitions(@TempDir Path dir) throws IOException {
+        DiskDefinitionCache cache = new DiskDefinitionCache(dir);
+        String v1 = store(cache, "<definitions id=\"v1\"/>");
+        cache.put(URL_A, v1, null, null);
+        cache.put(URL_B, v1, null, null);
+        Files.writeString(cache.compiledFile(v1), "compiled");
+
+        String v2 = store(cache, "<definitions id=\"v2\"/>");
+        cache.put(URL_A, v2, null, null);
+        assertTrue(Files.exists(dir.resolve(v1 + ".bpmn")), "still referenced by URL_B");
+        assertTrue(Files.exists(cache.compiledFile(v1)));
+
+        cache.put(URL_B, v2, null, null);
+        assertFalse(Files.exists(dir.resolve(v1 + ".bpmn")));
+        assertFalse(Files.exists(cache.compiledFile(v1)));
+        assertTrue(Files.exists(dir.resolve(v2 + ".bpmn")));
+    }
+
+    /**
+     * Tests that two instances sharing a directory merge their entries instead of overwriting each other's,
+     * and that a definition still referenced by the other instance's entry is kept.
+     *
+     * @param dir the cache directory
+     * @throws IOException if the cache cannot be used
+     */
+    @Test
+    public void testMergesEntriesOfOtherInstances(@TempDir Path dir) throws IOException {
+        DiskDefinitionCache first = new DiskDefinitionCache(dir), second = new DiskDefinitionCache(dir);
+        String shared = store(first, "<definitions id=\"shared\"/>");
+        first.put(URL_A, shared, null, null);
+        second.put(URL_B, shared, null, null);
+
+        // The first instance has never seen URL_B; replacing URL_A must not remove the file URL_B refers to
+        first.put(URL_A, store(first, "<definitions id=\"a2\"/>"), null, null);
+        assertTrue(Files.exists(dir.resolve(shared + ".bpmn")));
+
+        DiskDefinitionCache third = new DiskDefinitionCache(dir);
+        assertEquals(shared, third.get(URL_B).hash());
+        assertNotEquals(shared, third.get(URL_A).hash());
+        assertEquals(shared, first.get(URL_B).hash());
+    }
+
+    /**
+     * Tests that recording a definition file that has been removed fails instead of indexing a missing file.
+     *
+     * @param dir the cache directory
+     * @throws IOException if the cache cannot be used
+     */
+    @Test
+    public void testRejectsMissingDefinition(@TempDir Path dir) throws IOException {
+        DiskDefinitionCache cache = new DiskDefinitionCache(dir);
+        String hash = store(cache, "<definitions/>");
+        Files.delete(dir.resolve(hash + ".bpmn"));
+        assertThrows(NoSuchFileException.class, () -> cache.put(URL_A, hash, null, null));
+        assertNull(cache.get(URL_A));
+    }
+
+    /**
+     * Tests that a damaged index is treated as empty and rewritten by the next update.
+     *
+     * @param dir the cache directory
+     * @throws IOException if the cache cannot be used
+     */
+    @Test
+    public void testDamagedIndex(@TempDir Path dir) throws IOException {
+        Files.writeString(dir.resolve("index.json"), "{\"" + URL_A + "\": [");
+        DiskDefinitionCache cache = new DiskDefinitionCache(dir);
+        assertNull(cache.get(URL_A));
+        cache.put(URL_A, store(cache, "<definitions/>"), null, null);
+        assertNotNull(new DiskDefinitionCache(dir).get(URL_A));
+    }
+
+    /**
+     * Tests that every library naming the same directory shares one instance.
+     *
+     * @param dir the cache directory
+     * @throws IOException if the cache cannot be used
+     */
+    @Test
+    public void testOpenSharesInstances(@TempDir Path dir) throws IOException {
+        DiskDefinitionCache cache = DiskDefinitionCache.open(dir.resolve("cache"));
+        assertSame(cache, DiskDefinitionCache.open(dir.resolve("other/../cache")));
+        assertNotSame(cache, DiskDefinitionCache.open(dir.resolve("other")));
+    }
+
+    /**
+     * Tests the freshness check of an entry.
+     */
+    @Test
+    public void testEntryFreshness() {
+        DiskDefinitionCache.Entry entry = new DiskDefinitionCache.Entry("hash", null, null, 1000);
+        assertTrue(entry.isFresh(500, 1499));
+        assertFalse(entry.isFresh(500, 1500));
+        assertFalse(entry.isFresh(0, 1000));
+    }
+
+    /**
+     * Stores a definition through a parser that only reads its first bytes.
+     */
+    private static String store(DiskDefinitionCache cache, String xml) throws IOException {
+        return cache.persisting(in -> in.readNBytes(4))
+                .parse(new ByteArrayInputStream(xml.getBytes(StandardCharsets.UTF_8)))
+                .hash();
+    }
+}
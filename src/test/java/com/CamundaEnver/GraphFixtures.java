@@ -0,0 +1,75 @@
+package com.CamundaEnver;
+
+import java.util.ArrayDeque;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+
+/**
+ * Random graphs and a plain breadth-first search that the optimized search structures are checked against.
+ */
+final class GraphFixtures {
+
+    private GraphFixtures() {
+    }
+
+    /**
+     * Creates a random directed graph, which may contain cycles, self-loops and parallel edges.
+     *
+     * @param random the source of randomness
+     * @param nodes  the number of nodes, named {@code n0 .. n<nodes-1>}
+     * @param edges  the number of edges
+     * @return the graph
+     */
+    static ProcessGraph randomGraph(Random random, int nodes, int edges) {
+        ProcessGraph.Builder b = ProcessGraph.builder();
+        for (int i = 0; i < nodes; i++) b.addNode("n" + i);
+        for (int i = 0; i < edges; i++) b.addEdge("n" + random.nextInt(nodes), "n" + random.nextInt(nodes));
+        return b.build();
+    }
+
+    /**
+     * Computes the edge count of a shortest path from one node to every other node.
+     *
+     * @param graph the graph
+     * @param start the start node index
+     * @return the distances by node index, -1 for unreachable nodes
+     */
+    static int[] distances(ProcessGraph graph, int start) {
+        int[] dist = new int[graph.size()];
+        Arrays.fill(dist, -1);
+        dist[start] = 0;
+        ArrayDeque<Integer> queue = new ArrayDeque<>();
+        queue.add(start);
+        while (!queue.isEmpty()) {
+            int u = queue.poll();
+            for (String id : graph.successors(graph.idOf(u))) {
+                int v = graph.indexOf(id);
+                if (dist[v] < 0) {
+                    dist[v] = dist[u] + 1;
+                    queue.add(v);
+                }
+            }
+        }
+        return dist;
+    }
+
+    /**
+     * Checks that a list of IDs is a path of the graph between the given nodes.
+     *
+     * @param graph the graph
+     * @param path  the flow node IDs
+     * @param start the expected first node index
+     * @param end   the expected last node index
+     * @return true if every consecutive pair is connected by an edge
+     */
+    static boolean isPath(ProcessGraph graph, List<String> path, int start, int end) {
+        if (path.isEmpty() || graph.indexOf(path.get(0)) != start || graph.indexOf(path.get(path.size() - 1)) != end) {
+            return false;
+        }
+        for (int i = 0; i + 1 < path.size(); i++) {
+            if (!graph.successors(path.get(i)).contains(path.get(i + 1))) return false;
+        }
+        return true;
+    }
+}
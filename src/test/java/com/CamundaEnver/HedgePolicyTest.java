@@ -0,0 +1,90 @@
+package com.CamundaEnver;
+
+import org.junit.jupiter.api.Test;
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Unit tests for the hedge delay computed by HedgePolicy.
+ */
+public class HedgePolicyTest {
+
+    /**
+     * Tests that the initial delay is used until ten latencies have been observed.
+     */
+    @Test
+    public void testInitialDelayUntilEnoughSamples() {
+        HedgePolicy policy = new HedgePolicy(95, 20, 1000, 100);
+        assertEquals(1000, policy.delayMillis());
+        for (int i = 0; i < 9; i++) policy.recordLatency(50);
+        assertEquals(1000, policy.delayMillis());
+        policy.recordLatency(50);
+        assertEquals(50, policy.delayMillis());
+
+        // A window smaller than ten needs only to be full
+        HedgePolicy small = new HedgePolicy(95, 20, 1000, 4);
+        for (int i = 0; i < 4; i++) small.recordLatency(70);
+        assertEquals(70, small.delayMillis());
+    }
+
+    /**
+     * Tests the nearest-rank percentile over the observed latencies.
+     */
+    @Test
+    public void testPercentile() {
+        HedgePolicy p95 = new HedgePolicy(95, 0, 1000, 100), p50 = new HedgePolicy(50, 0, 1000, 100);
+        HedgePolicy p100 = new HedgePolicy(100, 0, 1000, 100);
+        // Latencies 1..100 in shuffled order
+        for (int i = 0; i < 100; i++) {
+            long latency = (i * 37) % 100 + 1;
+            p95.recordLatency(latency);
+            p50.recordLatency(latency);
+            p100.recordLatency(latency);
+        }
+        assertEquals(95, p95.delayMillis());
+        assertEquals(50, p50.delayMillis());
+        assertEquals(100, p100.delayMillis());
+
+        HedgePolicy tail = new HedgePolicy(90, 0, 1000, 20);
+        for (int i = 0; i < 18; i++) tail.recordLatency(20);
+        tail.recordLatency(2000);
+        tail.recordLatency(2000);
+        assertEquals(20, tail.delayMillis(), "the slowest 10% are the ones to hedge");
+        tail.recordLatency(2000);
+        assertEquals(2000, tail.delayMillis(), "the oldest fast call left the window");
+    }
+
+    /**
+     * Tests that the delay never drops below the minimum, including before enough latencies are known.
+     */
+    @Test
+    public void testMinDelay() {
+        HedgePolicy policy = new HedgePolicy(95, 20, 5, 10);
+        assertEquals(20, policy.delayMillis());
+        for (int i = 0; i < 10; i++) policy.recordLatency(3);
+        assertEquals(20, policy.delayMillis());
+    }
+
+    /**
+     * Tests the hedge counters.
+     */
+    @Test
+    public void testCounters() {
+        HedgePolicy policy = new HedgePolicy(95, 20, 1000, 10);
+        policy.recordHedge();
+        policy.recordHedge();
+        policy.recordHedgeWin();
+        assertEquals(2, policy.hedges());
+        assertEquals(1, policy.hedgeWins());
+    }
+
+    /**
+     * Tests the validation of the constructor arguments.
+     */
+    @Test
+    public void testRejectsInvalidArguments() {
+        assertThrows(IllegalArgumentException.class, () -> new HedgePolicy(0, 20, 1000, 10));
+        assertThrows(IllegalArgumentException.class, () -> new HedgePolicy(100.5, 20, 1000, 10));
+        assertThrows(IllegalArgumentException.class, () -> new HedgePolicy(Double.NaN, 20, 1000, 10));
+        assertThrows(IllegalArgumentException.class, () -> new HedgePolicy(95, 20, 1000, 0));
+    }
+}
@@ -0,0 +1,99 @@
+package com.CamundaEnver;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.ForkJoinPool;
+
+/**
+ * Unit tests for the batch query API of InvoicePathLibrary, run against a BPMN file instead of the REST API.
+ */
+public class InvoicePathLibraryBatchTest {
+
+    /**
+     * Tests that a batch answers every query, in order, like the corresponding single query,
+     * including repeated start nodes, unknown node IDs and unreachable pairs.
+     *
+     * @param dir a temporary directory for the BPMN file
+     * @throws Exception if the model cannot be loaded
+     */
+    @Test
+    public void testBatchMatchesSingleQueries(@TempDir Path dir) throws Exception {
+        Random random = new Random(23);
+        int n = 40;
+        Path file = dir.resolve("random.bpmn");
+        Files.writeString(file, randomBpmn(random, n, 60), StandardCharsets.UTF_8);
+
+        List<InvoicePathLibrary.PathQuery> queries = new ArrayList<>();
+        for (int i = 0; i < 500; i++) {
+            queries.add(new InvoicePathLibrary.PathQuery("task" + random.nextInt(n / 4), "task" + random.nextInt(n)));
+        }
+        queries.add(new InvoicePathLibrary.PathQuery("task1", "missing"));
+        queries.add(new InvoicePathLibrary.PathQuery("missing", "task1"));
+        queries.add(new InvoicePathLibrary.PathQuery("task2", "task2"));
+
+        ForkJoinPool pool = new ForkJoinPool(4);
+        try (InvoicePathLibrary lib = InvoicePathLibrary.session(new FileBpmnSource(file), 0)) {
+            List<InvoicePathLibrary.PathResult> batch = lib.findPaths(queries, pool);
+            assertEquals(queries.size(), batch.size());
+            for (int i = 0; i < queries.size(); i++) {
+                InvoicePathLibrary.PathQuery q = queries.get(i);
+                InvoicePathLibrary.PathResult single = lib.findPath(q.startId(), q.endId());
+                InvoicePathLibrary.PathResult result = batch.get(i);
+                assertEquals(single.success(), result.success(), q.toString());
+                assertEquals(single.message(), result.message(), q.toString());
+                assertEquals(single.path().size(), result.path().size(), q.toString());
+                if (result.success()) {
+                    assertEquals(q.startId(), result.path().get(0));
+                    assertEquals(q.endId(), result.path().get(result.path().size() - 1));
+                }
+            }
+        } finally {
+            pool.shutdown();
+        }
+    }
+
+    /**
+     * Tests that a single-use library answers a batch and then closes its source.
+     *
+     * @param dir a temporary directory for the BPMN file
+     * @throws Exception if the model cannot be loaded
+     */
+    @Test
+    public void testSingleUseBatch(@TempDir Path dir) throws Exception {
+        Path file = dir.resolve("chain.bpmn");
+        Files.writeString(file, randomBpmn(new Random(1), 3, 0).replace("</bpmn:process>",
+                "<bpmn:sequenceFlow id=\"a\" sourceRef=\"task0\" targetRef=\"task1\"/>"
+                        + "<bpmn:sequenceFlow id=\"b\" sourceRef=\"task1\" targetRef=\"task2\"/></bpmn:process>"));
+        try (InvoicePathLibrary lib = new InvoicePathLibrary(new FileBpmnSource(file))) {
+            List<InvoicePathLibrary.PathResult> results = lib.findPaths(List.of(
+                    new InvoicePathLibrary.PathQuery("task0", "task2"),
+                    new InvoicePathLibrary.PathQuery("task2", "task0")));
+            assertEquals(List.of("task0", "task1", "task2"), results.get(0).path());
+            assertFalse(results.get(1).success());
+            assertEquals("No path found", results.get(1).message());
+        }
+    }
+
+    /**
+     * Writes a process of user tasks {@code task0 .. task<n-1>} connected by random sequence flows.
+     */
+    private static String randomBpmn(Random random, int n, int flows) {
+        StringBuilder sb = new StringBuilder("<?xml version=\"1.0\" encoding=\"UTF-8\"?>\n"
+                + "<bpmn:definitions xmlns:bpmn=\"http://www.omg.org/spec/BPMN/20100524/MODEL\" id=\"defs\" "
+                + "targetNamespace=\"urn:example\"><bpmn:process id=\"random\">");
+        for (int i = 0; i < n; i++) sb.append("<bpmn:userTask id=\"task").append(i).append("\"/>");
+        for (int i = 0; i < flows; i++) {
+            sb.append("<bpmn:sequenceFlow id=\"flow").append(i).append("\" sourceRef=\"task").append(random.nextInt(n))
+                    .append("\" targetRef=\"task").append(random.nextInt(n)).append("\"/>");
+        }
+        return sb.append("</bpmn:process></bpmn:definitions>").toString();
+    }
+}
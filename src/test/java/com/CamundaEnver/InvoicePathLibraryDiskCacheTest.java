@@ -0,0 +1,121 @@
+package com.CamundaEnver;
+
+import com.sun.net.httpserver.HttpExchange;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.Map;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Unit tests for single-use libraries whose definitions are persisted in a disk cache,
+ * fetched from a local HTTP server standing in for the REST API.
+ */
+public class InvoicePathLibraryDiskCacheTest {
+
+    private static final long TIMEOUT_MS = 10_000; // Longest wait for a background revalidation
+
+    private volatile String xml; // Definition the server answers with
+    private volatile String etag; // ETag of that definition
+    private volatile CountDownLatch gate = new CountDownLatch(0); // Held requests wait for this latch
+    private final AtomicInteger requests = new AtomicInteger(); // Requests answered so far
+
+    /**
+     * Clears the cache configuration set by a test.
+     */
+    @AfterEach
+    public void clearConfiguration() {
+        System.clearProperty("bpmn.cache.dir");
+        System.clearProperty("bpmn.cache.blocking.revalidate");
+    }
+
+    /**
+     * Tests that a single-use library answers from an older persisted copy without waiting for the server,
+     * and revalidates the copy in the background so that the next library starts from the changed definition.
+     *
+     * @param dir the cache directory
+     * @throws Exception if the server cannot be started or a query fails
+     */
+    @Test
+    public void testServesPersistedCopyFirst(@TempDir Path dir) throws Exception {
+        System.setProperty("bpmn.cache.dir", dir.toString());
+        try (LocalEngine engine = new LocalEngine(this::handle)) {
+            String url = engine.url() + "/process-definition/key/chain/xml";
+            serve(StubBpmnSource.chain(2), "\"v1\"");
+            assertTrue(new InvoicePathLibrary(url, 2000, 0).findPath("task0", "task1").success());
+            assertEquals(1, requests.get());
+            assertEquals("\"v1\"", new DiskDefinitionCache(dir).get(url).etag());
+
+            // The server holds every request; a query that waited for it would time out
+            serve(StubBpmnSource.chain(3), "\"v2\"");
+            CountDownLatch released = hold();
+            InvoicePathLibrary.PathResult stale = new InvoicePathLibrary(url, 2000, 0).findPath("task0", "task2");
+            assertFalse(stale.success());
+            assertEquals("Invalid node IDs", stale.message());
+
+            released.countDown();
+            long end = System.currentTimeMillis() + TIMEOUT_MS;
+            while (!"\"v2\"".equals(new DiskDefinitionCache(dir).get(url).etag())) {
+                assertTrue(System.currentTimeMillis() < end, "persisted copy never revalidated");
+                Thread.sleep(10);
+            }
+            assertTrue(new InvoicePathLibrary(url, 2000, 0).findPath("task0", "task2").success());
+        }
+    }
+
+    /**
+     * Tests that a single-use library revalidates an older persisted copy before answering when configured to block.
+     *
+     * @param dir the cache directory
+     * @throws Exception if the server cannot be started or a query fails
+     */
+    @Test
+    public void testBlockingRevalidation(@TempDir Path dir) throws Exception {
+        System.setProperty("bpmn.cache.dir", dir.toString());
+        System.setProperty("bpmn.cache.blocking.revalidate", "1");
+        try (LocalEngine engine = new LocalEngine(this::handle)) {
+            String url = engine.url() + "/process-definition/key/chain/xml";
+            serve(StubBpmnSource.chain(2), "\"v1\"");
+            assertTrue(new InvoicePathLibrary(url, 2000, 0).findPath("task0", "task1").success());
+
+            serve(StubBpmnSource.chain(3), "\"v2\"");
+            assertTrue(new InvoicePathLibrary(url, 2000, 0).findPath("task0", "task2").success());
+            assertEquals(2, requests.get());
+            assertEquals("\"v2\"", new DiskDefinitionCache(dir).get(url).etag());
+        }
+    }
+
+    private void serve(String xml, String etag) {
+        this.xml = xml;
+        this.etag = etag;
+    }
+
+    private CountDownLatch hold() {
+        CountDownLatch latch = new CountDownLatch(1);
+        gate = latch;
+        return latch;
+    }
+
+    private void handle(HttpExchange exchange) throws IOException {
+        try {
+            if (!gate.await(TIMEOUT_MS, TimeUnit.MILLISECONDS)) throw new IOException("Request never released");
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return;
+        }
+        requests.incrementAndGet();
+        String tag = etag;
+        exchange.getResponseHeaders().add("ETag", tag);
+        if (tag.equals(exchange.getRequestHeaders().getFirst("If-None-Match"))) {
+            exchange.sendResponseHeaders(304, -1);
+        } else {
+            LocalEngine.respond(exchange, 200, JsonUtil.MAPPER.writeValueAsString(Map.of("bpmn20Xml", xml)));
+        }
+    }
+}
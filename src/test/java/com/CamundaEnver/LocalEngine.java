@@ -0,0 +1,63 @@
+package com.CamundaEnver;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+
+import java.io.IOException;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+/**
+ * Local HTTP server standing in for the Camunda REST API in tests. Every request is answered by one handler,
+ * on a thread of its own so that a handler may block.
+ */
+final class LocalEngine implements AutoCloseable {
+    private final HttpServer server; // Server bound to an ephemeral port of the loopback interface
+    private final ExecutorService executor = Executors.newCachedThreadPool(); // Runs the handler
+
+    /**
+     * Answers a request.
+     */
+    @FunctionalInterface
+    interface Handler {
+        void handle(HttpExchange exchange) throws IOException;
+    }
+
+    LocalEngine(Handler handler) throws IOException {
+        server = HttpServer.create(new InetSocketAddress(InetAddress.getLoopbackAddress(), 0), 0);
+        server.createContext("/", exchange -> {
+            try (exchange) {
+                handler.handle(exchange);
+            }
+        });
+        server.setExecutor(executor);
+        server.start();
+    }
+
+    /**
+     * Returns the base URL of the REST API.
+     */
+    String url() {
+        return "http://127.0.0.1:" + server.getAddress().getPort() + "/engine-rest";
+    }
+
+    /**
+     * Sends a JSON response. The body must not be empty: the server closes the connection after a response without
+     * one, which a pooled client only notices when it reuses the connection.
+     */
+    static void respond(HttpExchange exchange, int code, String body) throws IOException {
+        byte[] bytes = body.getBytes(StandardCharsets.UTF_8);
+        exchange.getResponseHeaders().add("Content-Type", "application/json");
+        exchange.sendResponseHeaders(code, bytes.length);
+        exchange.getResponseBody().write(bytes);
+    }
+
+    @Override
+    public void close() {
+        server.stop(0);
+        executor.shutdownNow();
+    }
+}
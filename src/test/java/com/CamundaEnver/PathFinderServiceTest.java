@@ -0,0 +1,110 @@
+package com.CamundaEnver;
+
+import org.junit.jupiter.api.Test;
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.util.List;
+import java.util.Random;
+
+/**
+ * Unit tests for the searches of PathFinderService over compiled process graphs.
+ * Every search is checked against a plain breadth-first search on random graphs.
+ */
+public class PathFinderServiceTest {
+
+    private final PathFinderService bfs = new PathFinderService(PathFinderService.SearchMode.BFS);
+    private final PathFinderService bidirectional = new PathFinderService(PathFinderService.SearchMode.BIDIRECTIONAL);
+
+    /**
+     * Tests that both search modes find valid paths of the shortest length, and no path when there is none,
+     * on random graphs ranging from sparse to dense.
+     */
+    @Test
+    public void testBidirectionalMatchesBreadthFirst() {
+        Random random = new Random(11);
+        for (int round = 0; round < 200; round++) {
+            int n = 1 + random.nextInt(80);
+            ProcessGraph g = GraphFixtures.randomGraph(random, n, random.nextInt(3 * n + 1));
+            for (int query = 0; query < 20; query++) {
+                int s = random.nextInt(n), t = random.nextInt(n);
+                int expected = GraphFixtures.distances(g, s)[t];
+                List<String> one = bfs.findShortestPath(g, s, t);
+                List<String> two = bidirectional.findShortestPath(g, s, t);
+                if (expected < 0) {
+                    assertTrue(one.isEmpty(), "BFS found a path to an unreachable node");
+                    assertTrue(two.isEmpty(), "bidirectional search found a path to an unreachable node");
+                } else {
+                    assertEquals(expected + 1, one.size(), "BFS path length");
+                    assertEquals(expected + 1, two.size(), "bidirectional path length");
+                    assertTrue(GraphFixtures.isPath(g, one, s, t), "BFS result is not a path: " + one);
+                    assertTrue(GraphFixtures.isPath(g, two, s, t), "bidirectional result is not a path: " + two);
+                }
+            }
+        }
+    }
+
+    /**
+     * Tests that the early-exit reachability search, used for graphs too large to index, agrees with a full search.
+     */
+    @Test
+    public void testIsReachableMatchesBreadthFirst() {
+        Random random = new Random(13);
+        for (int round = 0; round < 100; round++) {
+            int n = 1 + random.nextInt(80);
+            ProcessGraph g = GraphFixtures.randomGraph(random, n, random.nextInt(2 * n + 1));
+            for (int s = 0; s < n; s++) {
+                int[] expected = GraphFixtures.distances(g, s);
+                for (int t = 0; t < n; t++) assertEquals(expected[t] >= 0, bfs.isReachable(g, s, t), s + " -> " + t);
+            }
+        }
+        ProcessGraph g = GraphFixtures.randomGraph(random, 3, 0);
+        assertTrue(bfs.isReachable(g, "n0", "n0"));
+        assertFalse(bfs.isReachable(g, "n0", "missing"));
+        assertFalse(bfs.isReachable(g, null, "n0"));
+    }
+
+    /**
+     * Tests that one search towards many end nodes, with duplicates and the start node among them,
+     * finds paths of the same lengths as separate searches.
+     */
+    @Test
+    public void testBatchMatchesSingleSearches() {
+        Random random = new Random(17);
+        for (int round = 0; round < 100; round++) {
+            int n = 1 + random.nextInt(80);
+            ProcessGraph g = GraphFixtures.randomGraph(random, n, random.nextInt(3 * n + 1));
+            int s = random.nextInt(n);
+            int[] ends = new int[random.nextInt(2 * n + 1)];
+            for (int i = 0; i < ends.length; i++) ends[i] = random.nextInt(n);
+            List<List<String>> paths = bfs.findShortestPaths(g, s, ends);
+            assertEquals(ends.length, paths.size());
+            for (int i = 0; i < ends.length; i++) {
+                List<String> single = bfs.findShortestPath(g, s, ends[i]);
+                assertEquals(single.size(), paths.get(i).size(), s + " -> " + ends[i]);
+                if (!single.isEmpty()) assertTrue(GraphFixtures.isPath(g, paths.get(i), s, ends[i]));
+            }
+        }
+    }
+
+    /**
+     * Tests the searches by flow node ID, including unknown nodes and a node searched for itself.
+     */
+    @Test
+    public void testSearchByIds() {
+        ProcessGraph.Builder b = ProcessGraph.builder();
+        for (String id : List.of("start", "gateway", "approve", "reject", "end")) b.addNode(id);
+        b.addEdge("start", "gateway");
+        b.addEdge("gateway", "approve");
+        b.addEdge("gateway", "reject");
+        b.addEdge("approve", "end");
+        b.addEdge("reject", "gateway");
+        ProcessGraph g = b.build();
+        for (PathFinderService service : List.of(bfs, bidirectional)) {
+            assertEquals(List.of("start", "gateway", "approve", "end"), service.findShortestPath(g, "start", "end"));
+            assertEquals(List.of("reject", "gateway", "approve"), service.findShortestPath(g, "reject", "approve"));
+            assertEquals(List.of("gateway"), service.findShortestPath(g, "gateway", "gateway"));
+            assertEquals(List.of(), service.findShortestPath(g, "end", "start"));
+            assertEquals(List.of(), service.findShortestPath(g, "start", "missing"));
+        }
+    }
+}
@@ -0,0 +1,165 @@
+package com.CamundaEnver;
+
+import org.junit.jupiter.api.Test;
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Unit tests for ProcessGraphRegistry. Engine requests go to a local HTTP server standing in for the REST API,
+ * and definitions held in memory are served by StubBpmnSource.
+ */
+public class ProcessGraphRegistryTest {
+
+    private static final String CATALOG = "[{\"id\":\"invoice:2:x\",\"key\":\"invoice\",\"version\":2},"
+            + "{\"id\":\"invoice:2:y\",\"key\":\"invoice\",\"version\":2,\"tenantId\":\"t\"},"
+            + "{\"id\":\"review:1:z\",\"key\":\"review\",\"version\":1}]";
+
+    /**
+     * Tests that the engine catalog listing is retried when the engine is overloaded.
+     *
+     * @throws IOException if the server cannot be started or the listing fails
+     */
+    @Test
+    public void testEngineCatalogRetries() throws IOException {
+        AtomicInteger requests = new AtomicInteger();
+        LocalEngine engine = new LocalEngine(exchange -> {
+            if (requests.incrementAndGet() <= 2) {
+                exchange.getResponseHeaders().add("Retry-After", "0");
+                LocalEngine.respond(exchange, 503, "{}");
+            } else {
+                LocalEngine.respond(exchange, 200, CATALOG);
+            }
+        });
+        try (SharedHttpClient shared = new SharedHttpClient(4, 8, 1000, 1000, 2000,
+                new RetryPolicy(3, 0, 100, 0), null, null)) {
+            List<ProcessGraphRegistry.DefinitionRef> refs =
+                    ProcessGraphRegistry.engineCatalog(engine.url(), 2000, shared).list();
+            assertEquals(List.of(new ProcessGraphRegistry.DefinitionRef("invoice", ProcessGraphRegistry.LATEST),
+                    new ProcessGraphRegistry.DefinitionRef("review", ProcessGraphRegistry.LATEST)), refs);
+            assertEquals(3, requests.get());
+        } finally {
+            engine.close();
+        }
+    }
+
+    /**
+     * Tests that the engine catalog listing records its failures with the shared circuit breaker
+     * and is skipped once the breaker is open.
+     *
+     * @throws IOException if the server cannot be started
+     */
+    @Test
+    public void testEngineCatalogUsesCircuitBreaker() throws IOException {
+        AtomicInteger requests = new AtomicInteger();
+        LocalEngine engine = new LocalEngine(exchange -> {
+            requests.incrementAndGet();
+            LocalEngine.respond(exchange, 503, "{}");
+        });
+        CircuitBreaker breaker = new CircuitBreaker(2, 2, 50, 0, 100, 60_000, 1);
+        try (SharedHttpClient shared = new SharedHttpClient(4, 8, 1000, 1000, 2000,
+                new RetryPolicy(1, 0, 100, 0), breaker, null)) {
+            ProcessGraphRegistry.Catalog catalog = ProcessGraphRegistry.engineCatalog(engine.url(), 2000, shared);
+            IOException failure = assertThrows(IOException.class, catalog::list);
+            assertEquals("HTTP 503", failure.getMessage());
+            assertEquals(2, requests.get());
+            assertEquals(CircuitBreaker.State.OPEN, breaker.state());
+
+            assertThrows(CircuitBreaker.OpenException.class, catalog::list);
+            assertEquals(2, requests.get());
+        } finally {
+            engine.close();
+        }
+    }
+
+    /**
+     * Tests that resolving a key and version to a definition ID is retried when the engine is overloaded,
+     * and that the source opened for it fetches by ID.
+     *
+     * @throws IOException if the server cannot be started or the definition cannot be resolved
+     */
+    @Test
+    public void testDefinitionIdLookupRetries() throws IOException {
+        AtomicInteger requests = new AtomicInteger();
+        LocalEngine engine = new LocalEngine(exchange -> {
+            assertEquals("key=invoice&version=2", exchange.getRequestURI().getRawQuery());
+            if (requests.incrementAndGet() == 1) {
+                exchange.getResponseHeaders().add("Retry-After", "0");
+                LocalEngine.respond(exchange, 429, "{}");
+            } else {
+                LocalEngine.respond(exchange, 200, CATALOG);
+            }
+        });
+        try (SharedHttpClient shared = new SharedHttpClient(4, 8, 1000, 1000, 2000,
+                new RetryPolicy(2, 0, 100, 0), null, null);
+             BpmnSource source = ProcessGraphRegistry.engineSources(engine.url(), 2000, shared)
+                     .open(new ProcessGraphRegistry.DefinitionRef("invoice", 2))) {
+            assertEquals(engine.url() + "/process-definition/invoice%3A2%3Ax/xml", source.id());
+            assertTrue(source.isImmutable());
+            assertEquals(2, requests.get());
+        } finally {
+            engine.close();
+        }
+    }
+
+    /**
+     * Tests that the least recently used definitions are evicted once the byte budget is exceeded,
+     * that their sources are closed, and that an evicted definition is loaded again on its next use.
+     *
+     * @throws IOException if a definition cannot be loaded
+     */
+    @Test
+    public void testEvictsLeastRecentlyUsed() throws IOException {
+        long bytes = new BpmnGraphCompiler().parse(new ByteArrayInputStream(
+                StubBpmnSource.chain(20).getBytes(StandardCharsets.UTF_8))).estimatedBytes();
+        Map<String, List<StubBpmnSource>> opened = new ConcurrentHashMap<>();
+        ProcessGraphRegistry.SourceFactory sources = ref -> {
+            StubBpmnSource source = new StubBpmnSource(ref.key(), StubBpmnSource.chain(ref.key().equals("big") ? 200 : 20));
+            opened.computeIfAbsent(ref.key(), k -> new CopyOnWriteArrayList<>()).add(source);
+            return source;
+        };
+        ProcessGraphRegistry registry = new ProcessGraphRegistry(sources, 3 * bytes, 0);
+        for (String key : List.of("a", "b", "c")) assertTrue(registry.findPath(key, "task0", "task19").success());
+        assertEquals(3, registry.size());
+        assertEquals(3 * bytes, registry.estimatedBytes());
+        assertEquals(0, registry.evictions());
+
+        // Using a makes b the least recently used definition
+        registry.snapshot("a", ProcessGraphRegistry.LATEST);
+        registry.snapshot("d", ProcessGraphRegistry.LATEST);
+        assertEquals(3, registry.size());
+        assertEquals(1, registry.evictions());
+        assertTrue(opened.get("b").get(0).isClosed());
+        for (String key : List.of("a", "c", "d")) assertFalse(opened.get(key).get(0).isClosed(), key);
+
+        // The evicted definition is opened and fetched again, which evicts c
+        registry.snapshot("b", ProcessGraphRegistry.LATEST);
+        assertEquals(2, opened.get("b").size());
+        assertEquals(1, opened.get("b").get(1).fetches());
+        assertTrue(opened.get("c").get(0).isClosed());
+        assertEquals(2, registry.evictions());
+        // Retained definitions are served without fetching again
+        registry.snapshot("a", ProcessGraphRegistry.LATEST);
+        assertEquals(1, opened.get("a").get(0).fetches());
+
+        // A definition larger than the whole budget is kept alone
+        registry.snapshot("big", ProcessGraphRegistry.LATEST);
+        assertEquals(1, registry.size());
+        assertTrue(registry.estimatedBytes() > 3 * bytes);
+        assertEquals(5, registry.evictions());
+        for (String key : List.of("a", "b", "d")) assertTrue(opened.get(key).get(opened.get(key).size() - 1).isClosed(), key);
+        assertFalse(opened.get("big").get(0).isClosed());
+
+        registry.close();
+        assertTrue(opened.get("big").get(0).isClosed());
+        assertEquals(0, registry.size());
+        assertEquals(0, registry.estimatedBytes());
+    }
+}
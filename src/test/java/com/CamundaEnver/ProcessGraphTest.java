@@ -0,0 +1,93 @@
+package com.CamundaEnver;
+
+import org.junit.jupiter.api.Test;
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+/**
+ * Unit tests for the compressed sparse row layout built by ProcessGraph.Builder.
+ */
+public class ProcessGraphTest {
+
+    /**
+     * Tests the CSR arrays of a small graph, including the order of each node's edges.
+     */
+    @Test
+    public void testBuildsCsrArrays() {
+        ProcessGraph.Builder b = ProcessGraph.builder();
+        assertEquals(0, b.addNode("start"));
+        assertEquals(1, b.addNode("gateway"));
+        assertEquals(2, b.addNode("approve"));
+        assertEquals(3, b.addNode("end"));
+        assertEquals(1, b.addNode("gateway"), "A duplicate node keeps its index");
+        assertTrue(b.addEdge("start", "gateway"));
+        assertTrue(b.addEdge("gateway", "end"));
+        assertTrue(b.addEdge("gateway", "approve"));
+        assertTrue(b.addEdge("approve", "gateway"));
+        assertFalse(b.addEdge("approve", "missing"), "Edges to unknown nodes are dropped");
+        ProcessGraph g = b.build();
+
+        assertEquals(4, g.size());
+        assertEquals(4, g.edgeCount());
+        assertArrayEquals(new int[]{0, 1, 3, 4, 4}, g.offsets());
+        assertArrayEquals(new int[]{1, 3, 2, 1}, g.targets());
+        assertArrayEquals(new int[]{0, 0, 2, 3, 4}, g.inOffsets());
+        assertArrayEquals(new int[]{0, 2, 1, 1}, g.inSources());
+        assertEquals(List.of("end", "approve"), g.successors("gateway"));
+        assertEquals(List.of(), g.successors("end"));
+        assertEquals(List.of("start", "approve", "end"), g.toIds(new int[]{0, 2, 3, 1}, 3));
+    }
+
+    /**
+     * Tests that unknown and null IDs are reported as absent instead of throwing.
+     */
+    @Test
+    public void testUnknownAndNullIds() {
+        ProcessGraph.Builder b = ProcessGraph.builder();
+        b.addNode("start");
+        ProcessGraph g = b.build();
+        assertTrue(g.contains("start"));
+        assertFalse(g.contains("end"));
+        assertFalse(g.contains(null));
+        assertEquals(-1, g.indexOf("end"));
+        assertEquals(-1, g.indexOf(null));
+        assertEquals(List.of(), g.successors(null));
+    }
+
+    /**
+     * Tests on random graphs that the incoming edges are exactly the outgoing edges reversed,
+     * and that a graph rebuilt from its arrays answers the same.
+     */
+    @Test
+    public void testIncomingEdgesMirrorOutgoingEdges() {
+        Random random = new Random(7);
+        for (int round = 0; round < 50; round++) {
+            ProcessGraph g = GraphFixtures.randomGraph(random, 1 + random.nextInt(60), random.nextInt(200));
+            int n = g.size();
+            List<List<Integer>> expectedIn = new ArrayList<>();
+            for (int v = 0; v < n; v++) expectedIn.add(new ArrayList<>());
+            for (int u = 0; u < n; u++) {
+                for (int e = g.offsets()[u]; e < g.offsets()[u + 1]; e++) expectedIn.get(g.targets()[e]).add(u);
+            }
+            assertEquals(g.edgeCount(), g.offsets()[n]);
+            assertEquals(g.edgeCount(), g.inOffsets()[n]);
+            for (int v = 0; v < n; v++) {
+                List<Integer> in = new ArrayList<>();
+                for (int e = g.inOffsets()[v]; e < g.inOffsets()[v + 1]; e++) in.add(g.inSources()[e]);
+                in.sort(null); // Incoming edges are in insertion order, which the forward arrays do not record
+                assertEquals(expectedIn.get(v), in, "incoming edges of node " + v);
+            }
+
+            String[] ids = new String[n];
+            for (int v = 0; v < n; v++) ids[v] = g.idOf(v);
+            ProcessGraph copy = ProcessGraph.fromCsr(ids, g.offsets(), g.targets(), g.inOffsets(), g.inSources());
+            for (int v = 0; v < n; v++) {
+                assertEquals(v, copy.indexOf(ids[v]));
+                assertEquals(g.successors(ids[v]), copy.successors(ids[v]));
+            }
+        }
+    }
+}
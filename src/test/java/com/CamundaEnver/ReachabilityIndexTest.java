@@ -0,0 +1,99 @@
+package com.CamundaEnver;
+
+import org.junit.jupiter.api.Test;
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.util.Random;
+
+/**
+ * Unit tests for the strongly connected components and the transitive closure of ReachabilityIndex.
+ */
+public class ReachabilityIndexTest {
+
+    /**
+     * Tests on random graphs with cycles that the closure answers exactly like a breadth-first search.
+     */
+    @Test
+    public void testMatchesBreadthFirst() {
+        Random random = new Random(5);
+        for (int round = 0; round < 100; round++) {
+            int n = 1 + random.nextInt(150);
+            ProcessGraph g = GraphFixtures.randomGraph(random, n, random.nextInt(2 * n + 1));
+            ReachabilityIndex index = ReachabilityIndex.build(g);
+            for (int s = 0; s < n; s++) {
+                int[] expected = GraphFixtures.distances(g, s);
+                for (int t = 0; t < n; t++) {
+                    assertEquals(expected[t] >= 0, index.isReachable(s, t), s + " -> " + t);
+                }
+            }
+        }
+    }
+
+    /**
+     * Tests that the condensation groups exactly the mutually reachable nodes and that its components
+     * are numbered in reverse topological order.
+     */
+    @Test
+    public void testCondensation() {
+        Random random = new Random(9);
+        for (int round = 0; round < 100; round++) {
+            int n = 1 + random.nextInt(60);
+            ProcessGraph g = GraphFixtures.randomGraph(random, n, random.nextInt(2 * n + 1));
+            ReachabilityIndex index = ReachabilityIndex.build(g);
+            int[] component = index.components();
+            int[][] dist = new int[n][];
+            for (int s = 0; s < n; s++) dist[s] = GraphFixtures.distances(g, s);
+            int comps = 0;
+            for (int u = 0; u < n; u++) {
+                comps = Math.max(comps, component[u] + 1);
+                for (int v = 0; v < n; v++) {
+                    boolean mutual = dist[u][v] >= 0 && dist[v][u] >= 0;
+                    assertEquals(mutual, component[u] == component[v], u + " and " + v);
+                }
+                for (int e = g.offsets()[u]; e < g.offsets()[u + 1]; e++) {
+                    assertTrue(component[g.targets()[e]] <= component[u], "edge leads to a later component");
+                }
+            }
+            assertEquals(comps, index.componentCount());
+        }
+    }
+
+    /**
+     * Tests a long cycle and a long chain, which a recursive component search could not handle.
+     */
+    @Test
+    public void testDeepGraphs() {
+        int n = ReachabilityIndex.MAX_NODES;
+        ProcessGraph.Builder chain = ProcessGraph.builder(), cycle = ProcessGraph.builder();
+        for (int i = 0; i < n; i++) {
+            chain.addNode("n" + i);
+            cycle.addNode("n" + i);
+        }
+        for (int i = 0; i + 1 < n; i++) {
+            chain.addEdge("n" + i, "n" + (i + 1));
+            cycle.addEdge("n" + i, "n" + (i + 1));
+        }
+        cycle.addEdge("n" + (n - 1), "n0");
+
+        ReachabilityIndex chainIndex = ReachabilityIndex.build(chain.build());
+        assertEquals(n, chainIndex.componentCount());
+        assertTrue(chainIndex.isReachable("n0", "n" + (n - 1)));
+        assertFalse(chainIndex.isReachable("n" + (n - 1), "n0"));
+
+        ReachabilityIndex cycleIndex = ReachabilityIndex.build(cycle.build());
+        assertEquals(1, cycleIndex.componentCount());
+        assertTrue(cycleIndex.isReachable("n" + (n - 1), "n0"));
+        assertFalse(cycleIndex.isReachable("n0", "missing"));
+        assertFalse(cycleIndex.isReachable(null, "n0"));
+    }
+
+    /**
+     * Tests that graphs above the hard node ceiling are rejected before the closure is allocated.
+     */
+    @Test
+    public void testRejectsGraphsAboveMaxNodes() {
+        ProcessGraph.Builder b = ProcessGraph.builder();
+        for (int i = 0; i <= ReachabilityIndex.MAX_NODES; i++) b.addNode("n" + i);
+        assertThrows(IllegalArgumentException.class, () -> ReachabilityIndex.build(b.build()));
+    }
+}
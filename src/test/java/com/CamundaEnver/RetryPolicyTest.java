@@ -0,0 +1,115 @@
+package com.CamundaEnver;
+
+import org.apache.http.client.utils.DateUtils;
+import org.junit.jupiter.api.Test;
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.util.Date;
+
+/**
+ * Unit tests for the retry decisions and the Retry-After parsing of RetryPolicy.
+ */
+public class RetryPolicyTest {
+
+    private static final long NOW = 1_790_000_000_000L; // A whole second, as HTTP dates have no milliseconds
+
+    /**
+     * Tests Retry-After values given in seconds.
+     */
+    @Test
+    public void testRetryAfterSeconds() {
+        assertEquals(120_000, RetryPolicy.retryAfterMillis("120", NOW));
+        assertEquals(5_000, RetryPolicy.retryAfterMillis(" 5 ", NOW));
+        assertEquals(0, RetryPolicy.retryAfterMillis("0", NOW));
+        assertEquals(Long.MAX_VALUE, RetryPolicy.retryAfterMillis("9223372036854775807", NOW));
+        assertEquals(Long.MAX_VALUE, RetryPolicy.retryAfterMillis("99999999999999999999999", NOW));
+    }
+
+    /**
+     * Tests Retry-After values given as HTTP dates in the three formats HTTP allows.
+     */
+    @Test
+    public void testRetryAfterDate() {
+        assertEquals(30_000, RetryPolicy.retryAfterMillis(DateUtils.formatDate(new Date(NOW + 30_000)), NOW));
+        assertEquals(0, RetryPolicy.retryAfterMillis(DateUtils.formatDate(new Date(NOW - 30_000)), NOW), "past dates mean now");
+        // NOW is Mon, 21 Sep 2026 14:13:20 GMT
+        assertEquals(1000, RetryPolicy.retryAfterMillis("Mon, 21 Sep 2026 14:13:21 GMT", NOW));
+        assertEquals(1000, RetryPolicy.retryAfterMillis("Monday, 21-Sep-26 14:13:21 GMT", NOW));
+        assertEquals(1000, RetryPolicy.retryAfterMillis("Mon Sep 21 14:13:21 2026", NOW));
+    }
+
+    /**
+     * Tests that absent and invalid Retry-After values are ignored.
+     */
+    @Test
+    public void testRetryAfterInvalid() {
+        assertEquals(-1, RetryPolicy.retryAfterMillis(null, NOW));
+        assertEquals(-1, RetryPolicy.retryAfterMillis(" ", NOW));
+        assertEquals(-1, RetryPolicy.retryAfterMillis("-5", NOW));
+        assertEquals(-1, RetryPolicy.retryAfterMillis("+5", NOW));
+        assertEquals(-1, RetryPolicy.retryAfterMillis("1.5", NOW));
+        assertEquals(-1, RetryPolicy.retryAfterMillis("soon", NOW));
+    }
+
+    /**
+     * Tests that the server's delay is honoured up to maxDelayMs and gives up beyond it.
+     */
+    @Test
+    public void testDelayHonoursRetryAfterUpToMaxDelay() {
+        RetryPolicy policy = new RetryPolicy(3, 100, 5_000, 0);
+        long deadline = policy.deadlineFrom(NOW);
+        assertEquals(Long.MAX_VALUE, deadline);
+        assertEquals(5_000, policy.delayMillis(0, 5_000, NOW, deadline));
+        assertEquals(0, policy.delayMillis(0, 0, NOW, deadline));
+        assertEquals(-1, policy.delayMillis(0, 5_001, NOW, deadline));
+        assertEquals(-1, policy.delayMillis(0, Long.MAX_VALUE, NOW, deadline));
+    }
+
+    /**
+     * Tests that no retry is started after the retries are used up or past the deadline.
+     */
+    @Test
+    public void testDelayGivesUp() {
+        RetryPolicy policy = new RetryPolicy(2, 0, 5_000, 10_000);
+        long deadline = policy.deadlineFrom(NOW);
+        assertEquals(NOW + 10_000, deadline);
+        assertEquals(0, policy.delayMillis(1, -1, NOW, deadline));
+        assertEquals(-1, policy.delayMillis(2, -1, NOW, deadline), "retries exhausted");
+        assertEquals(3_000, policy.delayMillis(0, 3_000, NOW + 6_000, deadline));
+        assertEquals(-1, policy.delayMillis(0, 4_000, NOW + 6_000, deadline), "would start at the deadline");
+        assertEquals(-1, policy.delayMillis(0, -1, deadline, deadline), "deadline reached");
+    }
+
+    /**
+     * Tests that the jittered backoff stays within its exponential bound and the cap, and covers the range.
+     */
+    @Test
+    public void testBackoffBounds() {
+        RetryPolicy policy = new RetryPolicy(100, 100, 5_000, 0);
+        for (int retry = 0; retry < 100; retry++) {
+            long bound = Math.min(5_000, 100L << Math.min(retry, 30));
+            long max = 0;
+            for (int i = 0; i < 200; i++) {
+                long delay = policy.backoffMillis(retry);
+                assertTrue(delay >= 0 && delay <= bound, "retry " + retry + ": " + delay);
+                long viaPolicy = policy.delayMillis(retry, -1, NOW, Long.MAX_VALUE);
+                assertTrue(viaPolicy >= 0 && viaPolicy <= bound, "retry " + retry + " without deadline: " + viaPolicy);
+                max = Math.max(max, delay);
+            }
+            assertTrue(max > bound / 2, "retry " + retry + " never drew from the upper half");
+        }
+        assertEquals(0, new RetryPolicy(3, 0, 5_000, 0).backoffMillis(2));
+    }
+
+    /**
+     * Tests which response statuses are retried.
+     */
+    @Test
+    public void testRetryableStatus() {
+        assertTrue(RetryPolicy.isRetryableStatus(429));
+        assertTrue(RetryPolicy.isRetryableStatus(503));
+        assertFalse(RetryPolicy.isRetryableStatus(500));
+        assertFalse(RetryPolicy.isRetryableStatus(404));
+        assertFalse(RetryPolicy.isRetryableStatus(200));
+    }
+}
@@ -0,0 +1,127 @@
+package com.CamundaEnver;
+
+import org.junit.jupiter.api.Test;
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Unit tests for the coalescing of loads through SingleFlight across libraries and registries.
+ * Definitions are served by StubBpmnSource, whose fetches are counted and held until released.
+ */
+public class SingleFlightTest {
+
+    private static final long TIMEOUT_MS = 10_000; // Longest wait for other threads
+
+    /**
+     * Tests that simultaneous first loads of sessions over sources with the same ID trigger a single fetch,
+     * and that every session answers from its result.
+     *
+     * @throws Exception if a load fails or the threads cannot be joined
+     */
+    @Test
+    public void testSessionsShareOneFetch() throws Exception {
+        int n = 8;
+        List<StubBpmnSource> sources = new ArrayList<>();
+        List<InvoicePathLibrary> libraries = new ArrayList<>();
+        for (int i = 0; i < n; i++) {
+            StubBpmnSource source = new StubBpmnSource("http://engine/shared-session/xml", StubBpmnSource.chain(3));
+            sources.add(source);
+            libraries.add(InvoicePathLibrary.session(source, 0));
+        }
+        List<CountDownLatch> gates = new ArrayList<>();
+        for (StubBpmnSource source : sources) gates.add(source.hold());
+
+        ExecutorService pool = Executors.newFixedThreadPool(n);
+        try {
+            List<Thread> threads = new ArrayList<>();
+            List<Future<ModelSnapshot>> loads = new ArrayList<>();
+            for (InvoicePathLibrary lib : libraries) {
+                loads.add(pool.submit(() -> {
+                    synchronized (threads) {
+                        threads.add(Thread.currentThread());
+                    }
+                    return lib.currentSnapshot();
+                }));
+            }
+            // Every thread is parked: one in the held fetch, the others waiting for it
+            awaitParked(threads, n);
+            assertEquals(1, sources.stream().mapToInt(StubBpmnSource::fetches).sum());
+            gates.forEach(CountDownLatch::countDown);
+
+            ModelSnapshot first = loads.get(0).get(TIMEOUT_MS, TimeUnit.MILLISECONDS);
+            for (Future<ModelSnapshot> load : loads) assertSame(first, load.get(TIMEOUT_MS, TimeUnit.MILLISECONDS));
+            assertEquals(1, sources.stream().mapToInt(StubBpmnSource::fetches).sum());
+            for (InvoicePathLibrary lib : libraries) assertTrue(lib.findPath("task0", "task2").success());
+            assertEquals(1, sources.stream().mapToInt(StubBpmnSource::fetches).sum());
+        } finally {
+            pool.shutdownNow();
+            libraries.forEach(InvoicePathLibrary::close);
+        }
+    }
+
+    /**
+     * Tests that simultaneous first loads of the same definition by different registries trigger a single fetch.
+     *
+     * @throws Exception if a load fails or the threads cannot be joined
+     */
+    @Test
+    public void testRegistriesShareOneFetch() throws Exception {
+        int n = 4;
+        List<StubBpmnSource> sources = new ArrayList<>();
+        List<ProcessGraphRegistry> registries = new ArrayList<>();
+        List<CountDownLatch> gates = new ArrayList<>();
+        for (int i = 0; i < n; i++) {
+            StubBpmnSource source = new StubBpmnSource("http://engine/shared-registry/xml", StubBpmnSource.chain(3));
+            gates.add(source.hold());
+            sources.add(source);
+            registries.add(new ProcessGraphRegistry(ref -> source, Long.MAX_VALUE, 0));
+        }
+        ExecutorService pool = Executors.newFixedThreadPool(n);
+        try {
+            List<Thread> threads = new ArrayList<>();
+            List<Future<ModelSnapshot>> loads = new ArrayList<>();
+            for (ProcessGraphRegistry registry : registries) {
+                loads.add(pool.submit(() -> {
+                    synchronized (threads) {
+                        threads.add(Thread.currentThread());
+                    }
+                    return registry.snapshot("chain", ProcessGraphRegistry.LATEST);
+                }));
+            }
+            awaitParked(threads, n);
+            assertEquals(1, sources.stream().mapToInt(StubBpmnSource::fetches).sum());
+            gates.forEach(CountDownLatch::countDown);
+
+            ProcessGraph graph = loads.get(0).get(TIMEOUT_MS, TimeUnit.MILLISECONDS).graph();
+            for (Future<ModelSnapshot> load : loads) assertSame(graph, load.get(TIMEOUT_MS, TimeUnit.MILLISECONDS).graph());
+            assertEquals(1, sources.stream().mapToInt(StubBpmnSource::fetches).sum());
+        } finally {
+            pool.shutdownNow();
+            registries.forEach(ProcessGraphRegistry::close);
+        }
+    }
+
+    /**
+     * Waits until the given number of threads have started and are all parked.
+     */
+    private static void awaitParked(List<Thread> threads, int n) throws InterruptedException {
+        long end = System.currentTimeMillis() + TIMEOUT_MS;
+        while (true) {
+            synchronized (threads) {
+                if (threads.size() == n && threads.stream().allMatch(t -> t.getState() == Thread.State.WAITING
+                        || t.getState() == Thread.State.TIMED_WAITING)) {
+                    return;
+                }
+            }
+            assertTrue(System.currentTimeMillis() < end, "threads never parked");
+            Thread.sleep(10);
+        }
+    }
+}
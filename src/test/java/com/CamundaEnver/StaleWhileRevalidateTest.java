@@ -0,0 +1,95 @@
+package com.CamundaEnver;
+
+import org.junit.jupiter.api.Test;
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.concurrent.CountDownLatch;
+import java.util.function.BooleanSupplier;
+
+/**
+ * Unit tests for stale-while-revalidate sessions of InvoicePathLibrary over StubBpmnSource,
+ * whose background refreshes can be held or made to fail.
+ */
+public class StaleWhileRevalidateTest {
+
+    private static final long TTL_MS = 50; // Interval between background refreshes
+    private static final long TIMEOUT_MS = 10_000; // Longest wait for a background refresh
+
+    /**
+     * Tests that queries are answered at once from the stale snapshot while a slow refresh is running,
+     * that only one refresh runs at a time, and that its result is swapped in once it completes.
+     *
+     * @throws Exception if a query fails
+     */
+    @Test
+    public void testServesStaleSnapshotDuringSlowRefresh() throws Exception {
+        StubBpmnSource source = new StubBpmnSource("http://engine/swr-slow/xml", StubBpmnSource.chain(3));
+        try (InvoicePathLibrary lib = InvoicePathLibrary.staleWhileRevalidate(source, TTL_MS, 0)) {
+            long first = lib.currentSnapshot().version();
+
+            CountDownLatch released = source.hold();
+            source.setXml(StubBpmnSource.chain(5));
+            await(() -> source.held() == 1, "background refresh");
+            int fetches = source.fetches();
+
+            // A query that waited for the held refresh would not return before it is released
+            for (int i = 0; i < 20; i++) {
+                assertEquals(first, lib.currentSnapshot().version());
+                assertEquals("Invalid node IDs", lib.findPath("task0", "task4").message());
+                assertTrue(lib.findPath("task0", "task2").success());
+            }
+            Thread.sleep(5 * TTL_MS);
+            assertEquals(fetches, source.fetches(), "a second refresh started while the first was running");
+            assertEquals(1, source.held());
+
+            released.countDown();
+            await(() -> current(lib).version() != first, "new snapshot");
+            assertTrue(lib.findPath("task0", "task4").success());
+            assertNull(lib.lastRefreshFailure());
+        }
+    }
+
+    /**
+     * Tests that a failed refresh keeps the previous snapshot and is reported, and that a later refresh recovers.
+     *
+     * @throws Exception if a query fails
+     */
+    @Test
+    public void testFailedRefreshKeepsSnapshot() throws Exception {
+        StubBpmnSource source = new StubBpmnSource("http://engine/swr-failing/xml", StubBpmnSource.chain(3));
+        try (InvoicePathLibrary lib = InvoicePathLibrary.staleWhileRevalidate(source, TTL_MS, 0)) {
+            long first = lib.currentSnapshot().version();
+
+            IOException down = new IOException("engine down");
+            source.failWith(down);
+            source.setXml(StubBpmnSource.chain(5));
+            await(() -> lib.lastRefreshFailure() != null, "failed refresh");
+            assertSame(down, lib.lastRefreshFailure());
+            assertEquals(first, lib.currentSnapshot().version());
+            assertTrue(lib.findPath("task0", "task2").success());
+            assertEquals("Invalid node IDs", lib.findPath("task0", "task4").message());
+
+            source.failWith(null);
+            await(() -> lib.lastRefreshFailure() == null, "successful refresh");
+            assertTrue(lib.findPath("task0", "task4").success());
+        }
+    }
+
+    private static ModelSnapshot current(InvoicePathLibrary lib) {
+        try {
+            return lib.currentSnapshot();
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    private static void await(BooleanSupplier condition, String what) throws InterruptedException {
+        long end = System.currentTimeMillis() + TIMEOUT_MS;
+        while (!condition.getAsBoolean()) {
+            assertTrue(System.currentTimeMillis() < end, "timed out waiting for " + what);
+            Thread.sleep(5);
+        }
+    }
+}
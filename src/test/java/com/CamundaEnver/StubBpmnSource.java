@@ -0,0 +1,125 @@
+package com.CamundaEnver;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * In-memory BpmnSource for tests. It counts fetches, can hold them until released or make them fail,
+ * and records whether it has been closed.
+ */
+final class StubBpmnSource implements BpmnSource {
+    private final String id; // Identity reported by id()
+    private final AtomicInteger fetches = new AtomicInteger(); // Fetches started so far, conditional or not
+    private final AtomicInteger held = new AtomicInteger(); // Fetches currently waiting for the gate
+    private volatile String xml; // Definition served by the next fetch
+    private volatile String served; // Definition served by the last successful fetch, null until then
+    private volatile CountDownLatch gate; // Held fetches wait for this latch, null if fetches are not held
+    private volatile IOException failure; // Thrown by fetches while set
+    private volatile boolean closed; // Whether close() has been called
+
+    StubBpmnSource(String id, String xml) {
+        this.id = id;
+        this.xml = xml;
+    }
+
+    /**
+     * Writes a process of user tasks {@code task0 .. task<n-1>} connected in a chain.
+     */
+    static String chain(int n) {
+        StringBuilder sb = new StringBuilder("<?xml version=\"1.0\" encoding=\"UTF-8\"?>\n"
+                + "<bpmn:definitions xmlns:bpmn=\"http://www.omg.org/spec/BPMN/20100524/MODEL\" id=\"defs\" "
+                + "targetNamespace=\"urn:example\"><bpmn:process id=\"chain\">");
+        for (int i = 0; i < n; i++) sb.append("<bpmn:userTask id=\"task").append(i).append("\"/>");
+        for (int i = 1; i < n; i++) {
+            sb.append("<bpmn:sequenceFlow id=\"flow").append(i).append("\" sourceRef=\"task").append(i - 1)
+                    .append("\" targetRef=\"task").append(i).append("\"/>");
+        }
+        return sb.append("</bpmn:process></bpmn:definitions>").toString();
+    }
+
+    /**
+     * Replaces the definition served by the next fetch.
+     */
+    void setXml(String xml) {
+        this.xml = xml;
+    }
+
+    /**
+     * Makes every fetch started from now on wait until the returned latch is counted down.
+     */
+    CountDownLatch hold() {
+        CountDownLatch latch = new CountDownLatch(1);
+        gate = latch;
+        return latch;
+    }
+
+    /**
+     * Makes fetches fail with the given exception, or succeed again if it is null.
+     */
+    void failWith(IOException failure) {
+        this.failure = failure;
+    }
+
+    int fetches() {
+        return fetches.get();
+    }
+
+    int held() {
+        return held.get();
+    }
+
+    boolean isClosed() {
+        return closed;
+    }
+
+    @Override
+    public String id() {
+        return id;
+    }
+
+    @Override
+    public <T> T fetch(BpmnStreamParser<T> parser) throws IOException {
+        fetches.incrementAndGet();
+        await();
+        IOException f = failure;
+        if (f != null) throw f;
+        String x = xml;
+        T value = parser.parse(new ByteArrayInputStream(x.getBytes(StandardCharsets.UTF_8)));
+        served = x;
+        return value;
+    }
+
+    @Override
+    public <T> T fetchIfModified(BpmnStreamParser<T> parser) throws IOException {
+        if (xml.equals(served)) {
+            fetches.incrementAndGet();
+            await();
+            return null;
+        }
+        return fetch(parser);
+    }
+
+    @Override
+    public void close() {
+        closed = true;
+    }
+
+    private void await() throws IOException {
+        CountDownLatch latch = gate;
+        if (latch == null) return;
+        held.incrementAndGet();
+        try {
+            if (!latch.await(10, TimeUnit.SECONDS)) throw new IOException("Fetch of " + id + " never released");
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException();
+        } finally {
+            held.decrementAndGet();
+        }
+    }
+}